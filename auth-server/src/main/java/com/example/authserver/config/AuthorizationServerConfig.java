@@ -1,11 +1,11 @@
 package com.example.authserver.config;
 
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
@@ -16,19 +16,20 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClaimAccessor;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 import org.springframework.security.oauth2.core.OAuth2Token;
 import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
-import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
@@ -43,44 +44,68 @@ import org.springframework.security.oauth2.server.authorization.token.Delegating
 import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
 import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2RefreshTokenGenerator;
-import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
 import org.springframework.security.web.authentication.AuthenticationConverter;
 import org.springframework.util.StringUtils;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
-import java.time.Instant;
-import java.util.HashSet;
-import java.util.List;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Configuration
 public class AuthorizationServerConfig {
 
 
+    // BCrypt for client secrets and user passwords. AUTH_CREDENTIAL_CACHE_TTL > 0 remembers successful
+    // checks for that long, so repeat logins from the same caller skip the BCrypt cost.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${AUTH_CREDENTIAL_CACHE_TTL:PT0S}") Duration cacheTimeToLive,
+                                           @Value("${AUTH_CREDENTIAL_CACHE_MAX_SIZE:10000}") long cacheMaximumSize) {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        if (cacheTimeToLive.isZero() || cacheTimeToLive.isNegative()) {
+            return bcrypt;
+        }
+        return new CachingPasswordEncoder(bcrypt, cacheTimeToLive, cacheMaximumSize);
     }
 
 
+    // JWS algorithm used for access tokens (RS256 default; ES256 and EdDSA are far cheaper to sign)
     @Bean
-    public OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator(
-            JWKSource<SecurityContext> jwkSource,
-            OAuth2TokenCustomizer<JwtEncodingContext> jwtCustomizer) {
-
-        // JWT encoder
-        NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(jwkSource);
+    public JwsAlgorithm signingAlgorithm(@Value("${AUTH_SIGNING_ALGORITHM:RS256}") String algorithm) {
+        return SigningKeys.algorithm(algorithm);
+    }
 
-        // Access token generator
+    @Bean
+    public OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator(
+            RotatingJwkSource jwkSource,
+            OAuth2TokenCustomizer<JwtEncodingContext> jwtCustomizer,
+            JwsAlgorithm signingAlgorithm,
+            MeterRegistry meterRegistry) {
+
+        // JWT encoder — signing is timed on its own so it can be told apart from the rest of token generation
+        JwtEncoder signingEncoder = SigningKeys.encoder(signingAlgorithm, jwkSource);
+        Timer signingTimer = Timer.builder("auth.jwt.signing")
+                .description("JWS signing of access tokens")
+                .tag("algorithm", signingAlgorithm.getName())
+                .register(meterRegistry);
+        JwtEncoder jwtEncoder = parameters -> signingTimer.record(() -> signingEncoder.encode(parameters));
+        Timer customizerTimer = Timer.builder("auth.jwt.customizer")
+                .description("jwtCustomizer() per access token")
+                .register(meterRegistry);
+
+        // Access token generator — JwtGenerator defaults to RS256, so pin the header to the key's algorithm;
+        // the kid picks the active key while a pre-published successor is already in the JWK set
         JwtGenerator jwtGenerator = new JwtGenerator(jwtEncoder);
-        jwtGenerator.setJwtCustomizer(jwtCustomizer);
+        jwtGenerator.setJwtCustomizer(context -> {
+            context.getJwsHeader().algorithm(signingAlgorithm).keyId(jwkSource.signingKeyId());
+            customizerTimer.record(() -> jwtCustomizer.customize(context));
+        });
 
         // Refresh token generator
         OAuth2RefreshTokenGenerator refreshTokenGenerator = new OAuth2RefreshTokenGenerator();
@@ -95,29 +120,89 @@ public class AuthorizationServerConfig {
     public AuthorizationServerSettings authorizationServerSettings() {
         return AuthorizationServerSettings.builder()
                 .tokenEndpoint("/oauth2/token")
+                .setting(BatchTokenEndpointFilter.ENDPOINT, "/oauth2/token/batch")
+                .setting(RevocationListEndpointFilter.ENDPOINT, "/oauth2/revocations")
                 .jwkSetEndpoint("/oauth2/jwks")
                 .issuer("http://auth-server:9000")
                 .build();
     }
 
-    // JWK source for JWT signing (simple RSA keypair)
+    // jti's of access tokens revoked before their exp, polled by resource servers from /oauth2/revocations;
+    // in cluster mode one list (epoch and sequence included) shared by every node, whose expired log slots
+    // each node prunes every AUTH_REVOCATIONS_PRUNE_INTERVAL
     @Bean
-    public JWKSource<SecurityContext> jwkSource() {
-        KeyPair keyPair = generateRsaKey();
-        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-        RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-        RSAKey rsaKey = new RSAKey.Builder(publicKey)
-                .privateKey(privateKey)
-                .keyID(UUID.randomUUID().toString())
-                .build();
-        JWKSet jwkSet = new JWKSet(rsaKey);
-        return new ImmutableJWKSet<>(jwkSet);
+    public TokenRevocationList tokenRevocationList(Optional<SharedStateBackend> sharedState,
+                                                   @Value("${AUTH_REVOCATIONS_PRUNE_INTERVAL:PT1M}") Duration pruneInterval) {
+        return sharedState.<TokenRevocationList>map(backend -> new SharedTokenRevocationList(backend, pruneInterval))
+                .orElseGet(TokenRevocationList::new);
+    }
+
+    // Cluster mode: authorizations, clients, signing keys and revocations go to a store shared by every
+    // node, each node keeping near-caches that the store's change events invalidate. AUTH_CLUSTER_BACKEND=local
+    // runs the in-process stand-in (several nodes in one JVM, e.g. tests); a real deployment declares its own
+    // SharedStateBackend bean over Redis, Hazelcast or a database instead.
+    @Bean
+    @ConditionalOnProperty(name = "AUTH_CLUSTER_BACKEND", havingValue = "local")
+    public SharedStateBackend sharedStateBackend() {
+        return new InMemorySharedStateBackend();
     }
 
-    // Authorization persistence (in-memory) — prod'ta JdbcOAuth2AuthorizationService kullan
+    // JWK source for JWT signing — keys live in AUTH_KEYS_DIR (shared by all nodes) and rotate on a schedule.
+    // Without AUTH_KEYS_DIR keys are kept in memory and regenerated on restart. In cluster mode they live in
+    // the shared backend and a key generated by one node is picked up by the others right away.
     @Bean
-    public OAuth2AuthorizationService authorizationService() {
-        return new InMemoryOAuth2AuthorizationService();
+    public RotatingJwkSource jwkSource(JwsAlgorithm signingAlgorithm,
+                                       Optional<SharedStateBackend> sharedState,
+                                       @Value("${AUTH_KEYS_DIR:}") String keysDirectory,
+                                       @Value("${AUTH_KEY_ROTATION_PERIOD:P7D}") Duration rotationPeriod,
+                                       @Value("${AUTH_KEY_PREPUBLISH:PT1H}") Duration prepublish,
+                                       @Value("${AUTH_KEY_RETENTION:PT2H}") Duration retention,
+                                       @Value("${AUTH_KEY_CHECK_INTERVAL:PT1M}") Duration checkInterval) {
+        SharedStateBackend backend = sharedState.orElse(null);
+        SigningKeyStore keyStore;
+        if (backend != null) {
+            keyStore = new SharedSigningKeyStore(backend);
+        } else if (StringUtils.hasText(keysDirectory)) {
+            keyStore = new FileSigningKeyStore(Path.of(keysDirectory));
+        } else {
+            keyStore = new InMemorySigningKeyStore();
+        }
+        RotatingJwkSource jwkSource =
+                new RotatingJwkSource(keyStore, signingAlgorithm, rotationPeriod, prepublish, retention, checkInterval);
+        if (backend != null) {
+            backend.subscribe(SharedSigningKeyStore.REGION, keyId -> jwkSource.refresh());
+        }
+        return jwkSource;
+    }
+
+    // Authorization persistence (in-memory, bounded) — prod'ta JdbcOAuth2AuthorizationService kullan
+    // Entries expire with their tokens and the store never grows past AUTH_STORE_MAX_SIZE.
+    // AUTH_STORE_TYPE=file additionally appends every write to a log that is replayed on restart;
+    // writes are batched by a background thread so /oauth2/token never waits on the disk.
+    // In cluster mode the shared backend holds them instead (AUTH_STORE_TYPE is ignored) and up to
+    // AUTH_STORE_MAX_SIZE of them are near-cached, for at most AUTH_CLUSTER_NEAR_CACHE_TTL.
+    @Bean
+    public OAuth2AuthorizationService authorizationService(
+            Optional<SharedStateBackend> sharedState,
+            @Value("${AUTH_CLUSTER_NEAR_CACHE_TTL:PT1M}") Duration nearCacheTimeToLive,
+            @Value("${AUTH_STORE_TYPE:memory}") String storeType,
+            @Value("${AUTH_STORE_MAX_SIZE:100000}") long maximumSize,
+            @Value("${AUTH_STORE_DEFAULT_TTL:PT1H}") Duration defaultTimeToLive,
+            @Value("${AUTH_STORE_FILE:data/authorizations.log}") Path storeFile,
+            @Value("${AUTH_STORE_BATCH_SIZE:256}") int batchSize,
+            @Value("${AUTH_STORE_QUEUE_CAPACITY:65536}") int queueCapacity,
+            @Value("${AUTH_STORE_COMPACT_THRESHOLD_BYTES:268435456}") long compactThresholdBytes) {
+        SharedStateBackend backend = sharedState.orElse(null);
+        if (backend != null) {
+            return new SharedOAuth2AuthorizationService(backend, maximumSize, defaultTimeToLive, nearCacheTimeToLive);
+        }
+        BoundedOAuth2AuthorizationService memoryStore =
+                new BoundedOAuth2AuthorizationService(maximumSize, defaultTimeToLive);
+        if ("file".equalsIgnoreCase(storeType)) {
+            return new PersistentOAuth2AuthorizationService(memoryStore, storeFile, batchSize, queueCapacity,
+                    compactThresholdBytes);
+        }
+        return memoryStore;
     }
 
     // Token generator — use default Jwt generator if available, otherwise fallback
@@ -133,43 +218,23 @@ public class AuthorizationServerConfig {
         return new ProviderManager(dao);
     }
 
-    // Put user scopes into JWT claims (so resource server can authorize based on SCOPE_xxx)
+    // Put the authorized scopes into JWT claims (so resource server can authorize based on SCOPE_xxx)
     @Bean
     public OAuth2TokenCustomizer<JwtEncodingContext> jwtCustomizer() {
         return context -> {
             if (OAuth2TokenType.ACCESS_TOKEN.equals(context.getTokenType())) {
-                Authentication principal = context.getPrincipal();
-                // Convert authorities SCOPE_xxx -> xxx and put into 'scope' claim (array)
-                List<String> scopes = principal.getAuthorities().stream()
-                        .map(GrantedAuthority::getAuthority)
-                        .filter(a -> a.startsWith("SCOPE_"))
-                        .map(a -> a.substring("SCOPE_".length()))
-                        .distinct()
-                        .collect(Collectors.toList());
-
-                if (!scopes.isEmpty()) {
-                    // Add scopes as normal space separated for compatibility and also as array
-                    String scopeStr = String.join(" ", scopes);
-                    context.getClaims().claim(OAuth2ParameterNames.SCOPE, scopeStr);
-                    context.getClaims().claim("scope", scopes);
+                // the scopes the grant authorized (client and user scopes intersected, narrowed on refresh); one 'scope' claim (array)
+                ScopeSet scopes = ScopeSet.of(context.getAuthorizedScopes());
+                if (TokenProfile.of(context.getRegisteredClient()) == TokenProfile.COMPACT) {
+                    TokenProfile.compact(context.getClaims(), scopes);
+                } else if (!scopes.isEmpty()) {
+                    context.getClaims().claim(OAuth2ParameterNames.SCOPE, scopes.asList());
                 }
-
             }
         };
     }
 
 
-    // RSA key generation helper
-    private static KeyPair generateRsaKey() {
-        try {
-            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-            keyPairGenerator.initialize(2048);
-            return keyPairGenerator.generateKeyPair();
-        } catch (Exception ex) {
-            throw new IllegalStateException(ex);
-        }
-    }
-
     // -------------------------
     // Inner classes: converter + token + provider
     // -------------------------
@@ -234,23 +299,44 @@ public class AuthorizationServerConfig {
     }
 
     /**
-     * Provider: authenticate the resource owner and issue an access token (no refresh token here).
+     * Provider: authenticate the resource owner and issue an access token, plus a refresh token when the client
+     * has the {@code refresh_token} grant type (exchanged by {@link RefreshTokenGrantAuthenticationProvider}).
+     * <p>
+     * Each step is timed as {@code auth.password_grant.phase} (tags {@code phase}, {@code client_id},
+     * {@code outcome}) and the whole grant as {@code auth.password_grant} (tags {@code client_id},
+     * {@code outcome} = {@code success} or the OAuth2 error code). Client ids come from the already
+     * authenticated client, so the tag values are bounded by the registered clients.
      */
     public static class PasswordGrantAuthenticationProvider implements AuthenticationProvider {
 
+        static final String CLIENT_LOOKUP = "client_lookup";
+        static final String USER_AUTHENTICATION = "user_authentication";
+        static final String SCOPE_RESOLUTION = "scope_resolution";
+        static final String TOKEN_GENERATION = "token_generation";
+        static final String AUTHORIZATION_SAVE = "authorization_save";
+
         private final RegisteredClientRepository registeredClientRepository;
         private final OAuth2AuthorizationService authorizationService;
         private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
         private final AuthenticationManager authenticationManager;
+        private final MeterProvider<Timer> grantTimer;
+        private final MeterProvider<Timer> phaseTimer;
 
         public PasswordGrantAuthenticationProvider(RegisteredClientRepository registeredClientRepository,
                                                    OAuth2AuthorizationService authorizationService,
                                                    OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator,
-                                                   AuthenticationManager authenticationManager) {
+                                                   AuthenticationManager authenticationManager,
+                                                   MeterRegistry meterRegistry) {
             this.registeredClientRepository = registeredClientRepository;
             this.authorizationService = authorizationService;
             this.tokenGenerator = tokenGenerator;
             this.authenticationManager = authenticationManager;
+            this.grantTimer = Timer.builder("auth.password_grant")
+                    .description("Password grant token requests")
+                    .withRegistry(meterRegistry);
+            this.phaseTimer = Timer.builder("auth.password_grant.phase")
+                    .description("Time spent in each step of the password grant")
+                    .withRegistry(meterRegistry);
         }
 
         @Override
@@ -275,80 +361,140 @@ public class AuthorizationServerConfig {
                 throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
             }
 
-            RegisteredClient registeredClient = this.registeredClientRepository.findByClientId(clientId);
-            if (registeredClient == null) {
-                throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
+            long start = System.nanoTime();
+            String outcome = OAuth2ErrorCodes.SERVER_ERROR;
+            try {
+                Authentication result = issue(resourceAuth, clientPrincipal, clientId);
+                outcome = "success";
+                return result;
+            } catch (OAuth2AuthenticationException ex) {
+                outcome = ex.getError().getErrorCode();
+                throw ex;
+            } catch (AuthenticationException ex) {
+                // bad username / password from the user AuthenticationManager
+                outcome = OAuth2ErrorCodes.INVALID_GRANT;
+                throw ex;
+            } finally {
+                this.grantTimer.withTags("client_id", clientId, "outcome", outcome)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
+        }
 
-
+        private Authentication issue(PasswordGrantAuthenticationToken resourceAuth, Authentication clientPrincipal,
+                                     String clientId) {
+            RegisteredClient registeredClient = phase(CLIENT_LOOKUP, clientId, () -> {
+                RegisteredClient client = this.registeredClientRepository.findByClientId(clientId);
+                if (client == null) {
+                    throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
+                }
+                return client;
+            });
 
             // Authenticate the resource owner (username/password)
-            UsernamePasswordAuthenticationToken userToken =
-                    new UsernamePasswordAuthenticationToken(resourceAuth.getPrincipal(), resourceAuth.getCredentials());
-            Authentication userAuth = this.authenticationManager.authenticate(userToken);
-            if (userAuth == null || !userAuth.isAuthenticated()) {
-                throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_GRANT);
-            }
+            Authentication userAuth = phase(USER_AUTHENTICATION, clientId, () -> {
+                UsernamePasswordAuthenticationToken userToken =
+                        new UsernamePasswordAuthenticationToken(resourceAuth.getPrincipal(), resourceAuth.getCredentials());
+                Authentication authenticated = this.authenticationManager.authenticate(userToken);
+                if (authenticated == null || !authenticated.isAuthenticated()) {
+                    throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_GRANT);
+                }
+                return authenticated;
+            });
 
             // Determine scopes: use client-registered scopes intersected with user's authorities (SCOPE_)
-            Set<String> authorizedScopes = new HashSet<>(registeredClient.getScopes());
-
-            // Narrow by user's SCOPE_* authorities if present
-            Set<String> userScopes = userAuth.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .filter(a -> a.startsWith("SCOPE_"))
-                    .map(a -> a.substring("SCOPE_".length()))
-                    .collect(Collectors.toSet());
-
-            // intersect registered client scopes and user scopes (if userScopes not empty)
-            if (!userScopes.isEmpty()) {
-                authorizedScopes.retainAll(userScopes);
-            }
+            Set<String> authorizedScopes = phase(SCOPE_RESOLUTION, clientId, () -> {
+                ScopeSet clientScopes = this.registeredClientRepository instanceof CustomRegisteredClientRepository clients
+                        ? clients.scopes(registeredClient)
+                        : ScopeSet.of(registeredClient.getScopes());
+                ScopeSet userScopes = ScopeSet.forPrincipal(userAuth);
+
+                // intersect registered client scopes and user scopes (if userScopes not empty) — a bitwise AND
+                return (userScopes.isEmpty() ? clientScopes : clientScopes.intersect(userScopes)).asSet();
+            });
+
+            // Let tokenGenerator produce proper token (JWT etc.) — includes jwtCustomizer and signing
+            IssuedTokens tokens = phase(TOKEN_GENERATION, clientId, () -> {
+                DefaultOAuth2TokenContext.Builder tokenContext = DefaultOAuth2TokenContext.builder()
+                        .registeredClient(registeredClient)
+                        .principal(userAuth)
+                        .authorizationServerContext(AuthorizationServerContextHolder.getContext())
+                        .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                        .authorizedScopes(authorizedScopes);
+
+                OAuth2Token generated = this.tokenGenerator.generate(tokenContext.tokenType(OAuth2TokenType.ACCESS_TOKEN).build());
+                if (generated == null) {
+                    throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR, "token_generation_failed", null));
+                }
 
-            // Build token context for access token generation
-            Instant issuedAt = Instant.now();
-            // Let tokenGenerator produce proper token (JWT etc.)
-            DefaultOAuth2TokenContext.Builder tokenContextBuilder = DefaultOAuth2TokenContext.builder()
-                    .registeredClient(registeredClient)
-                    .principal(userAuth)
-                    .authorizationServerContext(AuthorizationServerContextHolder.getContext())
-                    .tokenType(OAuth2TokenType.ACCESS_TOKEN)
-                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
-                    .authorizedScopes(authorizedScopes);
-
-            OAuth2TokenContext tokenContext = tokenContextBuilder.build();
-
-            OAuth2Token generated = this.tokenGenerator.generate(tokenContext);
-            if (generated == null) {
-                throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR, "token_generation_failed", null));
-            }
+                OAuth2AccessToken accessToken;
+                if (generated instanceof OAuth2AccessToken) {
+                    accessToken = (OAuth2AccessToken) generated;
+                } else {
+                    // wrap generic token as access token if necessary
+                    accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                            generated.getTokenValue(), generated.getIssuedAt(), generated.getExpiresAt(), authorizedScopes);
+                }
 
-            OAuth2AccessToken accessToken;
-            if (generated instanceof OAuth2AccessToken) {
-                accessToken = (OAuth2AccessToken) generated;
-            } else {
-                // wrap generic token as access token if necessary
-                accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
-                        generated.getTokenValue(), generated.getIssuedAt(), generated.getExpiresAt(), authorizedScopes);
-            }
+                // refresh token only for clients allowed to use it; it is an opaque random value, no signing
+                OAuth2RefreshToken refreshToken = null;
+                if (registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN)) {
+                    OAuth2Token generatedRefresh = this.tokenGenerator.generate(tokenContext.tokenType(OAuth2TokenType.REFRESH_TOKEN).build());
+                    if (generatedRefresh instanceof OAuth2RefreshToken) {
+                        refreshToken = (OAuth2RefreshToken) generatedRefresh;
+                    }
+                }
+                // claims go into the authorization so introspection and revocation can see them (jti, sub, ...)
+                Map<String, Object> claims = generated instanceof ClaimAccessor claimAccessor ? claimAccessor.getClaims() : null;
+                return new IssuedTokens(accessToken, claims, refreshToken);
+            });
 
             // Build authorization and persist
-            OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(registeredClient)
-                    .principalName(userAuth.getName())
-                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
-                    .token(accessToken, metadata -> {
-                    })
-                    .build();
+            phase(AUTHORIZATION_SAVE, clientId, () -> {
+                OAuth2Authorization.Builder authorization = OAuth2Authorization.withRegisteredClient(registeredClient)
+                        .principalName(userAuth.getName())
+                        .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                        .authorizedScopes(authorizedScopes)
+                        .token(tokens.accessToken(), metadata -> {
+                            if (tokens.claims() != null) {
+                                metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, tokens.claims());
+                            }
+                        });
+                if (tokens.refreshToken() != null) {
+                    // name + authorities only; the refresh grant reloads the user and never sees the password hash
+                    authorization.refreshToken(tokens.refreshToken())
+                            .attribute(Principal.class.getName(), UsernamePasswordAuthenticationToken.authenticated(
+                                    userAuth.getName(), null, userAuth.getAuthorities()));
+                }
 
-            this.authorizationService.save(authorization);
+                OAuth2Authorization saved = authorization.build();
+                this.authorizationService.save(saved);
+                return saved;
+            });
 
-            // Return OAuth2AccessTokenAuthenticationToken (no refresh token)
-            return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
+            return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, tokens.accessToken(),
+                    tokens.refreshToken());
+        }
+
+        private <T> T phase(String phase, String clientId, Supplier<T> step) {
+            long start = System.nanoTime();
+            String outcome = "failure";
+            try {
+                T result = step.get();
+                outcome = "success";
+                return result;
+            } finally {
+                this.phaseTimer.withTags("phase", phase, "client_id", clientId, "outcome", outcome)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
         }
 
         @Override
         public boolean supports(Class<?> authentication) {
             return PasswordGrantAuthenticationToken.class.isAssignableFrom(authentication);
         }
+
+        private record IssuedTokens(OAuth2AccessToken accessToken, Map<String, Object> claims,
+                                    OAuth2RefreshToken refreshToken) {
+        }
     }
 }
@@ -0,0 +1,427 @@
+package com.example.authserver.config;
+
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationProvider;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationToken;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Batch token endpoint: many client-credentials / password-grant requests in one {@code POST}.
+ * <p>
+ * The body is {@code {"requests": [{"grant_type": ..., "client_id": ..., "client_secret": ..., "scope": ...,
+ * "username": ..., "password": ...}, ...]}} and the answer lists one token response or one OAuth2 error
+ * per entry, in the same order. The caller authenticates as a registered client with HTTP Basic
+ * ({@code client_secret_basic}), and every entry authenticates its own client ({@code client_secret_post}
+ * rules) on top of that.
+ * <p>
+ * A batch is held to the same limits as single token requests: the caller and every entry's client are
+ * charged against the {@link ClientRateLimitFilter} budget once their secret is verified (an entry over its
+ * client's limit gets {@code temporarily_unavailable}), failed authentications count against the source
+ * address, and the batch takes as many {@link TokenEndpointAdmissionFilter} slots
+ * as it runs entries at once, or is turned away with {@code 503}. Entries are processed in parallel on one
+ * worker per core, so signing is spread across cores, and the resulting authorizations are saved together
+ * once every entry is done.
+ */
+public class BatchTokenEndpointFilter extends OncePerRequestFilter {
+
+    // AuthorizationServerSettings key holding the endpoint path
+    public static final String ENDPOINT = "settings.authorization-server.batch-token-endpoint";
+
+    private static final Log logger = LogFactory.getLog(BatchTokenEndpointFilter.class);
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .build();
+
+    private final RequestMatcher endpointMatcher;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final OAuth2AuthorizationService authorizationService;
+    private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
+    private final AuthenticationManager userAuthenticationManager;
+    private final MeterRegistry meterRegistry;
+    private final ClientRateLimitFilter rateLimit;
+    private final TokenEndpointAdmissionFilter admission;
+    private final int maxEntries;
+    private final int parallelism;
+    private final ExecutorService workers;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+
+    public BatchTokenEndpointFilter(String endpoint, RegisteredClientRepository registeredClientRepository,
+                                    PasswordEncoder passwordEncoder, OAuth2AuthorizationService authorizationService,
+                                    OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator,
+                                    AuthenticationManager userAuthenticationManager, ClientRateLimitFilter rateLimit,
+                                    TokenEndpointAdmissionFilter admission, int maxEntries,
+                                    MeterRegistry meterRegistry) {
+        Assert.notNull(rateLimit, "rateLimit cannot be null");
+        Assert.hasText(endpoint, "endpoint cannot be empty");
+        Assert.isTrue(maxEntries > 0, "maxEntries must be greater than 0");
+        this.endpointMatcher = PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, endpoint);
+        this.registeredClientRepository = registeredClientRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.authorizationService = authorizationService;
+        this.tokenGenerator = tokenGenerator;
+        this.userAuthenticationManager = userAuthenticationManager;
+        this.meterRegistry = meterRegistry;
+        // admission is null when admission control is turned off
+        this.rateLimit = rateLimit;
+        this.admission = admission;
+        this.maxEntries = maxEntries;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "token-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchTimer = Timer.builder("auth.token_batch")
+                .description("Batch token requests")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("auth.token_batch.size")
+                .description("Entries per batch token request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !this.endpointMatcher.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String source = request.getRemoteAddr();
+        long wait = this.rateLimit.sourceWaitTime(source);
+        if (wait > 0) {
+            ClientRateLimitFilter.reject(response, wait);
+            return;
+        }
+        String[] credentials = basicCredentials(request);
+        RegisteredClient caller = credentials != null
+                ? this.registeredClientRepository.findByClientId(credentials[0]) : null;
+        if (caller == null) {
+            this.rateLimit.recordFailure(source);
+            writeInvalidCaller(response);
+            return;
+        }
+        // only looks; the caller is charged once its secret is verified
+        wait = this.rateLimit.waitTime(caller);
+        if (wait > 0) {
+            ClientRateLimitFilter.reject(response, wait);
+            return;
+        }
+
+        BatchRequest batch;
+        try {
+            batch = objectMapper.readValue(request.getInputStream(), BatchRequest.class);
+        } catch (JacksonException ex) {
+            writeError(response, "Request body is not a valid batch token request");
+            return;
+        }
+        if (batch == null || batch.requests() == null || batch.requests().isEmpty()) {
+            writeError(response, "requests cannot be empty");
+            return;
+        }
+        if (batch.requests().size() > this.maxEntries) {
+            writeError(response, "At most " + this.maxEntries + " requests per batch");
+            return;
+        }
+
+        // one slot per entry that can run at the same time
+        int slots = this.admission != null
+                ? this.admission.admit(Math.min(batch.requests().size(), this.parallelism)) : 0;
+        if (this.admission != null && slots == 0) {
+            this.admission.reject(response);
+            return;
+        }
+        List<Map<String, Object>> responses;
+        try {
+            if (!secretMatches(caller, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, credentials[1])) {
+                this.rateLimit.recordFailure(source);
+                writeInvalidCaller(response);
+                return;
+            }
+            wait = this.rateLimit.tryAcquire(caller);
+            if (wait > 0) {
+                ClientRateLimitFilter.reject(response, wait);
+                return;
+            }
+            long start = System.nanoTime();
+            this.batchSize.record(batch.requests().size());
+            responses = issue(batch.requests(), source);
+            this.batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } finally {
+            if (slots > 0) {
+                this.admission.release(slots);
+            }
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("responses", responses));
+    }
+
+    private List<Map<String, Object>> issue(List<BatchEntry> entries, String source) {
+        // saves are held back and written together once every entry has its token
+        CollectingAuthorizationService collector = new CollectingAuthorizationService(this.authorizationService);
+        PasswordGrantAuthenticationProvider passwordGrant = new PasswordGrantAuthenticationProvider(
+                this.registeredClientRepository, collector, this.tokenGenerator, this.userAuthenticationManager,
+                this.meterRegistry);
+        OAuth2ClientCredentialsAuthenticationProvider clientCredentialsGrant =
+                new OAuth2ClientCredentialsAuthenticationProvider(collector, this.tokenGenerator);
+
+        // the worker threads need the issuer the context filter resolved for this request
+        AuthorizationServerContext context = AuthorizationServerContextHolder.getContext();
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(entries.size());
+        for (BatchEntry entry : entries) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                AuthorizationServerContextHolder.setContext(context);
+                try {
+                    return issue(entry, source, passwordGrant, clientCredentialsGrant);
+                } finally {
+                    AuthorizationServerContextHolder.resetContext();
+                }
+            }, this.workers));
+        }
+        List<Map<String, Object>> responses = futures.stream().map(CompletableFuture::join).toList();
+
+        // one log batch or one bulk put for the whole request, where the store supports it
+        BulkOAuth2AuthorizationService.saveAll(this.authorizationService, collector.saved);
+        return responses;
+    }
+
+    private Map<String, Object> issue(BatchEntry entry, String source, PasswordGrantAuthenticationProvider passwordGrant,
+                                      OAuth2ClientCredentialsAuthenticationProvider clientCredentialsGrant) {
+        try {
+            RegisteredClient client = StringUtils.hasText(entry.clientId())
+                    ? this.registeredClientRepository.findByClientId(entry.clientId()) : null;
+            // turned away before BCrypt like ClientRateLimitFilter does, charged only once authenticated
+            if (this.rateLimit.sourceWaitTime(source) > 0 || (client != null && this.rateLimit.waitTime(client) > 0)) {
+                return rateLimited();
+            }
+            OAuth2ClientAuthenticationToken clientPrincipal = authenticateClient(entry, client, source);
+            if (this.rateLimit.tryAcquire(client) > 0) {
+                return rateLimited();
+            }
+            OAuth2AccessTokenAuthenticationToken issued;
+            if (AuthorizationGrantType.CLIENT_CREDENTIALS.getValue().equals(entry.grantType())) {
+                issued = (OAuth2AccessTokenAuthenticationToken) clientCredentialsGrant.authenticate(
+                        new OAuth2ClientCredentialsAuthenticationToken(clientPrincipal, scopes(entry.scope()), Map.of()));
+            } else if ("password".equals(entry.grantType())) {
+                if (!StringUtils.hasText(entry.username()) || !StringUtils.hasText(entry.password())) {
+                    throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_REQUEST);
+                }
+                issued = (OAuth2AccessTokenAuthenticationToken) passwordGrant.authenticate(
+                        new PasswordGrantAuthenticationToken(clientPrincipal, entry.username(), entry.password()));
+            } else {
+                throw new OAuth2AuthenticationException(OAuth2ErrorCodes.UNSUPPORTED_GRANT_TYPE);
+            }
+            return tokenResponse(issued);
+        } catch (OAuth2AuthenticationException ex) {
+            return errorResponse(ex.getError());
+        } catch (AuthenticationException ex) {
+            // bad username / password from the user AuthenticationManager
+            return errorResponse(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT));
+        } catch (RuntimeException ex) {
+            logger.error("Batch token entry for client " + entry.clientId() + " failed", ex);
+            return errorResponse(new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR));
+        }
+    }
+
+    // the same checks ClientSecretAuthenticationProvider makes for client_secret_post
+    private OAuth2ClientAuthenticationToken authenticateClient(BatchEntry entry, RegisteredClient client,
+                                                               String source) {
+        if (client == null || !secretMatches(client, ClientAuthenticationMethod.CLIENT_SECRET_POST, entry.clientSecret())) {
+            this.rateLimit.recordFailure(source);
+            throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
+        }
+        return new OAuth2ClientAuthenticationToken(client, ClientAuthenticationMethod.CLIENT_SECRET_POST, null);
+    }
+
+    private boolean secretMatches(RegisteredClient client, ClientAuthenticationMethod method, String secret) {
+        return secret != null
+                && client.getClientAuthenticationMethods().contains(method)
+                && client.getClientSecret() != null
+                && this.passwordEncoder.matches(secret, client.getClientSecret())
+                && (client.getClientSecretExpiresAt() == null || !Instant.now().isAfter(client.getClientSecretExpiresAt()));
+    }
+
+    // {client id, secret} from "Authorization: Basic", both URL-decoded as client_secret_basic requires
+    private static String[] basicCredentials(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        try {
+            String credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()),
+                    StandardCharsets.UTF_8);
+            int separator = credentials.indexOf(':');
+            if (separator <= 0) {
+                return null;
+            }
+            return new String[] {
+                    URLDecoder.decode(credentials.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(credentials.substring(separator + 1), StandardCharsets.UTF_8)};
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static Set<String> scopes(String scope) {
+        if (!StringUtils.hasText(scope)) {
+            return Set.of();
+        }
+        return Arrays.stream(scope.trim().split("\\s+")).collect(Collectors.toSet());
+    }
+
+    private static Map<String, Object> tokenResponse(OAuth2AccessTokenAuthenticationToken issued) {
+        OAuth2AccessToken accessToken = issued.getAccessToken();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", accessToken.getTokenValue());
+        body.put("token_type", accessToken.getTokenType().getValue());
+        if (accessToken.getIssuedAt() != null && accessToken.getExpiresAt() != null) {
+            body.put("expires_in", accessToken.getExpiresAt().getEpochSecond() - accessToken.getIssuedAt().getEpochSecond());
+        }
+        if (!accessToken.getScopes().isEmpty()) {
+            body.put("scope", String.join(" ", accessToken.getScopes()));
+        }
+        if (issued.getRefreshToken() != null) {
+            body.put("refresh_token", issued.getRefreshToken().getTokenValue());
+        }
+        return body;
+    }
+
+    private static Map<String, Object> rateLimited() {
+        return errorResponse(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+                "Token request rate limit exceeded for this client", null));
+    }
+
+    private static Map<String, Object> errorResponse(OAuth2Error error) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", error.getErrorCode());
+        if (error.getDescription() != null) {
+            body.put("error_description", error.getDescription());
+        }
+        return body;
+    }
+
+    private static void writeInvalidCaller(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT,
+                "The batch caller must authenticate as a client with HTTP Basic", null)));
+    }
+
+    private static void writeError(HttpServletResponse response, String description) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                errorResponse(new OAuth2Error(OAuth2ErrorCodes.INVALID_REQUEST, description, null)));
+    }
+
+    record BatchRequest(List<BatchEntry> requests) {
+    }
+
+    record BatchEntry(String grantType, String clientId, String clientSecret, String scope,
+                      String username, String password) {
+    }
+
+    /**
+     * Reads go to the real store, saves are only collected.
+     */
+    private static final class CollectingAuthorizationService implements OAuth2AuthorizationService {
+
+        private final OAuth2AuthorizationService delegate;
+        private final Queue<OAuth2Authorization> saved = new ConcurrentLinkedQueue<>();
+
+        private CollectingAuthorizationService(OAuth2AuthorizationService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void save(OAuth2Authorization authorization) {
+            this.saved.add(authorization);
+        }
+
+        @Override
+        public void remove(OAuth2Authorization authorization) {
+            this.delegate.remove(authorization);
+        }
+
+        @Override
+        public OAuth2Authorization findById(String id) {
+            return this.delegate.findById(id);
+        }
+
+        @Override
+        public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+            return this.delegate.findByToken(token, tokenType);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.authserver.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory authorization store with a hard size cap and token-driven expiry.
+ * <p>
+ * Entries live until the latest of their access / refresh token {@code expiresAt} (or the default TTL
+ * when no token carries an expiry) and are evicted by Caffeine's W-TinyLFU policy once the cap is hit.
+ * Lookups by id and by token value are single hash lookups on concurrent maps.
+ */
+public class BoundedOAuth2AuthorizationService implements BulkOAuth2AuthorizationService {
+
+    // authorization id -> authorization
+    private final Cache<String, OAuth2Authorization> authorizations;
+
+    // token value (access / refresh / code / state) -> authorization id
+    private final Map<String, String> tokenIndex = new ConcurrentHashMap<>();
+
+    public BoundedOAuth2AuthorizationService(long maximumSize, Duration defaultTimeToLive) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        Assert.notNull(defaultTimeToLive, "defaultTimeToLive cannot be null");
+        this.authorizations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(defaultTimeToLive))
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        // index first so a concurrent findByToken never sees the entry without its token
+        for (String tokenValue : tokenValues(authorization)) {
+            this.tokenIndex.put(tokenValue, authorization.getId());
+        }
+        this.authorizations.put(authorization.getId(), authorization);
+    }
+
+    @Override
+    public void saveAll(Collection<OAuth2Authorization> authorizations) {
+        Assert.notNull(authorizations, "authorizations cannot be null");
+        Map<String, OAuth2Authorization> byId = new HashMap<>();
+        for (OAuth2Authorization authorization : authorizations) {
+            Assert.notNull(authorization, "authorization cannot be null");
+            for (String tokenValue : tokenValues(authorization)) {
+                this.tokenIndex.put(tokenValue, authorization.getId());
+            }
+            byId.put(authorization.getId(), authorization);
+        }
+        this.authorizations.putAll(byId);
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        this.authorizations.invalidate(authorization.getId());
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        return this.authorizations.getIfPresent(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String id = this.tokenIndex.get(token);
+        if (id == null) {
+            return null;
+        }
+        OAuth2Authorization authorization = this.authorizations.getIfPresent(id);
+        return authorization != null && hasToken(authorization, token, tokenType) ? authorization : null;
+    }
+
+    public long estimatedSize() {
+        return this.authorizations.estimatedSize();
+    }
+
+    // runs pending evictions / expirations now instead of piggybacking on the next write
+    public void cleanUp() {
+        this.authorizations.cleanUp();
+    }
+
+    private void onRemoval(String id, OAuth2Authorization removed, RemovalCause cause) {
+        if (removed == null) {
+            return;
+        }
+        // a replaced entry may share token values with its successor; keep those indexed
+        OAuth2Authorization current = cause == RemovalCause.REPLACED ? this.authorizations.getIfPresent(id) : null;
+        for (String tokenValue : tokenValues(removed)) {
+            if (current == null || !hasToken(current, tokenValue, null)) {
+                this.tokenIndex.remove(tokenValue, id);
+            }
+        }
+    }
+
+    static List<String> tokenValues(OAuth2Authorization authorization) {
+        List<String> values = new ArrayList<>(4);
+        addTokenValue(values, authorization.getAccessToken());
+        addTokenValue(values, authorization.getRefreshToken());
+        addTokenValue(values, authorization.getToken(OAuth2AuthorizationCode.class));
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        if (state != null) {
+            values.add(state);
+        }
+        return values;
+    }
+
+    private static void addTokenValue(List<String> values, OAuth2Authorization.Token<?> token) {
+        if (token != null) {
+            values.add(token.getToken().getTokenValue());
+        }
+    }
+
+    static boolean hasToken(OAuth2Authorization authorization, String token, OAuth2TokenType tokenType) {
+        if (tokenType == null) {
+            return authorization.getToken(token) != null
+                    || token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        }
+        if (OAuth2ParameterNames.STATE.equals(tokenType.getValue())) {
+            return token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+        }
+        OAuth2Authorization.Token<?> match = authorization.getToken(token);
+        if (match == null) {
+            return false;
+        }
+        if (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+            return match.getToken() instanceof OAuth2AccessToken;
+        }
+        if (OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+            return match.getToken() instanceof OAuth2RefreshToken;
+        }
+        if (OAuth2ParameterNames.CODE.equals(tokenType.getValue())) {
+            return match.getToken() instanceof OAuth2AuthorizationCode;
+        }
+        return true;
+    }
+
+    /**
+     * Expires an authorization together with the longest-lived token it holds.
+     */
+    private static final class TokenExpiry implements Expiry<String, OAuth2Authorization> {
+
+        private final Duration defaultTimeToLive;
+
+        private TokenExpiry(Duration defaultTimeToLive) {
+            this.defaultTimeToLive = defaultTimeToLive;
+        }
+
+        @Override
+        public long expireAfterCreate(String id, OAuth2Authorization authorization, long currentTime) {
+            Instant expiresAt = latest(expiresAt(authorization.getAccessToken()),
+                    expiresAt(authorization.getRefreshToken()));
+            if (expiresAt == null) {
+                return this.defaultTimeToLive.toNanos();
+            }
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        }
+
+        private static Instant expiresAt(OAuth2Authorization.Token<? extends OAuth2Token> token) {
+            return token != null ? token.getToken().getExpiresAt() : null;
+        }
+
+        private static Instant latest(Instant first, Instant second) {
+            if (first == null) {
+                return second;
+            }
+            return second != null && second.isAfter(first) ? second : first;
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, OAuth2Authorization authorization, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(id, authorization, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, OAuth2Authorization authorization, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
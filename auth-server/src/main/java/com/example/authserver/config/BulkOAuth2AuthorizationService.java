@@ -0,0 +1,24 @@
+package com.example.authserver.config;
+
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+import java.util.Collection;
+
+/**
+ * Authorization store that can save many authorizations in one write, such as one log batch or one bulk
+ * put, instead of one round trip per authorization. Used by the batch token endpoint.
+ */
+public interface BulkOAuth2AuthorizationService extends OAuth2AuthorizationService {
+
+    void saveAll(Collection<OAuth2Authorization> authorizations);
+
+    // saves through saveAll when the store supports it, one by one otherwise
+    static void saveAll(OAuth2AuthorizationService store, Collection<OAuth2Authorization> authorizations) {
+        if (store instanceof BulkOAuth2AuthorizationService bulkStore) {
+            bulkStore.saveAll(authorizations);
+        } else {
+            authorizations.forEach(store::save);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.authserver.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived cache of successful password checks in front of a slow encoder (BCrypt).
+ * <p>
+ * The cache key is an HMAC (per-process random key) over the stored hash and the presented secret, so
+ * neither the raw secret nor anything brute-forceable offline is kept in memory. Because the stored hash
+ * is part of the key, changing a user's or client's secret invalidates its entries implicitly. Only
+ * successful matches are cached — wrong secrets always pay the full BCrypt cost.
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordEncoder delegate;
+    private final Cache<String, Boolean> verified;
+    private final SecretKeySpec hmacKey;
+    private final Mac prototype;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingPasswordEncoder(PasswordEncoder delegate, Duration timeToLive, long maximumSize) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.prototype = newMac();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return this.delegate.matches(rawPassword, encodedPassword);
+        }
+        String key = cacheKey(rawPassword, encodedPassword);
+        if (this.verified.getIfPresent(key) != null) {
+            this.hits.increment();
+            return true;
+        }
+        this.misses.increment();
+        boolean matches = this.delegate.matches(rawPassword, encodedPassword);
+        if (matches) {
+            this.verified.put(key, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public long hitCount() {
+        return this.hits.sum();
+    }
+
+    public long missCount() {
+        return this.misses.sum();
+    }
+
+    public long size() {
+        return this.verified.estimatedSize();
+    }
+
+    public void invalidateAll() {
+        this.verified.invalidateAll();
+    }
+
+    private String cacheKey(CharSequence rawPassword, String encodedPassword) {
+        Mac mac = mac();
+        mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    // a copy of the keyed prototype per call; a ThreadLocal would build a new Mac for every virtual thread anyway
+    private Mac mac() {
+        try {
+            return (Mac) this.prototype.clone();
+        } catch (CloneNotSupportedException ex) {
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(this.hmacKey);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.authserver.config;
+
+import com.example.common.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client rate limit for {@code POST /oauth2/token}, plus a per-source-address limit on failed client
+ * authentications.
+ * <p>
+ * A client's budget is only charged once its secret has been verified ({@link #tryAcquire}, called from the
+ * client authentication success handler and by {@link BatchTokenEndpointFilter}), so knowing a client id is
+ * not enough to lock that client out. The filter itself runs before authentication and only looks: a client
+ * that has already used up its budget, or a source address over its failed-attempt budget, is turned away
+ * without costing a BCrypt check or a signature. Failed attempts are charged to the source address with
+ * {@link #recordFailure}.
+ * <p>
+ * The client limit comes from the client's {@link #REQUESTS_PER_SECOND} / {@link #BURST} settings, falling
+ * back to the defaults given here ({@code defaultRequestsPerSecond <= 0} means unlimited, as does
+ * {@code failuresPerSecond <= 0} for the source limit).
+ */
+public class ClientRateLimitFilter extends OncePerRequestFilter {
+
+    public static final String REQUESTS_PER_SECOND = "settings.client.rate-limit.requests-per-second";
+    public static final String BURST = "settings.client.rate-limit.burst";
+
+    private static final RequestMatcher TOKEN_REQUEST =
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/oauth2/token");
+
+    private final RegisteredClientRepository registeredClientRepository;
+    private final RateLimiter rateLimiter;
+    private final double defaultRequestsPerSecond;
+    private final int defaultBurst;
+    // failed client authentications per source address, a bucket of its own
+    private final RateLimiter failureLimiter;
+    private final double failuresPerSecond;
+    private final int failureBurst;
+    private final MeterProvider<Counter> throttled;
+    private final Counter sourceThrottled;
+
+    public ClientRateLimitFilter(RegisteredClientRepository registeredClientRepository,
+                                 double defaultRequestsPerSecond, int defaultBurst,
+                                 double failuresPerSecond, int failureBurst, MeterRegistry meterRegistry) {
+        this.registeredClientRepository = registeredClientRepository;
+        this.rateLimiter = new RateLimiter(100_000, Duration.ofMinutes(10));
+        this.defaultRequestsPerSecond = defaultRequestsPerSecond;
+        this.defaultBurst = defaultBurst;
+        this.failureLimiter = new RateLimiter(100_000, Duration.ofMinutes(10));
+        this.failuresPerSecond = failuresPerSecond;
+        this.failureBurst = failureBurst;
+        this.throttled = Counter.builder("auth.rate_limit.throttled")
+                .description("Token requests rejected by the per-client rate limit")
+                .withRegistry(meterRegistry);
+        this.sourceThrottled = Counter.builder("auth.rate_limit.source_throttled")
+                .description("Token requests rejected because their source address failed client authentication too often")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !TOKEN_REQUEST.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long wait = sourceWaitTime(request.getRemoteAddr());
+        if (wait > 0) {
+            this.sourceThrottled.increment();
+            reject(response, wait);
+            return;
+        }
+        String clientId = clientId(request);
+        RegisteredClient client = clientId != null ? this.registeredClientRepository.findByClientId(clientId) : null;
+        if (client != null) {
+            wait = waitTime(client);
+            if (wait > 0) {
+                this.throttled.withTags("client_id", client.getClientId()).increment();
+                reject(response, wait);
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Takes one request from {@code client}'s budget; 0 when admitted, otherwise the nanoseconds until the
+     * client may send again. Only call it once the client is authenticated. Also used by
+     * {@link BatchTokenEndpointFilter}, so a batch entry costs the same budget as a single token request.
+     */
+    long tryAcquire(RegisteredClient client) {
+        double rate = requestsPerSecond(client);
+        if (rate <= 0) {
+            return 0;
+        }
+        long wait = this.rateLimiter.tryAcquire(client.getClientId(), rate, burst(client));
+        if (wait > 0) {
+            this.throttled.withTags("client_id", client.getClientId()).increment();
+        }
+        return wait;
+    }
+
+    // how long the client must wait before its budget admits a request again, without taking from it
+    long waitTime(RegisteredClient client) {
+        double rate = requestsPerSecond(client);
+        return rate > 0 ? this.rateLimiter.waitTime(client.getClientId(), rate, burst(client)) : 0;
+    }
+
+    // charges a failed client authentication to the address it came from
+    public void recordFailure(String sourceAddress) {
+        if (this.failuresPerSecond > 0) {
+            this.failureLimiter.tryAcquire(sourceAddress, this.failuresPerSecond, this.failureBurst);
+        }
+    }
+
+    // how long a source address must wait after too many failed client authentications, 0 if it may send now
+    long sourceWaitTime(String sourceAddress) {
+        return this.failuresPerSecond > 0
+                ? this.failureLimiter.waitTime(sourceAddress, this.failuresPerSecond, this.failureBurst)
+                : 0;
+    }
+
+    /**
+     * Client authentication success handler for the token endpoint: charges the now authenticated client and
+     * throws {@link RateLimitExceededException} when it is over its budget, otherwise stores the
+     * authentication like the default handler.
+     */
+    public AuthenticationSuccessHandler authenticationSuccessHandler() {
+        return (request, response, authentication) -> {
+            if (TOKEN_REQUEST.matches(request)
+                    && authentication instanceof OAuth2ClientAuthenticationToken clientAuthentication
+                    && clientAuthentication.getRegisteredClient() != null) {
+                long wait = tryAcquire(clientAuthentication.getRegisteredClient());
+                if (wait > 0) {
+                    throw new RateLimitExceededException(wait);
+                }
+            }
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+        };
+    }
+
+    private double requestsPerSecond(RegisteredClient client) {
+        Number requestsPerSecond = client.getClientSettings().getSetting(REQUESTS_PER_SECOND);
+        return requestsPerSecond != null ? requestsPerSecond.doubleValue() : this.defaultRequestsPerSecond;
+    }
+
+    private int burst(RegisteredClient client) {
+        Number burst = client.getClientSettings().getSetting(BURST);
+        return burst != null ? burst.intValue() : this.defaultBurst;
+    }
+
+    // client id as client authentication will see it: HTTP Basic user, else the client_id parameter
+    static String clientId(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()),
+                        StandardCharsets.UTF_8);
+                int separator = credentials.indexOf(':');
+                return separator > 0
+                        ? URLDecoder.decode(credentials.substring(0, separator), StandardCharsets.UTF_8)
+                        : null;
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+        return request.getParameter(OAuth2ParameterNames.CLIENT_ID);
+    }
+
+    // whole seconds, rounded up, for Retry-After
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    public static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitNanos)));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setContentType("application/json");
+        response.getWriter().write("""
+                {"error":"%s","error_description":"Token request rate limit exceeded"}
+                """.formatted(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE).strip());
+    }
+
+    /**
+     * An authenticated client over its budget; the error response handler answers it with {@code 429}.
+     */
+    public static class RateLimitExceededException extends OAuth2AuthenticationException {
+
+        private final long waitNanos;
+
+        RateLimitExceededException(long waitNanos) {
+            super(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+                    "Token request rate limit exceeded for this client", null));
+            this.waitNanos = waitNanos;
+        }
+
+        public long waitNanos() {
+            return this.waitNanos;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.authserver.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.core.AuthenticationException;
@@ -9,11 +12,21 @@ import java.io.IOException;
 
 public class CustomClientAuthEntryPoint implements AuthenticationEntryPoint {
 
+    private final MeterProvider<Counter> rejections;
+
+    public CustomClientAuthEntryPoint(MeterRegistry meterRegistry) {
+        this.rejections = Counter.builder("auth.entry_point.rejections")
+                .description("Unauthenticated requests to the authorization server endpoints")
+                .withRegistry(meterRegistry);
+    }
+
     @Override
     public void commence(HttpServletRequest request,
                          HttpServletResponse response,
                          AuthenticationException authException) throws IOException {
 
+        this.rejections.withTags("exception", authException.getClass().getSimpleName()).increment();
+
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         response.setContentType("application/json");
 
@@ -1,5 +1,11 @@
 package com.example.authserver.config;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
@@ -9,77 +15,322 @@ import org.springframework.security.oauth2.server.authorization.client.Registere
 import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
 import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Registered clients indexed by registration id and by clientId.
+ * <p>
+ * Both indexes live in one immutable snapshot behind a volatile reference: reads never lock, and
+ * {@link #save} / reloads build a new snapshot and swap it in (copy-on-write). With
+ * {@code AUTH_CLIENTS_FILE} set, clients are loaded from that JSON file and reloaded when it changes;
+ * registration ids are derived from the clientId when not given, so authorizations issued before a
+ * reload keep resolving to the same client.
+ * <p>
+ * With a {@link SharedStateBackend}, {@link #save} writes the client to its {@value #CLIENTS} region
+ * instead, and every node lays the shared clients over its own (file or built-in) ones, replacing a client
+ * with the same clientId; the snapshot is rebuilt on each change event and on each file reload.
+ */
 @Service
 @Primary
-public class CustomRegisteredClientRepository implements RegisteredClientRepository {
-
-    private final Map<String, RegisteredClient> users = new HashMap<>();
-
-    public CustomRegisteredClientRepository(PasswordEncoder encoder) {
-
-        // Listeyi istediğin gibi doldur
-        users.put("ahmet",
-                RegisteredClient
-                        .withId(UUID.randomUUID().toString())
-                        .clientId("ahmet")
-                        .clientSecret(encoder.encode("12345"))
-                        .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
-                        .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
-                        .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
-                        .scopes((scopes) -> scopes.addAll(List.of("ROLE_USER", "product.read", "product.write")))
-                        .tokenSettings(TokenSettings.builder()
-                                .accessTokenTimeToLive(Duration.ofHours(1))
-                                .reuseRefreshTokens(false)
-                                .build())
-                        .clientSettings(ClientSettings.builder()
-                                .requireAuthorizationConsent(false)
-                                .build())
-                        .build()
-        );
-
-        users.put("mehmet",
-                RegisteredClient
-                        .withId(UUID.randomUUID().toString())
-                        .clientId("mehmet")
-                        .clientSecret(encoder.encode("12345"))
-                        .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
-                        .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
-                        .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
-                        .scopes((scopes) -> scopes.add("ROLE_USER"))
-                        .tokenSettings(TokenSettings.builder()
-                                .accessTokenTimeToLive(Duration.ofHours(1))
-                                .reuseRefreshTokens(false)
-                                .build())
-                        .clientSettings(ClientSettings.builder()
-                                .requireAuthorizationConsent(false)
-                                .build())
-                        .build()
-        );
+public class CustomRegisteredClientRepository implements RegisteredClientRepository, DisposableBean {
+
+    static final String CLIENTS = "clients";
+
+    private static final Log logger = LogFactory.getLog(CustomRegisteredClientRepository.class);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Path clientsFile;
+    private final ScheduledExecutorService reloader;
+    private final SharedStateBackend sharedState;
+
+    // the file's (or built-in) clients, before the shared ones are laid over them
+    private volatile List<RegisteredClient> localClients;
+    private volatile Snapshot snapshot;
+    private volatile FileTime loadedVersion;
+
+    @Autowired
+    public CustomRegisteredClientRepository(PasswordEncoder encoder,
+                                            @Value("${AUTH_CLIENTS_FILE:}") String clientsFile,
+                                            @Value("${AUTH_CLIENTS_RELOAD_INTERVAL:PT30S}") Duration reloadInterval,
+                                            ObjectProvider<SharedStateBackend> sharedState) {
+        this(encoder, clientsFile, reloadInterval, sharedState.getIfAvailable());
+    }
+
+    public CustomRegisteredClientRepository(PasswordEncoder encoder, String clientsFile, Duration reloadInterval) {
+        this(encoder, clientsFile, reloadInterval, (SharedStateBackend) null);
+    }
+
+    // sharedState null keeps clients local to this node
+    public CustomRegisteredClientRepository(PasswordEncoder encoder, String clientsFile, Duration reloadInterval,
+                                            SharedStateBackend sharedState) {
+        this.sharedState = sharedState;
+
+        if (!StringUtils.hasText(clientsFile)) {
+            this.clientsFile = null;
+            this.reloader = null;
+
+            // Listeyi istediğin gibi doldur
+            this.localClients = List.of(
+                    client(null, "ahmet", encoder.encode("12345"),
+                            List.of("ROLE_USER", "product.read", "product.write"), Duration.ofHours(1), null, null,
+                            null, null, null),
+                    client(null, "mehmet", encoder.encode("12345"),
+                            List.of("ROLE_USER"), Duration.ofHours(1), null, null, null, null, null)
+            );
+            this.snapshot = withShared(this.localClients);
+        } else {
+            this.clientsFile = Path.of(clientsFile);
+            reload();
+            this.reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "clients-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = reloadInterval.toMillis();
+            this.reloader.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+        }
+
+        if (sharedState != null) {
+            sharedState.subscribe(CLIENTS, id -> refreshShared());
+        }
     }
 
 
     @Override
     public void save(RegisteredClient registeredClient) {
-        this.users.put(registeredClient.getClientId(), registeredClient);
-
+        Assert.notNull(registeredClient, "registeredClient cannot be null");
+        if (this.sharedState != null) {
+            this.sharedState.put(CLIENTS, registeredClient.getId(), serialize(registeredClient), null);
+            // the backend's own event may arrive later; this node reads its write either way
+            refreshShared();
+            return;
+        }
+        this.writeLock.lock();
+        try {
+            this.snapshot = this.snapshot.with(registeredClient);
+        } finally {
+            this.writeLock.unlock();
+        }
     }
 
     @Override
     public RegisteredClient findById(String id) {
-        return this.users.get(id);
+        return this.snapshot.byId.get(id);
     }
 
     @Override
     public RegisteredClient findByClientId(String clientId) {
+        return this.snapshot.byClientId.get(clientId);
+    }
+
+    // the client's scopes as computed when it was loaded; recomputed for an instance that is no longer current
+    public ScopeSet scopes(RegisteredClient registeredClient) {
+        Snapshot current = this.snapshot;
+        if (current.byId.get(registeredClient.getId()) == registeredClient) {
+            return current.scopesById.get(registeredClient.getId());
+        }
+        return ScopeSet.of(registeredClient.getScopes());
+    }
+
+    public Collection<RegisteredClient> findAll() {
+        return this.snapshot.byId.values();
+    }
+
+    // Re-reads the clients file and replaces every client at once (the file is the source of truth)
+    public void reload() {
+        try {
+            FileTime version = Files.getLastModifiedTime(this.clientsFile);
+            ClientDefinition[] definitions =
+                    this.objectMapper.readValue(this.clientsFile.toFile(), ClientDefinition[].class);
+            List<RegisteredClient> clients = new ArrayList<>(definitions.length);
+            for (ClientDefinition definition : definitions) {
+                clients.add(client(definition.id(), definition.clientId(), definition.clientSecret(),
+                        definition.scopes(), definition.accessTokenTimeToLive(),
+                        definition.refreshTokenTimeToLive(), definition.grantTypes(),
+                        definition.rateLimit(), definition.rateLimitBurst(), definition.tokenProfile()));
+            }
+            this.writeLock.lock();
+            try {
+                this.localClients = List.copyOf(clients);
+                this.snapshot = withShared(clients);
+                this.loadedVersion = version;
+            } finally {
+                this.writeLock.unlock();
+            }
+            logger.info("Loaded " + clients.size() + " clients from " + this.clientsFile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read clients file " + this.clientsFile, ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.reloader != null) {
+            this.reloader.shutdownNow();
+        }
+    }
+
+    // rebuilds the snapshot from the local clients and the backend's current clients
+    private void refreshShared() {
+        this.writeLock.lock();
+        try {
+            this.snapshot = withShared(this.localClients);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private Snapshot withShared(List<RegisteredClient> local) {
+        if (this.sharedState == null) {
+            return new Snapshot(local);
+        }
+        Map<String, RegisteredClient> byClientId = new LinkedHashMap<>();
+        local.forEach(client -> byClientId.put(client.getClientId(), client));
+        for (Map.Entry<String, byte[]> entry : this.sharedState.getAll(CLIENTS).entrySet()) {
+            RegisteredClient client = deserialize(entry.getKey(), entry.getValue());
+            byClientId.put(client.getClientId(), client);
+        }
+        return new Snapshot(byClientId.values());
+    }
+
+    private static byte[] serialize(RegisteredClient client) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(client);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not serialize client " + client.getClientId(), ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static RegisteredClient deserialize(String id, byte[] payload) {
+        try (ObjectInputStream in = SerializationFilter.objectInputStream(payload)) {
+            return (RegisteredClient) in.readObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unreadable shared client " + id, ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("Unreadable shared client " + id, ex);
+        }
+    }
+
+    private void reloadIfChanged() {
+        try {
+            if (!Files.getLastModifiedTime(this.clientsFile).equals(this.loadedVersion)) {
+                reload();
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Clients reload failed, keeping previously loaded clients", ex);
+        }
+    }
+
+    private static RegisteredClient client(String id, String clientId, String encodedSecret, Collection<String> scopes,
+                                           Duration accessTokenTimeToLive, Duration refreshTokenTimeToLive,
+                                           Collection<String> grantTypes, Double rateLimit, Integer rateLimitBurst,
+                                           String tokenProfile) {
+        Assert.hasText(clientId, "clientId cannot be empty");
+        ClientSettings.Builder clientSettings = ClientSettings.builder()
+                .requireAuthorizationConsent(false);
+        // token requests per second for this client (see ClientRateLimitFilter); unset uses AUTH_CLIENT_RATE_LIMIT
+        if (rateLimit != null) {
+            clientSettings.setting(ClientRateLimitFilter.REQUESTS_PER_SECOND, rateLimit);
+        }
+        if (rateLimitBurst != null) {
+            clientSettings.setting(ClientRateLimitFilter.BURST, rateLimitBurst);
+        }
+        // shape of the issued access tokens (see TokenProfile); unset issues standard tokens
+        if (StringUtils.hasText(tokenProfile)) {
+            clientSettings.setting(TokenProfile.SETTING, TokenProfile.parse(tokenProfile));
+        }
+        RegisteredClient.Builder builder = RegisteredClient
+                .withId(StringUtils.hasText(id) ? id : stableId(clientId))
+                .clientId(clientId)
+                .clientSecret(encodedSecret)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
+                .scopes(registered -> registered.addAll(scopes != null ? scopes : List.of()))
+                .tokenSettings(TokenSettings.builder()
+                        .accessTokenTimeToLive(accessTokenTimeToLive != null ? accessTokenTimeToLive : Duration.ofHours(1))
+                        // refresh tokens are single use (see RefreshTokenGrantAuthenticationProvider)
+                        .refreshTokenTimeToLive(refreshTokenTimeToLive != null ? refreshTokenTimeToLive : Duration.ofDays(1))
+                        .reuseRefreshTokens(false)
+                        .build())
+                .clientSettings(clientSettings.build());
+        Collection<String> grants = grantTypes != null && !grantTypes.isEmpty()
+                ? grantTypes
+                : List.of(AuthorizationGrantType.CLIENT_CREDENTIALS.getValue(), AuthorizationGrantType.REFRESH_TOKEN.getValue());
+        grants.forEach(grant -> builder.authorizationGrantType(new AuthorizationGrantType(grant)));
+        return builder.build();
+    }
+
+    private static String stableId(String clientId) {
+        return UUID.nameUUIDFromBytes(("client:" + clientId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Entry of the clients file; {@code clientSecret} is the already encoded (BCrypt) secret and
+     * {@code rateLimit} / {@code rateLimitBurst} the client's token requests per second and burst size, and
+     * {@code tokenProfile} {@code standard} (default) or {@code compact} (see {@link TokenProfile}).
+     */
+    record ClientDefinition(String id, String clientId, String clientSecret, List<String> scopes,
+                            Duration accessTokenTimeToLive, Duration refreshTokenTimeToLive, List<String> grantTypes,
+                            Double rateLimit, Integer rateLimitBurst, String tokenProfile) {
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, RegisteredClient> byId;
+        private final Map<String, RegisteredClient> byClientId;
+        private final Map<String, ScopeSet> scopesById;
 
+        private Snapshot(Collection<RegisteredClient> clients) {
+            Map<String, RegisteredClient> ids = new HashMap<>();
+            Map<String, RegisteredClient> clientIds = new HashMap<>();
+            Map<String, ScopeSet> scopes = new HashMap<>();
+            for (RegisteredClient client : clients) {
+                ids.put(client.getId(), client);
+                clientIds.put(client.getClientId(), client);
+                scopes.put(client.getId(), ScopeSet.of(client.getScopes()));
+            }
+            this.byId = Map.copyOf(ids);
+            this.byClientId = Map.copyOf(clientIds);
+            this.scopesById = Map.copyOf(scopes);
+        }
 
-        return this.users.get(clientId);
+        private Snapshot with(RegisteredClient client) {
+            Map<String, RegisteredClient> clients = new HashMap<>(this.byId);
+            RegisteredClient previous = this.byClientId.get(client.getClientId());
+            if (previous != null) {
+                clients.remove(previous.getId());
+            }
+            clients.put(client.getId(), client);
+            return new Snapshot(clients.values());
+        }
     }
 }
@@ -1,42 +1,168 @@
 package com.example.authserver.config;
 
-import org.springframework.security.core.userdetails.User;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Users are prebuilt once into immutable {@link ImmutableUser}s and published as a read-only map snapshot,
+ * so {@link #loadUserByUsername} is a single map lookup that neither allocates nor locks.
+ * <p>
+ * With {@code AUTH_USERS_FILE} set, users are bulk-loaded from that file (one
+ * {@code username:passwordHash:AUTHORITY1,AUTHORITY2} line per user, {@code #} for comments) and the
+ * whole snapshot is swapped atomically whenever the file changes. Otherwise the built-in demo users are used.
+ */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, DisposableBean {
 
-    private final Map<String, User.UserBuilder> users = new HashMap<>();
+    private static final Log logger = LogFactory.getLog(CustomUserDetailsService.class);
 
-    public CustomUserDetailsService(PasswordEncoder encoder) {
+    private final Path usersFile;
+    private final ScheduledExecutorService reloader;
 
-        // Listeyi istediğin gibi doldur
-        users.put("ahmet",
-                User.withUsername("ahmet")
-                        .password(encoder.encode("12345"))
-                        .authorities("ROLE_USER", "SCOPE_product.read", "SCOPE_product.write")
-        );
+    private volatile Map<String, UserDetails> users;
+    private volatile FileTime loadedVersion;
 
-        users.put("mehmet",
-                User.withUsername("mehmet")
-                        .password(encoder.encode("12345"))
-                        .authorities("ROLE_USER")
-        );
+    public CustomUserDetailsService(PasswordEncoder encoder,
+                                    @Value("${AUTH_USERS_FILE:}") String usersFile,
+                                    @Value("${AUTH_USERS_RELOAD_INTERVAL:PT30S}") Duration reloadInterval) {
+
+        if (!StringUtils.hasText(usersFile)) {
+            this.usersFile = null;
+            this.reloader = null;
+
+            // Listeyi istediğin gibi doldur
+            Map<String, UserDetails> builtIn = new HashMap<>();
+            AuthorityInterner interner = new AuthorityInterner();
+            builtIn.put("ahmet", new ImmutableUser("ahmet", encoder.encode("12345"),
+                    interner.intern(List.of("ROLE_USER", "SCOPE_product.read", "SCOPE_product.write"))));
+            builtIn.put("mehmet", new ImmutableUser("mehmet", encoder.encode("12345"),
+                    interner.intern(List.of("ROLE_USER"))));
+            this.users = Collections.unmodifiableMap(builtIn);
+            return;
+        }
+
+        this.usersFile = Path.of(usersFile);
+        reload();
+        this.reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "users-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = reloadInterval.toMillis();
+        this.reloader.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserDetails user = users.get(username).build();
+        UserDetails user = this.users.get(username);
         if (user == null) {
             throw new UsernameNotFoundException("User not found: " + username);
         }
         return user;
     }
+
+    public int size() {
+        return this.users.size();
+    }
+
+    // Re-reads the users file and swaps the whole snapshot at once; readers see either the old or the new set
+    public void reload() {
+        try {
+            FileTime version = Files.getLastModifiedTime(this.usersFile);
+            this.users = load(this.usersFile);
+            this.loadedVersion = version;
+            logger.info("Loaded " + this.users.size() + " users from " + this.usersFile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read users file " + this.usersFile, ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.reloader != null) {
+            this.reloader.shutdownNow();
+        }
+    }
+
+    private void reloadIfChanged() {
+        try {
+            if (!Files.getLastModifiedTime(this.usersFile).equals(this.loadedVersion)) {
+                reload();
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Users reload failed, keeping " + this.users.size() + " previously loaded users", ex);
+        }
+    }
+
+    private static Map<String, UserDetails> load(Path file) throws IOException {
+        // interned per snapshot, so authorities no user holds any more go away with the old snapshot
+        AuthorityInterner interner = new AuthorityInterner();
+        Map<String, UserDetails> loaded = new HashMap<>(Math.max(16, (int) (Files.size(file) / 48)));
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(":", 3);
+                if (parts.length < 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+                    throw new IllegalArgumentException("Malformed user entry at " + file + ":" + lineNumber);
+                }
+                List<String> authorityNames = parts.length == 3 && !parts[2].isBlank()
+                        ? Arrays.asList(parts[2].split(","))
+                        : List.of();
+                loaded.put(parts[0], new ImmutableUser(parts[0], parts[1], interner.intern(authorityNames)));
+            }
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    // One shared, immutable authority list per distinct authority set (and one object per authority)
+    private static final class AuthorityInterner {
+
+        private final Map<List<String>, List<GrantedAuthority>> authorityLists = new HashMap<>();
+        private final Map<String, GrantedAuthority> authorities = new HashMap<>();
+
+        List<GrantedAuthority> intern(List<String> authorityNames) {
+            List<String> key = authorityNames.stream().map(String::trim).filter(a -> !a.isEmpty()).sorted().distinct().toList();
+            return this.authorityLists.computeIfAbsent(key, names -> {
+                List<GrantedAuthority> list = new ArrayList<>(names.size());
+                for (String name : names) {
+                    list.add(this.authorities.computeIfAbsent(name, SimpleGrantedAuthority::new));
+                }
+                return List.copyOf(list);
+            });
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.authserver.config;
+
+import com.example.common.Ed25519JwsSigner;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+import org.springframework.util.Assert;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link JwtEncoder} for {@code EdDSA} (Ed25519) keys, which {@code NimbusJwtEncoder} cannot sign without
+ * Tink. Picks the Ed25519 key named by the header's {@code kid} (or the only one) from the JWK source, like
+ * {@code NimbusJwtEncoder} does, and signs with {@link Ed25519JwsSigner}.
+ */
+public class EdDsaJwtEncoder implements JwtEncoder {
+
+    private static final String ENCODING_ERROR = "An error occurred while attempting to encode the Jwt: ";
+
+    private final JWKSource<SecurityContext> jwkSource;
+
+    // signer of the key used last; keys change once per rotation, tokens are signed with the same one until then
+    private volatile CachedSigner cached;
+
+    public EdDsaJwtEncoder(JWKSource<SecurityContext> jwkSource) {
+        Assert.notNull(jwkSource, "jwkSource cannot be null");
+        this.jwkSource = jwkSource;
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+        Assert.notNull(parameters, "parameters cannot be null");
+        JwsHeader headers = parameters.getJwsHeader();
+        Assert.notNull(headers, "jwsHeader cannot be null");
+        JwtClaimsSet claims = parameters.getClaims();
+
+        OctetKeyPair key = selectKey(headers);
+        JWSHeader.Builder header = new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID(key.getKeyID());
+        if (headers.getType() != null) {
+            header.type(new JOSEObjectType(headers.getType()));
+        }
+        SignedJWT jwt = new SignedJWT(header.build(), convert(claims));
+        try {
+            jwt.sign(signer(key));
+        } catch (JOSEException ex) {
+            throw new JwtEncodingException(ENCODING_ERROR + ex.getMessage(), ex);
+        }
+        return Jwt.withTokenValue(jwt.serialize())
+                .headers(values -> {
+                    values.putAll(headers.getHeaders());
+                    values.put("kid", key.getKeyID());
+                })
+                .claims(values -> values.putAll(claims.getClaims()))
+                .build();
+    }
+
+    private OctetKeyPair selectKey(JwsHeader headers) {
+        JwsAlgorithm algorithm = headers.getAlgorithm();
+        if (algorithm == null || !JWSAlgorithm.EdDSA.getName().equals(algorithm.getName())) {
+            throw new JwtEncodingException(ENCODING_ERROR + "Unsupported JWS algorithm " + algorithm);
+        }
+        JWKMatcher matcher = new JWKMatcher.Builder()
+                .keyType(KeyType.OKP)
+                .keyID(headers.getKeyId())
+                .privateOnly(true)
+                .build();
+        List<JWK> keys;
+        try {
+            keys = this.jwkSource.get(new JWKSelector(matcher), null);
+        } catch (KeySourceException ex) {
+            throw new JwtEncodingException(ENCODING_ERROR + "Failed to select a JWK signing key", ex);
+        }
+        if (keys.size() != 1) {
+            throw new JwtEncodingException(ENCODING_ERROR + (keys.isEmpty()
+                    ? "Failed to select a JWK signing key" : "Found multiple JWK signing keys for algorithm 'EdDSA'"));
+        }
+        return (OctetKeyPair) keys.get(0);
+    }
+
+    private Ed25519JwsSigner signer(OctetKeyPair key) throws JOSEException {
+        CachedSigner current = this.cached;
+        if (current == null || !current.keyId().equals(key.getKeyID())) {
+            current = new CachedSigner(key.getKeyID(), new Ed25519JwsSigner(key));
+            this.cached = current;
+        }
+        return current.signer();
+    }
+
+    // Nimbus expects dates as Date and URLs as strings
+    private static JWTClaimsSet convert(JwtClaimsSet claims) {
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
+        claims.getClaims().forEach((name, value) -> {
+            if (value instanceof Instant instant) {
+                value = Date.from(instant);
+            } else if (value instanceof URL url) {
+                value = url.toExternalForm();
+            }
+            builder.claim(name, value);
+        });
+        return builder.build();
+    }
+
+    private record CachedSigner(String keyId, Ed25519JwsSigner signer) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps one {@code <kid>.json} file (private JWK) per key in a directory.
+ * Pointing several auth-server nodes at the same (shared) directory gives them the same key set.
+ * Claims are {@code <claim>.claim} hard links to the claimed key's file content, which the file system
+ * creates atomically.
+ */
+public class FileSigningKeyStore implements SigningKeyStore {
+
+    private static final Log logger = LogFactory.getLog(FileSigningKeyStore.class);
+
+    private static final String SUFFIX = ".json";
+    private static final String CLAIM_SUFFIX = ".claim";
+
+    private final Path directory;
+
+    public FileSigningKeyStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create key directory " + directory, ex);
+        }
+    }
+
+    @Override
+    public List<JWK> load() {
+        List<JWK> keys = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    keys.add(JWK.parse(Files.readString(file, StandardCharsets.UTF_8)));
+                } catch (ParseException | IOException ex) {
+                    logger.warn("Skipping unreadable signing key " + file, ex);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not list key directory " + this.directory, ex);
+        }
+        return keys;
+    }
+
+    @Override
+    public void save(JWK key) {
+        Path target = this.directory.resolve(key.getKeyID() + SUFFIX);
+        try {
+            // write next to the target and move, so other nodes never read a half-written key
+            Files.move(writeTemp(key), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write signing key " + target, ex);
+        }
+    }
+
+    @Override
+    public JWK saveIfAbsent(String claim, JWK key) {
+        Path claimFile = this.directory.resolve(claim + CLAIM_SUFFIX);
+        try {
+            dropLapsedClaims();
+            Path temp = writeTemp(key);
+            try {
+                // a hard link is created whole or not at all, and never replaces another node's claim
+                Files.createLink(claimFile, temp);
+            } catch (FileAlreadyExistsException ex) {
+                JWK winner = JWK.parse(Files.readString(claimFile, StandardCharsets.UTF_8));
+                if (!Files.exists(this.directory.resolve(winner.getKeyID() + SUFFIX))) {
+                    save(winner);
+                }
+                return winner;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not claim signing key " + claimFile, ex);
+        } catch (ParseException ex) {
+            throw new IllegalStateException("Unreadable signing key claim " + claimFile, ex);
+        }
+        save(key);
+        return key;
+    }
+
+    @Override
+    public void delete(String keyId) {
+        try {
+            Files.deleteIfExists(this.directory.resolve(keyId + SUFFIX));
+        } catch (IOException ex) {
+            logger.warn("Could not delete retired signing key " + keyId, ex);
+        }
+    }
+
+    private Path writeTemp(JWK key) throws IOException {
+        Path temp = Files.createTempFile(this.directory, key.getKeyID(), ".tmp");
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        }
+        Files.writeString(temp, key.toJSONString(), StandardCharsets.UTF_8);
+        return temp;
+    }
+
+    private void dropLapsedClaims() throws IOException {
+        Instant lapsed = Instant.now().minus(CLAIM_TTL);
+        try (DirectoryStream<Path> claims = Files.newDirectoryStream(this.directory, "*" + CLAIM_SUFFIX)) {
+            for (Path claim : claims) {
+                if (Files.getLastModifiedTime(claim).toInstant().isBefore(lapsed)) {
+                    Files.deleteIfExists(claim);
+                }
+            }
+        }
+    }
+}
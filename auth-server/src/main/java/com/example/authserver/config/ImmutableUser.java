@@ -0,0 +1,83 @@
+package com.example.authserver.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Prebuilt, shareable {@link UserDetails}.
+ * <p>
+ * Unlike {@code User} it does not copy and re-sort its authorities (the list is an interned instance shared
+ * by every user with the same authority set) and it is not a {@code CredentialsContainer}, so
+ * {@code ProviderManager} cannot erase the password of the instance held by the store. Its
+ * {@code SCOPE_*} authorities are also kept as a precomputed {@link ScopeSet}.
+ */
+public final class ImmutableUser implements UserDetails {
+
+    private final String username;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+    private final ScopeSet scopes;
+
+    public ImmutableUser(String username, String password, List<GrantedAuthority> authorities) {
+        this.username = username;
+        this.password = password;
+        this.authorities = authorities;
+        this.scopes = ScopeSet.fromAuthorities(authorities);
+    }
+
+    public ScopeSet getScopes() {
+        return this.scopes;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return this.authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return this.password;
+    }
+
+    @Override
+    public String getUsername() {
+        return this.username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ImmutableUser && this.username.equals(((ImmutableUser) other).username);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.username.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [Username=" + this.username + ", Authorities=" + this.authorities + "]";
+    }
+}
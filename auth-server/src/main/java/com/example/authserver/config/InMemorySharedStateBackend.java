@@ -0,0 +1,121 @@
+package com.example.authserver.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedStateBackend} held in this JVM, standing in for a networked store.
+ * <p>
+ * Several auth-server "nodes" built on the same instance behave like a cluster, which is how multi-node
+ * behaviour is tested in one process. Values are copied on the way in and out, as they would be over the
+ * wire, and change events are delivered synchronously on the writing thread. Expired entries are dropped
+ * when read and swept every {@value #SWEEP_INTERVAL} writes.
+ */
+public class InMemorySharedStateBackend implements SharedStateBackend {
+
+    private static final Log logger = LogFactory.getLog(InMemorySharedStateBackend.class);
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final Map<String, Map<String, Entry>> regions = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+
+    @Override
+    public byte[] get(String region, String key) {
+        Map<String, Entry> entries = this.regions.get(region);
+        Entry entry = entries != null ? entries.get(key) : null;
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(Instant.now())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value().clone();
+    }
+
+    @Override
+    public Map<String, byte[]> getAll(String region) {
+        Map<String, byte[]> all = new HashMap<>();
+        Instant now = Instant.now();
+        this.regions.getOrDefault(region, Map.of()).forEach((key, entry) -> {
+            if (!entry.isExpired(now)) {
+                all.put(key, entry.value().clone());
+            }
+        });
+        return all;
+    }
+
+    @Override
+    public void put(String region, String key, byte[] value, Instant expiresAt) {
+        Map<String, Entry> entries = this.regions.computeIfAbsent(region, name -> new ConcurrentHashMap<>());
+        entries.put(key, new Entry(value.clone(), expiresAt));
+        if (this.writes.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep();
+        }
+        publish(region, key);
+    }
+
+    // one write for the whole map, then one event per key
+    @Override
+    public void putAll(String region, Map<String, Entry> entries) {
+        Map<String, Entry> regionEntries = this.regions.computeIfAbsent(region, name -> new ConcurrentHashMap<>());
+        entries.forEach((key, entry) -> regionEntries.put(key, new Entry(entry.value().clone(), entry.expiresAt())));
+        long written = this.writes.addAndGet(entries.size());
+        if (written / SWEEP_INTERVAL != (written - entries.size()) / SWEEP_INTERVAL) {
+            sweep();
+        }
+        entries.keySet().forEach(key -> publish(region, key));
+    }
+
+    @Override
+    public boolean putIfAbsent(String region, String key, byte[] value, Instant expiresAt) {
+        Map<String, Entry> entries = this.regions.computeIfAbsent(region, name -> new ConcurrentHashMap<>());
+        Entry entry = new Entry(value.clone(), expiresAt);
+        Instant now = Instant.now();
+        boolean written = entries.compute(key,
+                (k, existing) -> existing == null || existing.isExpired(now) ? entry : existing) == entry;
+        if (written) {
+            publish(region, key);
+        }
+        return written;
+    }
+
+    @Override
+    public void remove(String region, String key) {
+        Map<String, Entry> entries = this.regions.get(region);
+        if (entries != null && entries.remove(key) != null) {
+            publish(region, key);
+        }
+    }
+
+    @Override
+    public void subscribe(String region, Consumer<String> listener) {
+        this.listeners.computeIfAbsent(region, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private void publish(String region, String key) {
+        for (Consumer<String> listener : this.listeners.getOrDefault(region, List.of())) {
+            try {
+                listener.accept(key);
+            } catch (RuntimeException ex) {
+                logger.warn("Change listener of region " + region + " failed for " + key, ex);
+            }
+        }
+    }
+
+    private void sweep() {
+        Instant now = Instant.now();
+        this.regions.values().forEach(entries -> entries.values().removeIf(entry -> entry.isExpired(now)));
+    }
+}
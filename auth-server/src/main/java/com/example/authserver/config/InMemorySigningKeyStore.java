@@ -0,0 +1,37 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.jwk.JWK;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-local key store: keys are regenerated on every restart.
+ */
+public class InMemorySigningKeyStore implements SigningKeyStore {
+
+    private final Map<String, JWK> keys = new ConcurrentHashMap<>();
+
+    @Override
+    public List<JWK> load() {
+        return List.copyOf(this.keys.values());
+    }
+
+    @Override
+    public void save(JWK key) {
+        this.keys.put(key.getKeyID(), key);
+    }
+
+    // one process: RotatingJwkSource already generates one key at a time, so there is nobody to race
+    @Override
+    public JWK saveIfAbsent(String claim, JWK key) {
+        save(key);
+        return key;
+    }
+
+    @Override
+    public void delete(String keyId) {
+        this.keys.remove(keyId);
+    }
+}
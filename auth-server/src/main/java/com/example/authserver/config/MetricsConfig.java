@@ -0,0 +1,59 @@
+package com.example.authserver.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+@Configuration
+public class MetricsConfig {
+
+    // Credential cache and authorization store state; the request-path timers are registered where they are used
+    @Bean
+    public MeterBinder authServerMeters(PasswordEncoder passwordEncoder,
+                                        OAuth2AuthorizationService authorizationService,
+                                        TokenRevocationList revocationList) {
+        return registry -> {
+            Gauge.builder("auth.revocations.size", revocationList, TokenRevocationList::size)
+                    .description("Revoked access tokens that have not expired yet")
+                    .register(registry);
+            if (passwordEncoder instanceof CachingPasswordEncoder credentialCache) {
+                FunctionCounter.builder("auth.credential_cache.requests", credentialCache, CachingPasswordEncoder::hitCount)
+                        .description("Credential checks answered from the cache (no BCrypt)")
+                        .tag("result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("auth.credential_cache.requests", credentialCache, CachingPasswordEncoder::missCount)
+                        .description("Credential checks that ran BCrypt")
+                        .tag("result", "miss")
+                        .register(registry);
+                Gauge.builder("auth.credential_cache.size", credentialCache, CachingPasswordEncoder::size)
+                        .register(registry);
+            }
+            if (authorizationService instanceof PersistentOAuth2AuthorizationService persistentStore) {
+                Gauge.builder("auth.authorization_store.pending_writes", persistentStore,
+                                PersistentOAuth2AuthorizationService::pendingWrites)
+                        .description("Authorization writes queued for the log writer")
+                        .register(registry);
+            }
+            if (authorizationService instanceof BoundedOAuth2AuthorizationService memoryStore) {
+                Gauge.builder("auth.authorization_store.size", memoryStore, BoundedOAuth2AuthorizationService::estimatedSize)
+                        .register(registry);
+            }
+            if (authorizationService instanceof SharedOAuth2AuthorizationService sharedStore) {
+                FunctionCounter.builder("auth.authorization_store.near_cache.requests", sharedStore,
+                                SharedOAuth2AuthorizationService::nearCacheHitCount)
+                        .description("Authorization lookups answered by this node's near-cache")
+                        .tag("result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("auth.authorization_store.near_cache.requests", sharedStore,
+                                SharedOAuth2AuthorizationService::nearCacheMissCount)
+                        .description("Authorization lookups that went to the shared backend")
+                        .tag("result", "miss")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,416 @@
+package com.example.authserver.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File-backed authorization store.
+ * <p>
+ * Reads are served from an in-memory delegate. Every {@code save} / {@code remove} is applied to the
+ * delegate and queued under a lock striped by authorization id, so concurrent writes of the same
+ * authorization reach the log in the order the delegate applied them; {@code saveAll} queues all of its
+ * records as one write, so they land in the same batch. Queued writes are picked up by a single
+ * background writer, which appends whole batches to an append-only
+ * log and forces them to disk once per batch. On startup the log is replayed into the delegate and
+ * compacted to the live, unexpired authorizations; the writer compacts it again whenever it grows past
+ * {@code compactThresholdBytes}.
+ * <p>
+ * A batch that fails to write is kept and retried, with a growing pause, on a freshly opened log that is
+ * first cut back to its last complete batch, so a failed write never leaves a torn record mid-log. Should
+ * the writer thread die anyway, {@code save} / {@code remove} fail instead of waiting on a queue nobody
+ * drains.
+ */
+public class PersistentOAuth2AuthorizationService implements BulkOAuth2AuthorizationService, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(PersistentOAuth2AuthorizationService.class);
+
+    private static final byte SAVE = 1;
+    private static final byte REMOVE = 2;
+
+    private static final List<LogRecord> SHUTDOWN = List.of(new LogRecord((byte) 0, null, new byte[0]));
+
+    private static final long MIN_RETRY_DELAY_MILLIS = 100;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final OAuth2AuthorizationService delegate;
+    private final Path logFile;
+    private final int batchSize;
+    private final long compactThresholdBytes;
+    // each element is written as a whole, in one batch
+    private final BlockingQueue<List<LogRecord>> queue;
+    private final Thread writer;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    // owned by the writer thread once it runs; committed is the log size after the last complete batch
+    private FileChannel channel;
+    private long committed;
+
+    public PersistentOAuth2AuthorizationService(OAuth2AuthorizationService delegate, Path logFile,
+                                                int batchSize, int queueCapacity, long compactThresholdBytes) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(logFile, "logFile cannot be null");
+        Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+        this.delegate = delegate;
+        this.logFile = logFile;
+        this.batchSize = batchSize;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+
+        try {
+            Path parent = logFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Collection<OAuth2Authorization> live = compact();
+            live.forEach(delegate::save);
+            logger.info("Restored " + live.size() + " authorizations from " + logFile);
+            this.channel = openForAppend();
+            this.committed = this.channel.size();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open authorization log " + logFile, ex);
+        }
+
+        this.writer = new Thread(this::writeLoop, "authorization-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        checkWriter();
+        LogRecord record = new LogRecord(SAVE, authorization.getId(), serialize(authorization));
+        ReentrantLock lock = lockFor(authorization.getId());
+        lock.lock();
+        try {
+            this.delegate.save(authorization);
+            enqueue(List.of(record));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // all records go to the log in one batch; the stripes are taken in index order so two calls cannot deadlock
+    @Override
+    public void saveAll(Collection<OAuth2Authorization> authorizations) {
+        Assert.notNull(authorizations, "authorizations cannot be null");
+        if (authorizations.isEmpty()) {
+            return;
+        }
+        checkWriter();
+        List<LogRecord> records = new ArrayList<>(authorizations.size());
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (OAuth2Authorization authorization : authorizations) {
+            Assert.notNull(authorization, "authorization cannot be null");
+            records.add(new LogRecord(SAVE, authorization.getId(), serialize(authorization)));
+            stripes.add(stripe(authorization.getId()));
+        }
+        stripes.forEach(stripe -> this.locks[stripe].lock());
+        try {
+            BulkOAuth2AuthorizationService.saveAll(this.delegate, authorizations);
+            enqueue(records);
+        } finally {
+            stripes.descendingSet().forEach(stripe -> this.locks[stripe].unlock());
+        }
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        checkWriter();
+        ReentrantLock lock = lockFor(authorization.getId());
+        lock.lock();
+        try {
+            this.delegate.remove(authorization);
+            enqueue(List.of(new LogRecord(REMOVE, authorization.getId(), new byte[0])));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        return this.delegate.findById(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        return this.delegate.findByToken(token, tokenType);
+    }
+
+    // writes accepted but not yet on disk; stays near zero unless the disk falls behind
+    public int pendingWrites() {
+        return this.queue.size();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.writer.isAlive()) {
+            enqueue(SHUTDOWN);
+            this.writer.join();
+        }
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+
+    private void checkWriter() {
+        if (!this.writer.isAlive()) {
+            throw new IllegalStateException("The writer of authorization log " + this.logFile + " has stopped");
+        }
+    }
+
+    // one lock per stripe of ids; a ReentrantLock rather than synchronized, so a virtual thread waiting on a
+    // full queue does not pin its carrier
+    private ReentrantLock lockFor(String id) {
+        return this.locks[stripe(id)];
+    }
+
+    private static int stripe(String id) {
+        return Math.floorMod(id.hashCode(), LOCK_STRIPES);
+    }
+
+    // request threads only wait here when the writer is a full queue behind, and only while it is alive
+    private void enqueue(List<LogRecord> records) {
+        try {
+            while (!this.queue.offer(records, 100, TimeUnit.MILLISECONDS)) {
+                checkWriter();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing authorization write", ex);
+        }
+    }
+
+    private void writeLoop() {
+        List<List<LogRecord>> batch = new ArrayList<>(this.batchSize);
+        boolean stopping = false;
+        long retryDelayMillis = 0;
+        while (true) {
+            try {
+                if (!batch.isEmpty()) {
+                    // the last batch failed; it goes first, on a reopened log
+                    Thread.sleep(retryDelayMillis);
+                } else if (stopping) {
+                    return;
+                } else {
+                    batch.add(this.queue.take());
+                    this.queue.drainTo(batch, this.batchSize - 1);
+                    stopping = batch.remove(SHUTDOWN);
+                }
+                writeBatch(batch);
+                batch.clear();
+                retryDelayMillis = 0;
+                if (this.committed > this.compactThresholdBytes) {
+                    compactLog();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException ex) {
+                closeChannel();
+                if (stopping) {
+                    logger.error("Dropping " + batch.size() + " authorization writes on shutdown, "
+                            + this.logFile + " is not writable", ex);
+                    return;
+                }
+                retryDelayMillis = Math.min(Math.max(retryDelayMillis * 2, MIN_RETRY_DELAY_MILLIS),
+                        MAX_RETRY_DELAY_MILLIS);
+                if (batch.isEmpty()) {
+                    logger.error("Failed to compact authorization log " + this.logFile, ex);
+                } else {
+                    logger.error("Failed to write " + batch.size() + " authorization writes to " + this.logFile
+                            + ", retrying in " + retryDelayMillis + " ms", ex);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<List<LogRecord>> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(batch.size() * 512);
+        DataOutputStream out = new DataOutputStream(buffer);
+        for (List<LogRecord> records : batch) {
+            for (LogRecord record : records) {
+                record.writeTo(out);
+            }
+        }
+        out.flush();
+        if (this.channel == null) {
+            this.channel = openForAppend();
+            // drop whatever part of a failed batch made it to disk
+            if (this.channel.size() > this.committed) {
+                this.channel.truncate(this.committed);
+            }
+        }
+        this.channel.write(ByteBuffer.wrap(buffer.toByteArray()));
+        this.channel.force(false);
+        this.committed = this.channel.size();
+    }
+
+    // the log is only replaced once the compacted copy is complete, so a failure leaves the old one in place
+    private void compactLog() throws IOException {
+        closeChannel();
+        try {
+            compact();
+        } finally {
+            this.committed = Files.size(this.logFile);
+        }
+        this.channel = openForAppend();
+    }
+
+    private void closeChannel() {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException ex) {
+                logger.debug("Could not close authorization log " + this.logFile, ex);
+            }
+            this.channel = null;
+        }
+    }
+
+    // replays the log and rewrites it with only the live, unexpired authorizations
+    private Collection<OAuth2Authorization> compact() throws IOException {
+        Map<String, OAuth2Authorization> live = new LinkedHashMap<>();
+        if (Files.exists(this.logFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.logFile)))) {
+                LogRecord record;
+                while ((record = LogRecord.readFrom(in)) != null) {
+                    if (record.type == SAVE) {
+                        live.put(record.id, deserialize(record.payload));
+                    } else if (record.type == REMOVE) {
+                        live.remove(record.id);
+                    }
+                }
+            }
+        }
+        Instant now = Instant.now();
+        live.values().removeIf(authorization -> isExpired(authorization, now));
+
+        Path compacted = this.logFile.resolveSibling(this.logFile.getFileName() + ".compact");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(
+                FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC))))) {
+            for (OAuth2Authorization authorization : live.values()) {
+                new LogRecord(SAVE, authorization.getId(), serialize(authorization)).writeTo(out);
+            }
+        }
+        Files.move(compacted, this.logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return live.values();
+    }
+
+    private FileChannel openForAppend() throws IOException {
+        return FileChannel.open(this.logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static boolean isExpired(OAuth2Authorization authorization, Instant now) {
+        return isExpired(authorization.getAccessToken(), now)
+                && (authorization.getRefreshToken() == null || isExpired(authorization.getRefreshToken(), now));
+    }
+
+    private static boolean isExpired(OAuth2Authorization.Token<? extends OAuth2Token> token, Instant now) {
+        return token != null && token.getToken().getExpiresAt() != null && token.getToken().getExpiresAt().isBefore(now);
+    }
+
+    private static byte[] serialize(OAuth2Authorization authorization) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(authorization);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not serialize authorization " + authorization.getId(), ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static OAuth2Authorization deserialize(byte[] payload) throws IOException {
+        try (ObjectInputStream in = SerializationFilter.objectInputStream(payload)) {
+            return (OAuth2Authorization) in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Unreadable authorization record", ex);
+        }
+    }
+
+    /**
+     * One log entry: {@code [type:byte][id:utf][length:int][payload]}.
+     */
+    private static final class LogRecord {
+
+        private final byte type;
+        private final String id;
+        private final byte[] payload;
+
+        private LogRecord(byte type, String id, byte[] payload) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(this.type);
+            out.writeUTF(this.id);
+            out.writeInt(this.payload.length);
+            out.write(this.payload);
+        }
+
+        // returns null at end of log, including a record torn by a crash mid-write
+        private static LogRecord readFrom(DataInputStream in) throws IOException {
+            try {
+                int type = in.read();
+                if (type < 0) {
+                    return null;
+                }
+                String id = in.readUTF();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                return new LogRecord((byte) type, id, payload);
+            } catch (EOFException ex) {
+                logger.warn("Ignoring truncated record at the end of the authorization log");
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.authserver.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClaimAccessor;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.token.DefaultOAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code grant_type=refresh_token} for authorizations issued by the password grant.
+ * <p>
+ * The user is looked up again (still present, enabled, not locked) but the password is not checked, so a
+ * refresh costs no BCrypt. Every refresh token is single use: a successful refresh replaces it with a new
+ * one. A refresh token that was already used marks the authorization as compromised and removes it, so
+ * the legitimate holder and the replayer both lose the current refresh token; its current access token is
+ * published on the {@link TokenRevocationList}.
+ * <p>
+ * Used refresh tokens are remembered until they would have expired. In cluster mode the claim on a token is
+ * taken in the {@value #CONSUMED_TOKENS} region of the {@link SharedStateBackend}, so of two nodes exchanging
+ * the same token at once only one succeeds, and a replay is detected on any node. Without it they are kept
+ * in memory; after a restart a replayed token is only rejected, not detected.
+ */
+public class RefreshTokenGrantAuthenticationProvider implements AuthenticationProvider {
+
+    static final String CONSUMED_TOKENS = "consumed-refresh-tokens";
+
+    private static final Duration DEFAULT_CONSUMED_TIME_TO_LIVE = Duration.ofDays(1);
+
+    private final OAuth2AuthorizationService authorizationService;
+    private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
+    private final AccountStatusUserDetailsChecker userDetailsChecker = new AccountStatusUserDetailsChecker();
+
+    // refresh token value already exchanged -> authorization it was rotated out of; local or shared
+    private final Cache<String, ConsumedToken> consumedTokens;
+    private final SharedStateBackend sharedState;
+
+    private final MeterProvider<Timer> grantTimer;
+    private final MeterProvider<Counter> reuseDetected;
+
+    public RefreshTokenGrantAuthenticationProvider(OAuth2AuthorizationService authorizationService,
+                                                   OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator,
+                                                   UserDetailsService userDetailsService,
+                                                   TokenRevocationList revocationList,
+                                                   MeterRegistry meterRegistry) {
+        this(authorizationService, tokenGenerator, userDetailsService, revocationList, null, meterRegistry);
+    }
+
+    // sharedState null keeps the used refresh tokens on this node only
+    public RefreshTokenGrantAuthenticationProvider(OAuth2AuthorizationService authorizationService,
+                                                   OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator,
+                                                   UserDetailsService userDetailsService,
+                                                   TokenRevocationList revocationList,
+                                                   SharedStateBackend sharedState,
+                                                   MeterRegistry meterRegistry) {
+        this.authorizationService = authorizationService;
+        this.tokenGenerator = tokenGenerator;
+        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
+        this.sharedState = sharedState;
+        this.consumedTokens = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfter(new ConsumedTokenExpiry())
+                .build();
+        this.grantTimer = Timer.builder("auth.refresh_grant")
+                .description("Refresh token grant requests")
+                .withRegistry(meterRegistry);
+        this.reuseDetected = Counter.builder("auth.refresh_token.reuse_detected")
+                .description("Refresh tokens presented again after rotation; the authorization is revoked")
+                .withRegistry(meterRegistry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        OAuth2RefreshTokenAuthenticationToken refreshAuth = (OAuth2RefreshTokenAuthenticationToken) authentication;
+        if (!(refreshAuth.getPrincipal() instanceof OAuth2ClientAuthenticationToken clientPrincipal)
+                || !clientPrincipal.isAuthenticated()) {
+            throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
+        }
+        RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
+        String clientId = registeredClient.getClientId();
+
+        long start = System.nanoTime();
+        String outcome = OAuth2ErrorCodes.SERVER_ERROR;
+        try {
+            Authentication result = refresh(refreshAuth, clientPrincipal, registeredClient);
+            outcome = "success";
+            return result;
+        } catch (OAuth2AuthenticationException ex) {
+            outcome = ex.getError().getErrorCode();
+            throw ex;
+        } finally {
+            this.grantTimer.withTags("client_id", clientId, "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Authentication refresh(OAuth2RefreshTokenAuthenticationToken refreshAuth,
+                                   OAuth2ClientAuthenticationToken clientPrincipal, RegisteredClient registeredClient) {
+        String presented = refreshAuth.getRefreshToken();
+        OAuth2Authorization authorization =
+                this.authorizationService.findByToken(presented, OAuth2TokenType.REFRESH_TOKEN);
+        if (authorization == null) {
+            String consumedFrom = consumedFrom(presented);
+            if (consumedFrom != null) {
+                revoke(consumedFrom, registeredClient);
+            }
+            throw invalidGrant("Invalid refresh token");
+        }
+        if (!registeredClient.getId().equals(authorization.getRegisteredClientId())) {
+            throw invalidGrant("Refresh token was issued to another client");
+        }
+        if (!registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN)) {
+            throw new OAuth2AuthenticationException(OAuth2ErrorCodes.UNAUTHORIZED_CLIENT);
+        }
+        OAuth2Authorization.Token<OAuth2RefreshToken> refreshToken = authorization.getRefreshToken();
+        if (refreshToken == null || !refreshToken.isActive()) {
+            throw invalidGrant("Refresh token is expired or revoked");
+        }
+
+        // checked by name first: a ScopeSet is only built from scopes the server already knows
+        if (!authorization.getAuthorizedScopes().containsAll(refreshAuth.getScopes())) {
+            throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_SCOPE);
+        }
+        ScopeSet authorizedScopes = ScopeSet.of(authorization.getAuthorizedScopes());
+        ScopeSet requestedScopes = ScopeSet.of(refreshAuth.getScopes());
+        // the client or the user may have lost scopes since the password grant
+        ScopeSet granted = (requestedScopes.isEmpty() ? authorizedScopes : requestedScopes)
+                .intersect(ScopeSet.of(registeredClient.getScopes()));
+
+        Authentication user = currentUser(authorization.getPrincipalName());
+        ScopeSet userScopes = ScopeSet.fromAuthorities(user.getAuthorities());
+        if (!userScopes.isEmpty()) {
+            granted = granted.intersect(userScopes);
+        }
+        Set<String> scopes = granted.asSet();
+
+        // one use only, claimed after validation: whoever records the token first may exchange it,
+        // a second caller is a replay
+        if (!claim(presented, authorization.getId(), refreshToken.getToken().getExpiresAt())) {
+            revoke(authorization.getId(), registeredClient);
+            throw invalidGrant("Invalid refresh token");
+        }
+
+        DefaultOAuth2TokenContext.Builder tokenContext = DefaultOAuth2TokenContext.builder()
+                .registeredClient(registeredClient)
+                .principal(user)
+                .authorizationServerContext(AuthorizationServerContextHolder.getContext())
+                .authorization(authorization)
+                .authorizedScopes(scopes)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .authorizationGrant(refreshAuth);
+
+        OAuth2Token generatedAccessToken = this.tokenGenerator.generate(
+                tokenContext.tokenType(OAuth2TokenType.ACCESS_TOKEN).build());
+        if (generatedAccessToken == null) {
+            throw new OAuth2AuthenticationException(
+                    new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR, "token_generation_failed", null));
+        }
+        OAuth2AccessToken accessToken = generatedAccessToken instanceof OAuth2AccessToken token
+                ? token
+                : new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, generatedAccessToken.getTokenValue(),
+                generatedAccessToken.getIssuedAt(), generatedAccessToken.getExpiresAt(), scopes);
+
+        OAuth2Token generatedRefreshToken = this.tokenGenerator.generate(
+                tokenContext.tokenType(OAuth2TokenType.REFRESH_TOKEN).build());
+        if (!(generatedRefreshToken instanceof OAuth2RefreshToken rotated)) {
+            throw new OAuth2AuthenticationException(
+                    new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR, "token_generation_failed", null));
+        }
+
+        // replaces both tokens; the store drops the old refresh token from its index
+        OAuth2Authorization updated = OAuth2Authorization.from(authorization)
+                .authorizedScopes(scopes)
+                .attribute(Principal.class.getName(), user)
+                .token(accessToken, metadata -> {
+                    if (generatedAccessToken instanceof ClaimAccessor claimAccessor) {
+                        metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, claimAccessor.getClaims());
+                    }
+                })
+                .refreshToken(rotated)
+                .build();
+        this.authorizationService.save(updated);
+
+        return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken, rotated);
+    }
+
+    // true if this call is the first to use the token, on this node or (in cluster mode) any other
+    private boolean claim(String presented, String authorizationId, Instant expiresAt) {
+        if (this.sharedState == null) {
+            return this.consumedTokens.asMap()
+                    .putIfAbsent(presented, new ConsumedToken(authorizationId, expiresAt)) == null;
+        }
+        Instant until = expiresAt != null ? expiresAt : Instant.now().plus(DEFAULT_CONSUMED_TIME_TO_LIVE);
+        return this.sharedState.putIfAbsent(CONSUMED_TOKENS, presented,
+                authorizationId.getBytes(StandardCharsets.UTF_8), until);
+    }
+
+    // the authorization a used refresh token was rotated out of, or null if the token was never used
+    private String consumedFrom(String presented) {
+        if (this.sharedState == null) {
+            ConsumedToken consumed = this.consumedTokens.getIfPresent(presented);
+            return consumed != null ? consumed.authorizationId() : null;
+        }
+        byte[] authorizationId = this.sharedState.get(CONSUMED_TOKENS, presented);
+        return authorizationId != null ? new String(authorizationId, StandardCharsets.UTF_8) : null;
+    }
+
+    // re-reads the user so disabled / removed users and changed authorities take effect, without the password
+    private Authentication currentUser(String username) {
+        UserDetails user;
+        try {
+            user = this.userDetailsService.loadUserByUsername(username);
+            this.userDetailsChecker.check(user);
+        } catch (UsernameNotFoundException ex) {
+            throw invalidGrant("User no longer exists");
+        } catch (AuthenticationException ex) {
+            throw invalidGrant(ex.getMessage());
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(user.getUsername(), null, user.getAuthorities());
+    }
+
+    private void revoke(String authorizationId, RegisteredClient registeredClient) {
+        this.reuseDetected.withTags("client_id", registeredClient.getClientId()).increment();
+        OAuth2Authorization authorization = this.authorizationService.findById(authorizationId);
+        if (authorization != null) {
+            // the current access token may be in the replayer's hands too
+            this.revocationList.revoke(authorization);
+            this.authorizationService.remove(authorization);
+        }
+    }
+
+    private static OAuth2AuthenticationException invalidGrant(String description) {
+        return new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT, description, null));
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return OAuth2RefreshTokenAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    private record ConsumedToken(String authorizationId, Instant expiresAt) {
+    }
+
+    /**
+     * Keeps a used refresh token only as long as it could still have been exchanged.
+     */
+    private static final class ConsumedTokenExpiry implements Expiry<String, ConsumedToken> {
+
+        private static final long DEFAULT_TIME_TO_LIVE = DEFAULT_CONSUMED_TIME_TO_LIVE.toNanos();
+
+        @Override
+        public long expireAfterCreate(String token, ConsumedToken consumed, long currentTime) {
+            if (consumed.expiresAt() == null) {
+                return DEFAULT_TIME_TO_LIVE;
+            }
+            return Math.max(0, Duration.between(Instant.now(), consumed.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, ConsumedToken consumed, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, ConsumedToken consumed, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.authserver.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves the {@link TokenRevocationList}: {@code GET <endpoint>?epoch=..&since=..}.
+ * <p>
+ * Like the JWK set it is public; it only holds random token ids. The Bloom filter bits of a full answer are
+ * the filter's {@code long} words, big-endian, Base64 encoded.
+ */
+public class RevocationListEndpointFilter extends OncePerRequestFilter {
+
+    // AuthorizationServerSettings key holding the endpoint path
+    public static final String ENDPOINT = "settings.authorization-server.revocation-list-endpoint";
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private final RequestMatcher endpointMatcher;
+    private final TokenRevocationList revocationList;
+
+    public RevocationListEndpointFilter(String endpoint, TokenRevocationList revocationList) {
+        Assert.hasText(endpoint, "endpoint cannot be empty");
+        this.endpointMatcher = PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, endpoint);
+        this.revocationList = revocationList;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !this.endpointMatcher.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long since;
+        try {
+            String value = request.getParameter("since");
+            since = value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException ex) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "since must be a number");
+            return;
+        }
+        TokenRevocationList.Changes changes = this.revocationList.changesSince(request.getParameter("epoch"), since);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("epoch", changes.epoch());
+        body.put("sequence", changes.sequence());
+        body.put("full", changes.full());
+        body.put("revoked", changes.revoked());
+        if (changes.bloom() != null) {
+            long[] words = changes.bloom().bits();
+            ByteBuffer bits = ByteBuffer.allocate(words.length * Long.BYTES);
+            bits.asLongBuffer().put(words);
+            body.put("bloom", Map.of("bits", Base64.getEncoder().encodeToString(bits.array()),
+                    "hashes", changes.bloom().hashes()));
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
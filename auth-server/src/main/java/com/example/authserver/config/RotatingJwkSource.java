@@ -0,0 +1,232 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JWK source backed by a {@link SigningKeyStore}, with scheduled key rotation.
+ * <p>
+ * Every key carries an {@code nbf} (the moment it starts signing). A successor is generated
+ * {@code prepublish} before the active key's rotation is due, so it sits in the published JWK set before
+ * any token is signed with it. A superseded key stays published for {@code retention} after its successor
+ * took over (this must exceed the longest access token TTL) and is then deleted from the store.
+ * The store is re-read on every check, so nodes sharing it converge on the same keys; a key is generated
+ * under a {@link SigningKeyStore#saveIfAbsent claim}, so nodes generating at the same moment adopt one key.
+ * <p>
+ * The first load (and, without a stored key, the key generation) runs on the rotation thread while the rest
+ * of the context starts; the context waits for it in {@link #afterSingletonsInstantiated()}, so a node
+ * still fails to start without a usable key.
+ */
+public class RotatingJwkSource implements JWKSource<SecurityContext>, SmartInitializingSingleton, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(RotatingJwkSource.class);
+
+    private static final Comparator<JWK> BY_NOT_BEFORE = Comparator
+            .comparing((JWK key) -> notBefore(key))
+            .thenComparing(JWK::getKeyID);
+
+    private final SigningKeyStore keyStore;
+    private final JwsAlgorithm algorithm;
+    private final Duration rotationPeriod;
+    private final Duration prepublish;
+    private final Duration retention;
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock rotationLock = new ReentrantLock();
+
+    private final CompletableFuture<Void> initialKeys;
+
+    private volatile KeySnapshot snapshot;
+
+    public RotatingJwkSource(SigningKeyStore keyStore, JwsAlgorithm algorithm, Duration rotationPeriod,
+                             Duration prepublish, Duration retention, Duration checkInterval) {
+        Assert.notNull(keyStore, "keyStore cannot be null");
+        Assert.notNull(algorithm, "algorithm cannot be null");
+        Assert.isTrue(prepublish.compareTo(rotationPeriod) < 0, "prepublish must be shorter than rotationPeriod");
+        Assert.isTrue(checkInterval.compareTo(prepublish) < 0,
+                "checkInterval must be shorter than prepublish so every node publishes a key before it signs");
+        this.keyStore = keyStore;
+        this.algorithm = algorithm;
+        this.rotationPeriod = rotationPeriod;
+        this.prepublish = prepublish;
+        this.retention = retention;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwk-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.initialKeys = CompletableFuture.runAsync(this::rotate, this.scheduler);
+        long interval = checkInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::rotateQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        return jwkSelector.select(snapshot().published);
+    }
+
+    // kid of the key currently used for signing (goes into the JWS header)
+    public String signingKeyId() {
+        return snapshot().signingKeyId;
+    }
+
+    // re-reads the store now instead of at the next check, e.g. when another node changed the shared keys
+    public void refresh() {
+        try {
+            this.scheduler.execute(this::rotateQuietly);
+        } catch (RejectedExecutionException ex) {
+            // shutting down
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        awaitInitialKeys();
+    }
+
+    @Override
+    public void destroy() {
+        this.scheduler.shutdownNow();
+    }
+
+    private void rotateQuietly() {
+        try {
+            rotate();
+        } catch (RuntimeException ex) {
+            logger.error("Signing key rotation failed, keeping current key set", ex);
+        }
+    }
+
+    void rotate() {
+        // a lock rather than synchronized: the store is file I/O, which would pin a virtual thread's carrier
+        this.rotationLock.lock();
+        try {
+            rotateLocked();
+        } finally {
+            this.rotationLock.unlock();
+        }
+    }
+
+    private void rotateLocked() {
+        Instant now = Instant.now();
+        List<JWK> keys = new ArrayList<>(this.keyStore.load());
+        keys.sort(BY_NOT_BEFORE);
+
+        // keys of a previously configured algorithm stay published, but only matching keys sign
+        JWK active = null;
+        JWK newest = null;
+        for (JWK key : keys) {
+            if (this.algorithm.getName().equals(algorithmName(key))) {
+                newest = key;
+                if (!notBefore(key).isAfter(now)) {
+                    active = key;
+                }
+            }
+        }
+        if (active == null) {
+            // nodes starting together against an empty store would each sign with their own first key
+            JWK generated = generate("active-" + this.algorithm.getName(), now);
+            active = generated;
+            if (keys.stream().noneMatch(key -> key.getKeyID().equals(generated.getKeyID()))) {
+                keys.add(generated);
+                keys.sort(BY_NOT_BEFORE);
+            }
+            newest = newest != null && notBefore(newest).isAfter(notBefore(active)) ? newest : active;
+        }
+        Instant rotationDue = notBefore(active).plus(this.rotationPeriod);
+        boolean successorExists = notBefore(newest).isAfter(notBefore(active));
+        if (!successorExists && !now.isBefore(rotationDue.minus(this.prepublish))) {
+            Instant successorNotBefore = rotationDue.isAfter(now.plus(this.prepublish))
+                    ? rotationDue : now.plus(this.prepublish);
+            JWK successor = generate("successor-" + active.getKeyID(), successorNotBefore);
+            if (keys.stream().noneMatch(key -> key.getKeyID().equals(successor.getKeyID()))) {
+                keys.add(successor);
+                keys.sort(BY_NOT_BEFORE);
+            }
+            logger.info("Pre-published signing key, active from " + notBefore(successor));
+        }
+
+        // key i is retired once key i+1 has been signing for longer than the retention window
+        List<JWK> published = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            JWK key = keys.get(i);
+            boolean retired = i + 1 < keys.size()
+                    && notBefore(keys.get(i + 1)).plus(this.retention).isBefore(now);
+            if (retired) {
+                this.keyStore.delete(key.getKeyID());
+                logger.info("Retired signing key " + key.getKeyID());
+            } else {
+                published.add(key);
+            }
+        }
+        this.snapshot = new KeySnapshot(new JWKSet(published), active.getKeyID());
+    }
+
+    private KeySnapshot snapshot() {
+        KeySnapshot current = this.snapshot;
+        if (current == null) {
+            awaitInitialKeys();
+            current = this.snapshot;
+        }
+        return current;
+    }
+
+    private void awaitInitialKeys() {
+        try {
+            this.initialKeys.join();
+        } catch (CompletionException ex) {
+            // a later scheduled rotation may have succeeded since
+            if (this.snapshot == null) {
+                throw new IllegalStateException("Could not load or generate a signing key", ex.getCause());
+            }
+        }
+    }
+
+    // the key saved under claim: ours, or the one another node generated for the same purpose first
+    private JWK generate(String claim, Instant notBefore) {
+        return this.keyStore.saveIfAbsent(claim, SigningKeys.generate(this.algorithm, notBefore));
+    }
+
+    private static Instant notBefore(JWK key) {
+        Date notBefore = key.getNotBeforeTime() != null ? key.getNotBeforeTime() : key.getIssueTime();
+        return notBefore != null ? notBefore.toInstant() : Instant.EPOCH;
+    }
+
+    private static String algorithmName(JWK key) {
+        return key.getAlgorithm() != null ? key.getAlgorithm().getName() : null;
+    }
+
+    private static final class KeySnapshot {
+
+        private final JWKSet published;
+        private final String signingKeyId;
+
+        private KeySnapshot(JWKSet published, String signingKeyId) {
+            this.published = published;
+            this.signingKeyId = signingKeyId;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.authserver.config;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned, bit-encoded set of OAuth2 scopes.
+ * <p>
+ * Every scope name seen by the server gets one bit, assigned once and never reused, so a scope set is a
+ * bitmask and intersecting two of them is a bitwise AND. The mask grows a {@code long} word per 64 names, so
+ * there is no limit on distinct scopes and a reload that introduces new names just adds bits; the usual
+ * deployment with fewer than 64 scopes keeps one-word masks. There is exactly one instance per mask, and it
+ * carries its scope names as ready-made immutable {@link List} / {@link Set} / space-separated
+ * {@link String}, so issuing a token allocates nothing for scopes. Users and clients get theirs when they
+ * are loaded ({@link ImmutableUser}, {@link CustomRegisteredClientRepository}).
+ */
+public final class ScopeSet implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final String SCOPE_AUTHORITY_PREFIX = "SCOPE_";
+    private static final long[] NO_WORDS = new long[0];
+
+    // scope name -> bit, and authority name (SCOPE_x) -> the same bit; both only grow
+    private static final Map<String, Integer> bits = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> authorityBits = new ConcurrentHashMap<>();
+    private static final Object registryLock = new Object();
+    // bit -> name; replaced by a larger copy when full, always before the new bit is published in bits
+    private static volatile String[] names = new String[Long.SIZE];
+    private static final Map<Mask, ScopeSet> interned = new ConcurrentHashMap<>();
+
+    public static final ScopeSet EMPTY = intern(NO_WORDS);
+
+    // no trailing zero words, so equal sets have equal arrays
+    private final transient long[] words;
+    private final List<String> scopeList;
+    private final transient Set<String> scopeSet;
+    private final transient String value;
+
+    private ScopeSet(long[] words, List<String> scopeList) {
+        this.words = words;
+        this.scopeList = scopeList;
+        this.scopeSet = Collections.unmodifiableSet(new LinkedHashSet<>(scopeList));
+        this.value = String.join(" ", scopeList);
+    }
+
+    public static ScopeSet of(Collection<String> scopes) {
+        long[] words = NO_WORDS;
+        for (String scope : scopes) {
+            words = set(words, bit(scope));
+        }
+        return intern(words);
+    }
+
+    // the SCOPE_* authorities, without the prefix
+    public static ScopeSet fromAuthorities(Collection<? extends GrantedAuthority> authorities) {
+        long[] words = NO_WORDS;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            if (name == null || !name.startsWith(SCOPE_AUTHORITY_PREFIX)) {
+                continue;
+            }
+            Integer bit = authorityBits.get(name);
+            words = set(words, bit != null ? bit : bit(name.substring(SCOPE_AUTHORITY_PREFIX.length())));
+        }
+        return intern(words);
+    }
+
+    // the precomputed set of an ImmutableUser principal, else derived from the authorities
+    public static ScopeSet forPrincipal(Authentication principal) {
+        if (principal.getPrincipal() instanceof ImmutableUser user) {
+            return user.getScopes();
+        }
+        return fromAuthorities(principal.getAuthorities());
+    }
+
+    public ScopeSet intersect(ScopeSet other) {
+        // usually one side already contains the other
+        if (other.containsAll(this)) {
+            return this;
+        }
+        if (containsAll(other)) {
+            return other;
+        }
+        long[] words = new long[Math.min(this.words.length, other.words.length)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = this.words[i] & other.words[i];
+        }
+        return intern(trim(words));
+    }
+
+    public boolean isEmpty() {
+        return this.words.length == 0;
+    }
+
+    public boolean containsAll(ScopeSet other) {
+        if (other.words.length > this.words.length) {
+            return false;
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            if ((this.words[i] & other.words[i]) != other.words[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> asList() {
+        return this.scopeList;
+    }
+
+    public Set<String> asSet() {
+        return this.scopeSet;
+    }
+
+    @Override
+    public String toString() {
+        return this.value;
+    }
+
+    private static int bit(String scope) {
+        Integer bit = bits.get(scope);
+        if (bit != null) {
+            return bit;
+        }
+        synchronized (registryLock) {
+            bit = bits.get(scope);
+            if (bit == null) {
+                bit = bits.size();
+                String[] current = names;
+                if (bit == current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                }
+                current[bit] = scope;
+                names = current;
+                bits.put(scope, bit);
+                authorityBits.put(SCOPE_AUTHORITY_PREFIX + scope, bit);
+            }
+            return bit;
+        }
+    }
+
+    private static long[] set(long[] words, int bit) {
+        int word = bit >>> 6;
+        long[] result = word < words.length ? words : Arrays.copyOf(words, word + 1);
+        result[word] |= 1L << bit;
+        return result;
+    }
+
+    private static long[] trim(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        return length == words.length ? words : Arrays.copyOf(words, length);
+    }
+
+    private static ScopeSet intern(long[] words) {
+        Mask mask = new Mask(words);
+        ScopeSet existing = interned.get(mask);
+        return existing != null ? existing : interned.computeIfAbsent(mask, m -> {
+            String[] registered = names;
+            List<String> scopes = new ArrayList<>();
+            for (int word = 0; word < words.length; word++) {
+                for (long remaining = words[word]; remaining != 0; remaining &= remaining - 1) {
+                    scopes.add(registered[(word << 6) + Long.numberOfTrailingZeros(remaining)]);
+                }
+            }
+            return new ScopeSet(words, List.copyOf(scopes));
+        });
+    }
+
+    // bit numbers are per JVM; re-intern by name
+    @Serial
+    private Object readResolve() {
+        return of(this.scopeList);
+    }
+
+    // array identity is not value equality, so interned masks are keyed through this
+    private record Mask(long[] words) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Mask mask && Arrays.equals(this.words, mask.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.words);
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.authserver.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -7,11 +12,23 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.oauth2.server.authorization.OAuth2AuthorizationServerConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenRevocationAuthenticationToken;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+import org.springframework.security.oauth2.server.authorization.web.authentication.OAuth2ErrorAuthenticationFailureHandler;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.csrf.CsrfFilter;
+
+import java.time.Duration;
+import java.util.Optional;
 
 @Configuration
 public class SecurityConfig {
@@ -23,11 +40,60 @@ public class SecurityConfig {
                                                   RegisteredClientRepository registeredClientRepository,
                                                   OAuth2AuthorizationService authorizationService,
                                                   OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator,
-                                                  AuthenticationManager authenticationManager) throws Exception {
+                                                  AuthenticationManager authenticationManager,
+                                                  UserDetailsService userDetailsService,
+                                                  PasswordEncoder passwordEncoder,
+                                                  AuthorizationServerSettings authorizationServerSettings,
+                                                  TokenRevocationList revocationList,
+                                                  Optional<SharedStateBackend> sharedState,
+                                                  MeterRegistry meterRegistry,
+                                                  @Value("${AUTH_TOKEN_MAX_CONCURRENT:0}") int tokenMaxConcurrent,
+                                                  @Value("${AUTH_TOKEN_QUEUE_SIZE:100}") int tokenQueueSize,
+                                                  @Value("${AUTH_TOKEN_QUEUE_TIMEOUT:PT0.5S}") Duration tokenQueueTimeout,
+                                                  @Value("${AUTH_TOKEN_RETRY_AFTER:PT1S}") Duration tokenRetryAfter,
+                                                  @Value("${AUTH_CLIENT_RATE_LIMIT:0}") double clientRateLimit,
+                                                  @Value("${AUTH_CLIENT_RATE_LIMIT_BURST:10}") int clientRateLimitBurst,
+                                                  @Value("${AUTH_CLIENT_AUTH_FAILURE_RATE_LIMIT:1}") double clientAuthFailureRateLimit,
+                                                  @Value("${AUTH_CLIENT_AUTH_FAILURE_RATE_LIMIT_BURST:20}") int clientAuthFailureRateLimitBurst,
+                                                  @Value("${AUTH_TOKEN_BATCH_MAX_SIZE:50}") int tokenBatchMaxSize)
+            throws Exception {
 
         // ---- CRITICAL ----
         http.securityMatcher("/oauth2/**", "/.well-known/**");
 
+        // Per-client token request limits (ClientSettings, default AUTH_CLIENT_RATE_LIMIT), charged once the
+        // client is authenticated, and failed client authentications per source address; checked first
+        ClientRateLimitFilter clientRateLimitFilter = new ClientRateLimitFilter(registeredClientRepository,
+                clientRateLimit, clientRateLimitBurst, clientAuthFailureRateLimit, clientAuthFailureRateLimitBurst,
+                meterRegistry);
+        http.addFilterBefore(clientRateLimitFilter, CsrfFilter.class);
+
+        // Load shedding: /oauth2/token is admitted before client authentication (BCrypt) runs.
+        // AUTH_TOKEN_MAX_CONCURRENT=0 means one slot per CPU core, a negative value turns it off.
+        TokenEndpointAdmissionFilter admissionFilter = null;
+        if (tokenMaxConcurrent >= 0) {
+            int maxConcurrent = tokenMaxConcurrent > 0 ? tokenMaxConcurrent : Runtime.getRuntime().availableProcessors();
+            admissionFilter = new TokenEndpointAdmissionFilter(maxConcurrent, tokenQueueSize, tokenQueueTimeout,
+                    tokenRetryAfter, meterRegistry);
+            http.addFilterBefore(admissionFilter, CsrfFilter.class);
+        }
+
+        // Batch token endpoint, answered entirely by the filter (HTTP Basic caller plus per-entry client
+        // authentication, no CSRF); it shares the rate limit and admission slots with /oauth2/token
+        String batchTokenEndpoint = authorizationServerSettings.getSetting(BatchTokenEndpointFilter.ENDPOINT);
+        if (batchTokenEndpoint != null) {
+            http.addFilterBefore(new BatchTokenEndpointFilter(batchTokenEndpoint, registeredClientRepository,
+                    passwordEncoder, authorizationService, tokenGenerator, authenticationManager, clientRateLimitFilter,
+                    admissionFilter, tokenBatchMaxSize, meterRegistry), CsrfFilter.class);
+        }
+
+        // Revoked access token ids for resource servers, public like the JWK set
+        String revocationListEndpoint = authorizationServerSettings.getSetting(RevocationListEndpointFilter.ENDPOINT);
+        if (revocationListEndpoint != null) {
+            http.addFilterBefore(new RevocationListEndpointFilter(revocationListEndpoint, revocationList),
+                    CsrfFilter.class);
+        }
+
         OAuth2AuthorizationServerConfigurer authorizationServerConfigurer =
                 new OAuth2AuthorizationServerConfigurer();
 
@@ -44,14 +110,66 @@ public class SecurityConfig {
                                         registeredClientRepository,
                                         authorizationService,
                                         tokenGenerator,
-                                        authenticationManager
+                                        authenticationManager,
+                                        meterRegistry
+                                )
+                        )
+                        // refresh_token: rotated on every use, no password check (replaces the default provider);
+                        // in cluster mode a token is claimed once across all nodes
+                        .authenticationProvider(
+                                new RefreshTokenGrantAuthenticationProvider(
+                                        authorizationService,
+                                        tokenGenerator,
+                                        userDetailsService,
+                                        revocationList,
+                                        sharedState.orElse(null),
+                                        meterRegistry
                                 )
                         )
                 );
 
+        // /oauth2/revoke: once the authorization is invalidated, publish its access token's jti
+        authorizationServerConfigurer
+                .tokenRevocationEndpoint(revocationEndpoint -> revocationEndpoint
+                        .revocationResponseHandler((request, response, authentication) -> {
+                            OAuth2TokenRevocationAuthenticationToken revocation =
+                                    (OAuth2TokenRevocationAuthenticationToken) authentication;
+                            OAuth2Authorization authorization =
+                                    authorizationService.findByToken(revocation.getToken(), null);
+                            if (authorization != null && authorization.getAccessToken() != null
+                                    && authorization.getAccessToken().isInvalidated()) {
+                                revocationList.revoke(authorization);
+                            }
+                            response.setStatus(HttpServletResponse.SC_OK);
+                        })
+                );
+
+        // Failed client authentication on the token endpoint, counted by error code and charged to the source
+        // address; an authenticated client over its rate limit is answered with 429
+        MeterProvider<Counter> clientAuthenticationFailures = Counter.builder("auth.client_authentication.failures")
+                .description("Token requests rejected because the client could not be authenticated")
+                .withRegistry(meterRegistry);
+        OAuth2ErrorAuthenticationFailureHandler clientErrorHandler = new OAuth2ErrorAuthenticationFailureHandler();
+        authorizationServerConfigurer
+                .clientAuthentication(clientAuthentication -> clientAuthentication
+                        .authenticationSuccessHandler(clientRateLimitFilter.authenticationSuccessHandler())
+                        .errorResponseHandler((request, response, exception) -> {
+                            if (exception instanceof ClientRateLimitFilter.RateLimitExceededException throttled) {
+                                ClientRateLimitFilter.reject(response, throttled.waitNanos());
+                                return;
+                            }
+                            clientRateLimitFilter.recordFailure(request.getRemoteAddr());
+                            String errorCode = exception instanceof OAuth2AuthenticationException oauth2Exception
+                                    ? oauth2Exception.getError().getErrorCode()
+                                    : OAuth2ErrorCodes.INVALID_CLIENT;
+                            clientAuthenticationFailures.withTags("error", errorCode).increment();
+                            clientErrorHandler.onAuthenticationFailure(request, response, exception);
+                        })
+                );
+
         // Client auth hataları
         http.exceptionHandling(ex ->
-                ex.authenticationEntryPoint(new CustomClientAuthEntryPoint())
+                ex.authenticationEntryPoint(new CustomClientAuthEntryPoint(meterRegistry))
         );
 
         // token POST'u için CSRF kapatma
@@ -68,6 +186,8 @@ public class SecurityConfig {
         http
                 .securityMatcher("/**")   // tüm diğer pathler
                 .authorizeHttpRequests(auth -> auth
+                        // scraped by Prometheus on the separate management port (MANAGEMENT_PORT), never the public one
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
                 .formLogin(Customizer.withDefaults());
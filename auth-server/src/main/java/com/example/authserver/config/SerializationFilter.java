@@ -0,0 +1,29 @@
+package com.example.authserver.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+
+/**
+ * Allow-list for the Java-serialized state this server reads back (its authorization log, and the
+ * authorizations and clients kept in a {@link SharedStateBackend}).
+ * <p>
+ * Only JDK, Spring Security and this application's classes may be instantiated, so a tampered log file or
+ * backend entry cannot reach a deserialization gadget on the classpath; anything else fails the read with
+ * an {@link java.io.InvalidClassException}.
+ */
+final class SerializationFilter {
+
+    static final ObjectInputFilter ALLOWED = ObjectInputFilter.Config.createFilter(
+            "maxdepth=64;java.base/*;org.springframework.security.**;com.example.authserver.**;!*");
+
+    private SerializationFilter() {
+    }
+
+    static ObjectInputStream objectInputStream(byte[] payload) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload));
+        in.setObjectInputFilter(ALLOWED);
+        return in;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.authserver.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Authorization store shared by all nodes through a {@link SharedStateBackend}.
+ * <p>
+ * Authorizations are kept (Java-serialized) in the {@value #AUTHORIZATIONS} region and every token value
+ * (access / refresh / code / state) maps to its authorization id in {@value #TOKENS}; both expire with the
+ * authorization's longest-lived token, or after the default TTL. Each node keeps a bounded near-cache of
+ * what it read, dropped entry by entry on the backend's change events; {@code nearCacheTimeToLive} bounds
+ * how stale an entry can get if an event is lost. A token index entry is only trusted once the
+ * authorization it points to really holds the token, so leftovers of an older version are harmless.
+ */
+public class SharedOAuth2AuthorizationService implements BulkOAuth2AuthorizationService {
+
+    static final String AUTHORIZATIONS = "authorizations";
+    static final String TOKENS = "authorization-tokens";
+
+    private final SharedStateBackend backend;
+    private final Duration defaultTimeToLive;
+
+    // authorization id -> authorization, token value -> authorization id; only what this node has read
+    private final Cache<String, OAuth2Authorization> authorizations;
+    private final Cache<String, String> tokenIndex;
+
+    public SharedOAuth2AuthorizationService(SharedStateBackend backend, long nearCacheMaximumSize,
+                                            Duration defaultTimeToLive, Duration nearCacheTimeToLive) {
+        Assert.notNull(backend, "backend cannot be null");
+        Assert.isTrue(nearCacheMaximumSize > 0, "nearCacheMaximumSize must be greater than 0");
+        Assert.notNull(defaultTimeToLive, "defaultTimeToLive cannot be null");
+        Assert.notNull(nearCacheTimeToLive, "nearCacheTimeToLive cannot be null");
+        this.backend = backend;
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.authorizations = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaximumSize)
+                .expireAfterWrite(nearCacheTimeToLive)
+                .recordStats()
+                .build();
+        this.tokenIndex = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaximumSize)
+                .expireAfterWrite(nearCacheTimeToLive)
+                .build();
+        backend.subscribe(AUTHORIZATIONS, this.authorizations::invalidate);
+        backend.subscribe(TOKENS, this.tokenIndex::invalidate);
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        Instant expiresAt = expiresAt(authorization);
+        byte[] id = authorization.getId().getBytes(StandardCharsets.UTF_8);
+        // index first so findByToken on any node never sees the authorization without its tokens
+        for (String tokenValue : BoundedOAuth2AuthorizationService.tokenValues(authorization)) {
+            this.backend.put(TOKENS, tokenValue, id, expiresAt);
+        }
+        this.backend.put(AUTHORIZATIONS, authorization.getId(), serialize(authorization), expiresAt);
+        // the backend's own event may arrive later; this node reads its write either way
+        this.authorizations.invalidate(authorization.getId());
+    }
+
+    // one bulk put of all token index entries, then one of all authorizations, in the same order as save
+    @Override
+    public void saveAll(Collection<OAuth2Authorization> authorizations) {
+        Assert.notNull(authorizations, "authorizations cannot be null");
+        Map<String, SharedStateBackend.Entry> tokens = new HashMap<>();
+        Map<String, SharedStateBackend.Entry> values = new HashMap<>();
+        for (OAuth2Authorization authorization : authorizations) {
+            Assert.notNull(authorization, "authorization cannot be null");
+            Instant expiresAt = expiresAt(authorization);
+            byte[] id = authorization.getId().getBytes(StandardCharsets.UTF_8);
+            for (String tokenValue : BoundedOAuth2AuthorizationService.tokenValues(authorization)) {
+                tokens.put(tokenValue, new SharedStateBackend.Entry(id, expiresAt));
+            }
+            values.put(authorization.getId(), new SharedStateBackend.Entry(serialize(authorization), expiresAt));
+        }
+        this.backend.putAll(TOKENS, tokens);
+        this.backend.putAll(AUTHORIZATIONS, values);
+        this.authorizations.invalidateAll(values.keySet());
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        this.backend.remove(AUTHORIZATIONS, authorization.getId());
+        for (String tokenValue : BoundedOAuth2AuthorizationService.tokenValues(authorization)) {
+            this.backend.remove(TOKENS, tokenValue);
+        }
+        this.authorizations.invalidate(authorization.getId());
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        // an invalidation during the load waits for it, so a value read before a change is never kept
+        return this.authorizations.get(id, this::load);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String id = this.tokenIndex.get(token, value -> {
+            byte[] authorizationId = this.backend.get(TOKENS, value);
+            return authorizationId != null ? new String(authorizationId, StandardCharsets.UTF_8) : null;
+        });
+        if (id == null) {
+            return null;
+        }
+        OAuth2Authorization authorization = findById(id);
+        return authorization != null && BoundedOAuth2AuthorizationService.hasToken(authorization, token, tokenType)
+                ? authorization : null;
+    }
+
+    public long nearCacheHitCount() {
+        return this.authorizations.stats().hitCount();
+    }
+
+    public long nearCacheMissCount() {
+        return this.authorizations.stats().missCount();
+    }
+
+    private OAuth2Authorization load(String id) {
+        byte[] payload = this.backend.get(AUTHORIZATIONS, id);
+        return payload != null ? deserialize(id, payload) : null;
+    }
+
+    // the longest-lived token's expiry, like BoundedOAuth2AuthorizationService
+    private Instant expiresAt(OAuth2Authorization authorization) {
+        Instant access = expiresAt(authorization.getAccessToken());
+        Instant refresh = expiresAt(authorization.getRefreshToken());
+        Instant latest = access == null || (refresh != null && refresh.isAfter(access)) ? refresh : access;
+        return latest != null ? latest : Instant.now().plus(this.defaultTimeToLive);
+    }
+
+    private static Instant expiresAt(OAuth2Authorization.Token<? extends OAuth2Token> token) {
+        return token != null ? token.getToken().getExpiresAt() : null;
+    }
+
+    private static byte[] serialize(OAuth2Authorization authorization) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(authorization);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not serialize authorization " + authorization.getId(), ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static OAuth2Authorization deserialize(String id, byte[] payload) {
+        try (ObjectInputStream in = SerializationFilter.objectInputStream(payload)) {
+            return (OAuth2Authorization) in.readObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unreadable shared authorization " + id, ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("Unreadable shared authorization " + id, ex);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps each key as a private JWK (JSON) under its kid in the {@value #REGION} region of a
+ * {@link SharedStateBackend}. Keys never expire in the backend; {@link RotatingJwkSource} deletes them once
+ * retired. Subscribing {@link RotatingJwkSource#refresh()} to the region lets every node pick up a key as
+ * soon as another node generated it, instead of at its next scheduled check.
+ * <p>
+ * A claim is a create-if-absent entry in {@value #CLAIMS} holding the whole key, so a node that lost the race
+ * reads the winner's key from it (and stores it, in case the winner went down before it did).
+ */
+public class SharedSigningKeyStore implements SigningKeyStore {
+
+    static final String REGION = "signing-keys";
+    static final String CLAIMS = "signing-key-claims";
+
+    private static final Log logger = LogFactory.getLog(SharedSigningKeyStore.class);
+
+    private final SharedStateBackend backend;
+
+    public SharedSigningKeyStore(SharedStateBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public List<JWK> load() {
+        List<JWK> keys = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : this.backend.getAll(REGION).entrySet()) {
+            try {
+                keys.add(JWK.parse(new String(entry.getValue(), StandardCharsets.UTF_8)));
+            } catch (ParseException ex) {
+                logger.warn("Skipping unreadable shared signing key " + entry.getKey(), ex);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void save(JWK key) {
+        this.backend.put(REGION, key.getKeyID(), key.toJSONString().getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    @Override
+    public JWK saveIfAbsent(String claim, JWK key) {
+        byte[] value = key.toJSONString().getBytes(StandardCharsets.UTF_8);
+        while (!this.backend.putIfAbsent(CLAIMS, claim, value, Instant.now().plus(CLAIM_TTL))) {
+            byte[] claimed = this.backend.get(CLAIMS, claim);
+            if (claimed == null) {
+                continue; // lapsed in between
+            }
+            try {
+                JWK winner = JWK.parse(new String(claimed, StandardCharsets.UTF_8));
+                this.backend.putIfAbsent(REGION, winner.getKeyID(), claimed, null);
+                return winner;
+            } catch (ParseException ex) {
+                throw new IllegalStateException("Unreadable signing key claim " + claim, ex);
+            }
+        }
+        save(key);
+        return key;
+    }
+
+    @Override
+    public void delete(String keyId) {
+        this.backend.remove(REGION, keyId);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.authserver.config;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Storage shared by the auth-server nodes of a cluster: authorizations, registered clients, signing keys and
+ * revoked token ids.
+ * <p>
+ * Each kind of state lives in its own region of string keys and opaque values. Every write or removal is
+ * announced to the region's subscribers on all nodes, which is how nodes drop what they cached locally.
+ * Implementations wrap a networked store (Redis, Hazelcast, a database with notifications, ...);
+ * {@link InMemorySharedStateBackend} stands in for one within a single process.
+ */
+public interface SharedStateBackend {
+
+    // the value, or null when absent or expired
+    byte[] get(String region, String key);
+
+    // every live entry of the region
+    Map<String, byte[]> getAll(String region);
+
+    // expiresAt null keeps the entry until it is removed
+    void put(String region, String key, byte[] value, Instant expiresAt);
+
+    /**
+     * Writes many entries of one region, each with its own expiry. The default puts them one by one; a store
+     * with a bulk write (a Redis pipeline, Hazelcast {@code putAll}, a multi-row insert) should override it.
+     */
+    default void putAll(String region, Map<String, Entry> entries) {
+        entries.forEach((key, entry) -> put(region, key, entry.value(), entry.expiresAt()));
+    }
+
+    /**
+     * Writes the entry only if the key is absent (or expired), atomically across all nodes; true if this call
+     * wrote it. Used where nodes race to create the same thing, such as the first signing key.
+     */
+    boolean putIfAbsent(String region, String key, byte[] value, Instant expiresAt);
+
+    void remove(String region, String key);
+
+    /**
+     * Calls {@code listener} with the key of every entry of {@code region} written or removed from now on, by
+     * any node (this one included). Listeners must be quick; they may run on the writing thread.
+     */
+    void subscribe(String region, Consumer<String> listener);
+
+    // a value and its expiry, null for none
+    record Entry(byte[] value, Instant expiresAt) {
+
+        boolean isExpired(Instant now) {
+            return this.expiresAt != null && this.expiresAt.isBefore(now);
+        }
+    }
+}
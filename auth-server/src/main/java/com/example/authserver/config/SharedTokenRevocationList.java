@@ -0,0 +1,188 @@
+package com.example.authserver.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenRevocationList} kept in a {@link SharedStateBackend}, so every node publishes the same list
+ * under the same epoch and sequence numbers, and a resource server polling through a load balancer sees
+ * one list whichever node answers.
+ * <p>
+ * The epoch is chosen by the first node to start and kept in {@value #META}. Revoked ids live in
+ * {@value #REVOKED} until their token expires. Each revocation also claims the next slot of {@value #LOG}
+ * with a create-if-absent write, which stores the number and the entry in one step; a node that loses the
+ * race for a slot takes the one after it, so slots are filled in order. Where to start is read from the
+ * sequence counter in {@value #META}, which every claim moves forward, so neither a revocation nor a
+ * delta download has to read the whole log. A delta reads the slots after the caller's sequence up to the
+ * first one not written yet.
+ * <p>
+ * Every {@code pruneInterval} each node drops the slots whose token expired more than a minute ago. Slots
+ * from the counter on are never dropped, so a number is never handed out twice.
+ */
+public class SharedTokenRevocationList extends TokenRevocationList implements DisposableBean {
+
+    static final String REVOKED = "revoked-tokens";
+    static final String LOG = "revocation-log";
+    static final String META = "revocation-list";
+
+    private static final String SEQUENCE = "sequence";
+
+    private static final Log logger = LogFactory.getLog(SharedTokenRevocationList.class);
+
+    // far longer than a revoke() takes between reading the counter and moving it past its slot
+    private static final long PRUNE_GRACE_SECONDS = 60;
+
+    // a caller further behind gets its delta computed from the whole log, in one read
+    private static final int MAX_SLOT_READS = 64;
+
+    private final SharedStateBackend backend;
+    private final String epoch;
+    private final ScheduledExecutorService pruner;
+
+    public SharedTokenRevocationList(SharedStateBackend backend, Duration pruneInterval) {
+        Assert.notNull(backend, "backend cannot be null");
+        Assert.isTrue(pruneInterval.compareTo(Duration.ZERO) > 0, "pruneInterval must be positive");
+        this.backend = backend;
+        backend.putIfAbsent(META, "epoch", UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8), null);
+        this.epoch = new String(backend.get(META, "epoch"), StandardCharsets.UTF_8);
+
+        this.pruner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revocation-log-prune");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = pruneInterval.toMillis();
+        this.pruner.scheduleWithFixedDelay(this::pruneQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void revoke(String jti, Instant expiresAt) {
+        Assert.hasText(jti, "jti cannot be empty");
+        Assert.notNull(expiresAt, "expiresAt cannot be null");
+        if (expiresAt.isBefore(Instant.now())
+                || !this.backend.putIfAbsent(REVOKED, jti, new byte[0], expiresAt)) {
+            return;
+        }
+        byte[] entry = (expiresAt.getEpochSecond() + " " + jti).getBytes(StandardCharsets.UTF_8);
+        long slot = sequence() + 1;
+        while (!this.backend.putIfAbsent(LOG, Long.toString(slot), entry, null)) {
+            slot++;
+        }
+        // a concurrent claim may move it back by a slot or two; the next claim skips over them again
+        if (slot > sequence()) {
+            this.backend.put(META, SEQUENCE, Long.toString(slot).getBytes(StandardCharsets.UTF_8), null);
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String jti) {
+        return this.backend.get(REVOKED, jti) != null;
+    }
+
+    @Override
+    public Changes changesSince(String epoch, long sequence) {
+        long counter = sequence();
+        NavigableMap<Long, Revocation> log;
+        long latest;
+        if (this.epoch.equals(epoch) && sequence > 0 && counter - sequence <= MAX_SLOT_READS) {
+            log = readSlotsAfter(sequence, counter);
+            latest = Math.max(counter, log.isEmpty() ? sequence : log.lastKey());
+        } else {
+            log = readLog();
+            latest = Math.max(counter, log.isEmpty() ? 0 : log.lastKey());
+        }
+        long now = Instant.now().getEpochSecond();
+        log.values().removeIf(revocation -> revocation.exp() < now);
+        return changes(this.epoch, latest, log, epoch, sequence);
+    }
+
+    @Override
+    public int size() {
+        return this.backend.getAll(REVOKED).size();
+    }
+
+    // drops slots whose token expired a while ago; every node runs it, on its own schedule
+    public void prune() {
+        long counter = sequence();
+        long now = Instant.now().getEpochSecond();
+        for (Map.Entry<Long, Revocation> slot : readLog().entrySet()) {
+            if (slot.getKey() < counter && slot.getValue().exp() < now - PRUNE_GRACE_SECONDS) {
+                this.backend.remove(LOG, Long.toString(slot.getKey()));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.pruner.shutdownNow();
+    }
+
+    private void pruneQuietly() {
+        try {
+            prune();
+        } catch (RuntimeException ex) {
+            logger.error("Pruning the shared revocation log failed", ex);
+        }
+    }
+
+    private long sequence() {
+        byte[] value = this.backend.get(META, SEQUENCE);
+        return value != null ? Long.parseLong(new String(value, StandardCharsets.UTF_8)) : 0;
+    }
+
+    // slots up to the counter may be missing because they were pruned; past it, the first gap ends the read
+    private NavigableMap<Long, Revocation> readSlotsAfter(long sequence, long counter) {
+        NavigableMap<Long, Revocation> log = new TreeMap<>();
+        for (long slot = sequence + 1; ; slot++) {
+            byte[] value = this.backend.get(LOG, Long.toString(slot));
+            if (value != null) {
+                Revocation revocation = parse(slot, value);
+                if (revocation != null) {
+                    log.put(slot, revocation);
+                }
+            } else if (slot > counter) {
+                return log;
+            }
+        }
+    }
+
+    private NavigableMap<Long, Revocation> readLog() {
+        NavigableMap<Long, Revocation> log = new TreeMap<>();
+        this.backend.getAll(LOG).forEach((slot, value) -> {
+            try {
+                long number = Long.parseLong(slot);
+                Revocation revocation = parse(number, value);
+                if (revocation != null) {
+                    log.put(number, revocation);
+                }
+            } catch (NumberFormatException ex) {
+                logger.warn("Skipping unreadable revocation log slot " + slot);
+            }
+        });
+        return log;
+    }
+
+    private static Revocation parse(long slot, byte[] value) {
+        String entry = new String(value, StandardCharsets.UTF_8);
+        int separator = entry.indexOf(' ');
+        try {
+            return new Revocation(entry.substring(separator + 1), Long.parseLong(entry.substring(0, separator)));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException ex) {
+            logger.warn("Skipping unreadable revocation log slot " + slot);
+            return null;
+        }
+    }
+}
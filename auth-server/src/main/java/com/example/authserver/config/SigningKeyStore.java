@@ -0,0 +1,29 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.jwk.JWK;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Where {@link RotatingJwkSource} keeps its signing keys (private parts included).
+ * Nodes that share a store publish and sign with the same keys.
+ */
+public interface SigningKeyStore {
+
+    Duration CLAIM_TTL = Duration.ofMinutes(10);
+
+    List<JWK> load();
+
+    void save(JWK key);
+
+    /**
+     * Saves {@code key} unless a key was already saved under {@code claim} (such as "the successor of key X"),
+     * and returns the key holding the claim, so nodes racing to generate the same key all end up with one.
+     * Stores shared between nodes must make the claim atomic across them. A claim lapses after
+     * {@link #CLAIM_TTL}, by which time its key is long in the store.
+     */
+    JWK saveIfAbsent(String claim, JWK key);
+
+    void delete(String keyId);
+}
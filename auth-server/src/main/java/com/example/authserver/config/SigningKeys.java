@@ -0,0 +1,119 @@
+package com.example.authserver.config;
+
+import com.example.common.Ed25519Keys;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Key material for the configured JWS algorithm.
+ * <p>
+ * EC keys (ES256 / ES384 / ES512) sign an order of magnitude faster than 2048-bit RSA, which is the
+ * dominant CPU cost of a token request, and Ed25519 ({@link #EDDSA}) faster still. Spring's
+ * {@link SignatureAlgorithm} has no EdDSA member and Nimbus signs Ed25519 only through Tink, so EdDSA has
+ * its own {@link JwsAlgorithm} here and its own encoder ({@link EdDsaJwtEncoder}) on the JDK's provider.
+ */
+public final class SigningKeys {
+
+    // Ed25519 signatures (RFC 8037)
+    public static final JwsAlgorithm EDDSA = EdDsa.EDDSA;
+
+    private SigningKeys() {
+    }
+
+    public static JwsAlgorithm algorithm(String name) {
+        if (EDDSA.getName().equals(name)) {
+            return EDDSA;
+        }
+        SignatureAlgorithm algorithm = SignatureAlgorithm.from(name);
+        if (algorithm == null) {
+            throw new IllegalStateException("Unsupported signing algorithm: " + name
+                    + " (expected one of RS256, RS384, RS512, PS256, PS384, PS512, ES256, ES384, ES512, EdDSA)");
+        }
+        return algorithm;
+    }
+
+    // Encoder able to sign with keys of the given algorithm from jwkSource
+    public static JwtEncoder encoder(JwsAlgorithm algorithm, JWKSource<SecurityContext> jwkSource) {
+        return algorithm == EDDSA ? new EdDsaJwtEncoder(jwkSource) : new NimbusJwtEncoder(jwkSource);
+    }
+
+    // Generates a fresh signing key (with a random kid) for the given algorithm
+    public static JWK generate(JwsAlgorithm algorithm) {
+        return generate(algorithm, Instant.now());
+    }
+
+    // Same, but the key only starts signing at notBefore (published in the JWK set before that)
+    public static JWK generate(JwsAlgorithm algorithm, Instant notBefore) {
+        JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(algorithm.getName());
+        String keyId = UUID.randomUUID().toString();
+        Date issuedAt = new Date();
+        try {
+            if (algorithm == EDDSA) {
+                return Ed25519Keys.generate()
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(jwsAlgorithm)
+                        .keyID(keyId)
+                        .issueTime(issuedAt)
+                        .notBeforeTime(Date.from(notBefore))
+                        .build();
+            }
+            Curve curve = curve(SignatureAlgorithm.from(algorithm.getName()));
+            if (curve != null) {
+                return new ECKeyGenerator(curve)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(jwsAlgorithm)
+                        .keyID(keyId)
+                        .issueTime(issuedAt)
+                        .notBeforeTime(Date.from(notBefore))
+                        .generate();
+            }
+            return new RSAKeyGenerator(RSAKeyGenerator.MIN_KEY_SIZE_BITS)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(jwsAlgorithm)
+                    .keyID(keyId)
+                    .issueTime(issuedAt)
+                    .notBeforeTime(Date.from(notBefore))
+                    .generate();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Curve curve(SignatureAlgorithm algorithm) {
+        switch (algorithm) {
+            case ES256:
+                return Curve.P_256;
+            case ES384:
+                return Curve.P_384;
+            case ES512:
+                return Curve.P_521;
+            default:
+                return null;
+        }
+    }
+
+    private enum EdDsa implements JwsAlgorithm {
+
+        EDDSA;
+
+        @Override
+        public String getName() {
+            return "EdDSA";
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.authserver.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for {@code POST /oauth2/token}, placed before client authentication.
+ * <p>
+ * At most {@code maxConcurrent} token requests do their CPU-heavy work (client secret and password BCrypt,
+ * signing) at once. Up to {@code queueSize} more wait for a slot, each for at most {@code queueTimeout};
+ * anything beyond that is answered immediately with {@code 503}, {@code Retry-After} and the OAuth2
+ * {@code temporarily_unavailable} error, so a burst cannot push the node past the throughput it can sustain.
+ */
+public class TokenEndpointAdmissionFilter extends OncePerRequestFilter {
+
+    private static final RequestMatcher TOKEN_REQUEST =
+            PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/oauth2/token");
+
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final String retryAfterSeconds;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    public TokenEndpointAdmissionFilter(int maxConcurrent, int queueSize, Duration queueTimeout, Duration retryAfter,
+                                        MeterRegistry meterRegistry) {
+        Assert.isTrue(maxConcurrent > 0, "maxConcurrent must be greater than 0");
+        Assert.isTrue(queueSize >= 0, "queueSize cannot be negative");
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.rejected = Counter.builder("auth.admission.rejected")
+                .description("Token requests shed because the node was at capacity")
+                .register(meterRegistry);
+        Gauge.builder("auth.admission.in_flight", this.inFlight, AtomicInteger::get)
+                .description("Token requests currently being processed")
+                .register(meterRegistry);
+        Gauge.builder("auth.admission.waiting", this.waiting, AtomicInteger::get)
+                .description("Token requests waiting for a processing slot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !TOKEN_REQUEST.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (admit(1) == 0) {
+            reject(response);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            release(1);
+        }
+    }
+
+    /**
+     * Takes {@code slots} processing slots (at most {@code maxConcurrent}) under the same queueing rules as a
+     * single token request; returns how many were taken, 0 when the caller must be rejected. Used by
+     * {@link BatchTokenEndpointFilter}, whose entries run several at a time.
+     */
+    int admit(int slots) {
+        int wanted = Math.min(Math.max(slots, 1), this.maxConcurrent);
+        if (!acquire(wanted)) {
+            return 0;
+        }
+        this.inFlight.addAndGet(wanted);
+        return wanted;
+    }
+
+    void release(int slots) {
+        this.inFlight.addAndGet(-slots);
+        this.permits.release(slots);
+    }
+
+    private boolean acquire(int slots) {
+        if (this.permits.tryAcquire(slots)) {
+            return true;
+        }
+        if (this.waiting.incrementAndGet() > this.queueSize) {
+            this.waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return this.permits.tryAcquire(slots, this.queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.waiting.decrementAndGet();
+        }
+    }
+
+    void reject(HttpServletResponse response) throws IOException {
+        this.rejected.increment();
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", this.retryAfterSeconds);
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentType("application/json");
+        response.getWriter().write("""
+                {"error":"%s","error_description":"The authorization server is at capacity, retry later"}
+                """.formatted(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE).strip());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.authserver.config;
+
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shape of the access tokens issued to a client, chosen per client with the {@link #SETTING} client setting.
+ * <p>
+ * {@link #STANDARD} tokens carry the scopes as a {@code scope} array. {@link #COMPACT} tokens carry them once,
+ * as the space-separated {@code scp} string, and drop claims that repeat another one: {@code nbf} when it
+ * equals {@code iat}, and {@code client_id} when it equals the single {@code aud}.
+ * Spring resource servers read {@code scp} without configuration, so only the token shrinks; {@code jti},
+ * {@code exp}, {@code iss}, {@code sub} and {@code aud} are always kept.
+ */
+public enum TokenProfile {
+
+    STANDARD,
+    COMPACT;
+
+    // ClientSettings key holding the profile name ("standard" / "compact"); unset means STANDARD
+    public static final String SETTING = "settings.client.token-profile";
+
+    static final String COMPACT_SCOPE_CLAIM = "scp";
+
+    public static TokenProfile of(RegisteredClient registeredClient) {
+        if (registeredClient == null) {
+            return STANDARD;
+        }
+        Object value = registeredClient.getClientSettings().getSetting(SETTING);
+        return value instanceof TokenProfile profile ? profile : value != null ? parse(value.toString()) : STANDARD;
+    }
+
+    public static TokenProfile parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown token profile '" + value + "', expected standard or compact");
+        }
+    }
+
+    // rewrites the claims of an access token built by JwtGenerator into the compact shape
+    static void compact(JwtClaimsSet.Builder claims, ScopeSet scopes) {
+        claims.claims(map -> {
+            map.remove("scope");
+            if (!scopes.isEmpty()) {
+                map.put(COMPACT_SCOPE_CLAIM, scopes.toString());
+            }
+            Object notBefore = map.get(JwtClaimNames.NBF);
+            if (notBefore != null && notBefore.equals(map.get(JwtClaimNames.IAT))) {
+                map.remove(JwtClaimNames.NBF);
+            }
+            Object clientId = map.get("client_id");
+            if (clientId != null && map.get(JwtClaimNames.AUD) instanceof List<?> audience
+                    && audience.size() == 1 && clientId.equals(audience.get(0))) {
+                map.remove("client_id");
+            }
+        });
+    }
+}
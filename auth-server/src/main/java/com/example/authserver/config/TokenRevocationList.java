@@ -0,0 +1,110 @@
+package com.example.authserver.config;
+
+import com.example.common.BloomFilter;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids ({@code jti}) of access tokens revoked before their {@code exp}, published to resource servers.
+ * <p>
+ * Each revocation gets the next sequence number, so a resource server that has seen up to {@code n} only
+ * downloads what came after it. A full download also carries a Bloom filter of every live entry: the
+ * resource server answers "not revoked" for almost every token from the filter alone and only consults the
+ * exact set on a filter hit. Entries are dropped once their token has expired. The list is in memory; the
+ * {@code epoch} changes on restart, which makes resource servers fetch the full list again. Nodes of a
+ * cluster share one list instead, see {@link SharedTokenRevocationList}.
+ */
+public class TokenRevocationList {
+
+    private final String epoch = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // jti -> revocation, and the same revocations in publication order
+    private final Map<String, Revocation> revoked = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Revocation> log = new ConcurrentSkipListMap<>();
+
+    // publishes the access token of an authorization that was revoked or removed early
+    public void revoke(OAuth2Authorization authorization) {
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken == null || accessToken.getClaims() == null) {
+            return;
+        }
+        Object jti = accessToken.getClaims().get("jti");
+        if (jti != null) {
+            revoke(jti.toString(), accessToken.getToken().getExpiresAt());
+        }
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        Assert.hasText(jti, "jti cannot be empty");
+        Assert.notNull(expiresAt, "expiresAt cannot be null");
+        if (expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        Revocation revocation = new Revocation(jti, expiresAt.getEpochSecond());
+        if (this.revoked.putIfAbsent(jti, revocation) == null) {
+            // numbered and logged together, so a reader never sees a sequence whose entry is not in the log yet
+            synchronized (this.log) {
+                this.log.put(this.sequence.incrementAndGet(), revocation);
+            }
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        Revocation revocation = this.revoked.get(jti);
+        return revocation != null && revocation.exp() >= Instant.now().getEpochSecond();
+    }
+
+    /**
+     * Revocations after {@code sequence}, or everything (with a Bloom filter) when the caller has nothing
+     * yet or knew a previous epoch.
+     */
+    public Changes changesSince(String epoch, long sequence) {
+        pruneExpired();
+        long latest;
+        synchronized (this.log) {
+            latest = this.sequence.get();
+        }
+        return changes(this.epoch, latest, this.log, epoch, sequence);
+    }
+
+    public int size() {
+        return this.revoked.size();
+    }
+
+    // what a caller at (epoch, sequence) is missing from a log that is complete up to latest
+    static Changes changes(String currentEpoch, long latest, NavigableMap<Long, Revocation> log,
+                           String epoch, long sequence) {
+        if (!currentEpoch.equals(epoch) || sequence <= 0 || sequence > latest) {
+            List<Revocation> all = new ArrayList<>(log.headMap(latest, true).values());
+            BloomFilter bloom = BloomFilter.create(all.size());
+            all.forEach(revocation -> bloom.add(revocation.jti()));
+            return new Changes(currentEpoch, latest, true, all, bloom);
+        }
+        return new Changes(currentEpoch, latest, false,
+                new ArrayList<>(log.subMap(sequence, false, latest, true).values()), null);
+    }
+
+    private void pruneExpired() {
+        long now = Instant.now().getEpochSecond();
+        this.log.values().removeIf(revocation -> revocation.exp() < now);
+        this.revoked.values().removeIf(revocation -> revocation.exp() < now);
+    }
+
+    public record Revocation(String jti, long exp) {
+    }
+
+    public record Changes(String epoch, long sequence, boolean full, List<Revocation> revoked, BloomFilter bloom) {
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.example.authserver.config.AuthorizationServerConfig;
+import com.example.authserver.config.BatchTokenEndpointFilter;
+import com.example.authserver.config.BoundedOAuth2AuthorizationService;
+import com.example.authserver.config.ClientRateLimitFilter;
+import com.example.authserver.config.CustomRegisteredClientRepository;
+import com.example.authserver.config.CustomUserDetailsService;
+import com.example.authserver.config.RotatingJwkSource;
+import com.example.authserver.config.TokenEndpointAdmissionFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import tools.jackson.databind.json.JsonMapper;
+
+class BatchTokenEndpointFilterTest {
+
+    private final AuthorizationServerConfig config = new AuthorizationServerConfig();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final CustomRegisteredClientRepository clients =
+            new CustomRegisteredClientRepository(encoder, "", Duration.ofSeconds(30));
+    private final CustomUserDetailsService users = new CustomUserDetailsService(encoder, "", Duration.ofSeconds(30));
+    private final BoundedOAuth2AuthorizationService authorizationService =
+            new BoundedOAuth2AuthorizationService(1_000, Duration.ofHours(1));
+    private final RotatingJwkSource jwkSource = config.jwkSource(SignatureAlgorithm.ES256, Optional.empty(), "",
+            Duration.ofDays(7), Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(1));
+
+    private final BatchTokenEndpointFilter filter = filter(new ClientRateLimitFilter(clients, 0, 1, 0, 1, registry),
+            new TokenEndpointAdmissionFilter(2, 0, Duration.ZERO, Duration.ofSeconds(1), registry));
+
+    @BeforeEach
+    void setUp() {
+        // set by the authorization server's context filter in the real chain
+        AuthorizationServerSettings settings = AuthorizationServerSettings.builder()
+                .issuer("http://auth-server:9000")
+                .build();
+        AuthorizationServerContextHolder.setContext(new AuthorizationServerContext() {
+            @Override
+            public String getIssuer() {
+                return settings.getIssuer();
+            }
+
+            @Override
+            public AuthorizationServerSettings getAuthorizationServerSettings() {
+                return settings;
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        AuthorizationServerContextHolder.resetContext();
+        jwkSource.destroy();
+    }
+
+    @Test
+    void shouldAnswerEveryEntryInOrder() throws Exception {
+        MockHttpServletResponse response = post("""
+                {"requests": [
+                  {"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345", "scope": "product.read"},
+                  {"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "wrong"},
+                  {"grant_type": "password", "client_id": "mehmet", "client_secret": "12345",
+                   "username": "ahmet", "password": "12345"}
+                ]}
+                """);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Cache-Control")).isEqualTo("no-store");
+        List<Map<String, Object>> responses = responses(response);
+        assertThat(responses).hasSize(3);
+        assertThat(responses.get(0)).containsKey("access_token").containsEntry("scope", "product.read");
+        assertThat(responses.get(1)).containsEntry("error", "invalid_client").doesNotContainKey("access_token");
+        assertThat(responses.get(2)).containsKeys("access_token", "refresh_token");
+
+        // the issued tokens were saved once the batch completed
+        String accessToken = (String) responses.get(0).get("access_token");
+        assertThat(authorizationService.findByToken(accessToken, OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+        String refreshToken = (String) responses.get(2).get("refresh_token");
+        assertThat(authorizationService.findByToken(refreshToken, OAuth2TokenType.REFRESH_TOKEN)).isNotNull();
+    }
+
+    @Test
+    void shouldReportUnsupportedGrantPerEntry() throws Exception {
+        MockHttpServletResponse response = post("""
+                {"requests": [{"grant_type": "authorization_code", "client_id": "ahmet", "client_secret": "12345"}]}
+                """);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(responses(response).get(0)).containsEntry("error", "unsupported_grant_type");
+    }
+
+    @Test
+    void shouldRejectOversizedOrMalformedBatch() throws Exception {
+        String entry = """
+                {"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345"}""";
+        MockHttpServletResponse tooLarge = post("{\"requests\": [" + String.join(",", entry, entry, entry, entry) + "]}");
+        MockHttpServletResponse malformed = post("{\"requests\": ");
+        MockHttpServletResponse empty = post("{\"requests\": []}");
+
+        assertThat(tooLarge.getStatus()).isEqualTo(400);
+        assertThat(tooLarge.getContentAsString()).contains("invalid_request");
+        assertThat(malformed.getStatus()).isEqualTo(400);
+        assertThat(empty.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void shouldRequireAnAuthenticatedCaller() throws Exception {
+        String body = """
+                {"requests": [{"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345"}]}
+                """;
+
+        MockHttpServletResponse anonymous = post(filter, null, body);
+        MockHttpServletResponse wrongSecret = post(filter, "ahmet:wrong", body);
+
+        assertThat(anonymous.getStatus()).isEqualTo(401);
+        assertThat(anonymous.getContentAsString()).contains("invalid_client");
+        assertThat(wrongSecret.getStatus()).isEqualTo(401);
+        assertThat(wrongSecret.getContentAsString()).doesNotContain("access_token");
+    }
+
+    @Test
+    void shouldChargeEveryEntryToItsClientsRateLimit() throws Exception {
+        // one request per second with a burst of two: the caller's request and one entry of "ahmet"
+        BatchTokenEndpointFilter limited = filter(new ClientRateLimitFilter(clients, 1, 2, 0, 1, registry), null);
+        String entry = """
+                {"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345"}""";
+
+        MockHttpServletResponse response = post(limited, "ahmet:12345", "{\"requests\": [" + entry + "," + entry + "]}");
+
+        // entries run in parallel, either one may get the last request of the budget
+        List<Map<String, Object>> responses = responses(response);
+        assertThat(responses).filteredOn(entryResponse -> entryResponse.containsKey("access_token")).hasSize(1);
+        assertThat(responses).filteredOn(entryResponse -> "temporarily_unavailable".equals(entryResponse.get("error")))
+                .hasSize(1);
+        // the caller is out of budget now
+        assertThat(post(limited, "ahmet:12345", "{\"requests\": [" + entry + "]}").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void shouldNotChargeClientsForEntriesWithWrongSecret() throws Exception {
+        BatchTokenEndpointFilter limited = filter(new ClientRateLimitFilter(clients, 1, 2, 0, 1, registry), null);
+        String wrong = """
+                {"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "wrong"}""";
+        String right = """
+                {"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345"}""";
+
+        // the caller is "mehmet", so only the entries count against "ahmet"
+        post(limited, "mehmet:12345", "{\"requests\": [" + wrong + "," + wrong + "," + wrong + "]}");
+        List<Map<String, Object>> responses =
+                responses(post(limited, "mehmet:12345", "{\"requests\": [" + right + "]}"));
+
+        assertThat(responses.get(0)).containsKey("access_token");
+    }
+
+    @Test
+    void shouldTurnAwaySourceAfterTooManyFailedAuthentications() throws Exception {
+        BatchTokenEndpointFilter limited = filter(new ClientRateLimitFilter(clients, 0, 1, 1, 2, registry), null);
+        String body = """
+                {"requests": [{"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345"}]}
+                """;
+
+        assertThat(post(limited, "ahmet:wrong", body).getStatus()).isEqualTo(401);
+        assertThat(post(limited, "ahmet:wrong", body).getStatus()).isEqualTo(401);
+
+        // the right secret from the same address waits too, before any BCrypt
+        assertThat(post(limited, "ahmet:12345", body).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void shouldTakeAdmissionSlotsForTheBatch() throws Exception {
+        TokenEndpointAdmissionFilter admission =
+                new TokenEndpointAdmissionFilter(1, 0, Duration.ZERO, Duration.ofSeconds(1), registry);
+        BatchTokenEndpointFilter admitted = filter(new ClientRateLimitFilter(clients, 0, 1, 0, 1, registry), admission);
+        String body = """
+                {"requests": [{"grant_type": "client_credentials", "client_id": "ahmet", "client_secret": "12345"}]}
+                """;
+
+        // the only slot is held by a token request in flight
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread tokenRequest = new Thread(() -> {
+            try {
+                admission.doFilter(new MockHttpServletRequest("POST", "/oauth2/token"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            entered.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        tokenRequest.start();
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse busy = post(admitted, "ahmet:12345", body);
+        release.countDown();
+        tokenRequest.join(5_000);
+
+        assertThat(busy.getStatus()).isEqualTo(503);
+        assertThat(busy.getContentAsString()).contains("temporarily_unavailable");
+        assertThat(post(admitted, "ahmet:12345", body).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldPassOtherRequestsThrough() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/oauth2/token"), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    private BatchTokenEndpointFilter filter(ClientRateLimitFilter rateLimit, TokenEndpointAdmissionFilter admission) {
+        return new BatchTokenEndpointFilter("/oauth2/token/batch", clients, encoder, authorizationService,
+                config.tokenGenerator(jwkSource, config.jwtCustomizer(), SignatureAlgorithm.ES256, registry),
+                config.userAuthenticationManager(users, encoder), rateLimit, admission, 3, registry);
+    }
+
+    private MockHttpServletResponse post(String body) throws Exception {
+        return post(filter, "mehmet:12345", body);
+    }
+
+    private static MockHttpServletResponse post(BatchTokenEndpointFilter filter, String basicCredentials, String body)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth2/token/batch");
+        if (basicCredentials != null) {
+            request.addHeader("Authorization", "Basic "
+                    + Base64.getEncoder().encodeToString(basicCredentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> responses(MockHttpServletResponse response) throws Exception {
+        Map<String, Object> body = JsonMapper.builder().build().readValue(response.getContentAsString(), Map.class);
+        return (List<Map<String, Object>>) body.get("responses");
+    }
+}
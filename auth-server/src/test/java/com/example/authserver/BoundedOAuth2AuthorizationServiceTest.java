@@ -0,0 +1,81 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import com.example.authserver.config.BoundedOAuth2AuthorizationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+class BoundedOAuth2AuthorizationServiceTest {
+
+    private final RegisteredClient client = RegisteredClient.withId("client-id")
+            .clientId("ahmet")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .build();
+
+    @Test
+    void shouldFindSavedAuthorizationByIdAndToken() {
+        BoundedOAuth2AuthorizationService service = new BoundedOAuth2AuthorizationService(10, Duration.ofHours(1));
+        OAuth2Authorization authorization = authorization("a1", "token-1", Duration.ofMinutes(5));
+
+        service.save(authorization);
+
+        assertThat(service.findById("a1")).isSameAs(authorization);
+        assertThat(service.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isSameAs(authorization);
+        assertThat(service.findByToken("token-1", null)).isSameAs(authorization);
+        assertThat(service.findByToken("token-1", OAuth2TokenType.REFRESH_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldForgetRemovedAuthorization() {
+        BoundedOAuth2AuthorizationService service = new BoundedOAuth2AuthorizationService(10, Duration.ofHours(1));
+        OAuth2Authorization authorization = authorization("a1", "token-1", Duration.ofMinutes(5));
+        service.save(authorization);
+
+        service.remove(authorization);
+
+        assertThat(service.findById("a1")).isNull();
+        assertThat(service.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldNotReturnExpiredAuthorization() {
+        BoundedOAuth2AuthorizationService service = new BoundedOAuth2AuthorizationService(10, Duration.ofHours(1));
+        service.save(authorization("a1", "token-1", Duration.ofSeconds(-1)));
+
+        assertThat(service.findById("a1")).isNull();
+        assertThat(service.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldStayWithinMaximumSize() {
+        BoundedOAuth2AuthorizationService service = new BoundedOAuth2AuthorizationService(100, Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            service.save(authorization("a" + i, "token-" + i, Duration.ofMinutes(5)));
+        }
+
+        service.cleanUp();
+
+        assertThat(service.estimatedSize()).isLessThanOrEqualTo(100);
+    }
+
+    private OAuth2Authorization authorization(String id, String tokenValue, Duration timeToLive) {
+        Instant issuedAt = Instant.now().minusSeconds(60);
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                tokenValue, issuedAt, Instant.now().plus(timeToLive), Set.of("product.read"));
+        return OAuth2Authorization.withRegisteredClient(this.client)
+                .id(id)
+                .principalName("ahmet")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .token(accessToken)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.authserver.config.CachingPasswordEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class CachingPasswordEncoderTest {
+
+    private final AtomicInteger bcryptChecks = new AtomicInteger();
+
+    // BCrypt's matches() is final, so checks are counted by a delegating wrapper
+    private final PasswordEncoder bcrypt = new CountingPasswordEncoder(new BCryptPasswordEncoder(4));
+
+    private final CachingPasswordEncoder encoder = new CachingPasswordEncoder(bcrypt, Duration.ofMinutes(1), 100);
+
+    @Test
+    void shouldSkipBcryptForRepeatedSuccessfulCheck() {
+        String hash = encoder.encode("12345");
+
+        assertThat(encoder.matches("12345", hash)).isTrue();
+        assertThat(encoder.matches("12345", hash)).isTrue();
+
+        assertThat(bcryptChecks).hasValue(1);
+        assertThat(encoder.hitCount()).isEqualTo(1);
+        assertThat(encoder.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAlwaysVerifyWrongSecret() {
+        String hash = encoder.encode("12345");
+
+        assertThat(encoder.matches("123455", hash)).isFalse();
+        assertThat(encoder.matches("123455", hash)).isFalse();
+
+        assertThat(bcryptChecks).hasValue(2);
+    }
+
+    @Test
+    void shouldNotReuseResultAfterSecretChange() {
+        String oldHash = encoder.encode("12345");
+        String newHash = encoder.encode("67890");
+        assertThat(encoder.matches("12345", oldHash)).isTrue();
+
+        assertThat(encoder.matches("12345", newHash)).isFalse();
+        assertThat(bcryptChecks).hasValue(2);
+    }
+
+    private final class CountingPasswordEncoder implements PasswordEncoder {
+
+        private final PasswordEncoder delegate;
+
+        private CountingPasswordEncoder(PasswordEncoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return this.delegate.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            bcryptChecks.incrementAndGet();
+            return this.delegate.matches(rawPassword, encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return this.delegate.upgradeEncoding(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import com.example.authserver.config.ClientRateLimitFilter;
+import com.example.authserver.config.CustomRegisteredClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+
+class ClientRateLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CustomRegisteredClientRepository clients = new CustomRegisteredClientRepository(
+            new BCryptPasswordEncoder(4), "", Duration.ofSeconds(30));
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldThrottleAuthenticatedClientOverItsBurst() throws Exception {
+        ClientRateLimitFilter filter = new ClientRateLimitFilter(clients, 1, 2, 0, 1, registry);
+
+        authenticated(filter, "ahmet");
+        authenticated(filter, "ahmet");
+        assertThatThrownBy(() -> authenticated(filter, "ahmet"))
+                .isInstanceOf(ClientRateLimitFilter.RateLimitExceededException.class);
+
+        // the next request is turned away before its secret is checked
+        MockHttpServletResponse rejected = send(filter, basicTokenRequest("ahmet"));
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(rejected.getContentAsString()).contains("temporarily_unavailable");
+        assertThat(registry.get("auth.rate_limit.throttled").tag("client_id", "ahmet").counter().count())
+                .isEqualTo(2);
+        // other clients have their own bucket
+        assertThat(send(filter, basicTokenRequest("mehmet")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldNotChargeClientBeforeItIsAuthenticated() throws Exception {
+        ClientRateLimitFilter filter = new ClientRateLimitFilter(clients, 1, 1, 0, 1, registry);
+
+        // anyone can present "ahmet", without the secret that costs the real client nothing
+        for (int i = 0; i < 3; i++) {
+            assertThat(send(filter, basicTokenRequest("ahmet")).getStatus()).isEqualTo(200);
+        }
+        authenticated(filter, "ahmet");
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+    }
+
+    @Test
+    void shouldNotLimitWhenRateIsZeroOrClientUnknown() throws Exception {
+        ClientRateLimitFilter unlimited = new ClientRateLimitFilter(clients, 0, 1, 0, 1, registry);
+        ClientRateLimitFilter limited = new ClientRateLimitFilter(clients, 1, 1, 0, 1, registry);
+
+        for (int i = 0; i < 3; i++) {
+            authenticated(unlimited, "ahmet");
+            assertThat(send(unlimited, basicTokenRequest("ahmet")).getStatus()).isEqualTo(200);
+            assertThat(send(limited, basicTokenRequest("unknown")).getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void shouldTurnAwaySourceAfterTooManyFailedAuthentications() throws Exception {
+        ClientRateLimitFilter filter = new ClientRateLimitFilter(clients, 0, 1, 1, 2, registry);
+
+        filter.recordFailure("10.0.0.1");
+        MockHttpServletRequest afterOneFailure = basicTokenRequest("ahmet");
+        afterOneFailure.setRemoteAddr("10.0.0.1");
+        assertThat(send(filter, afterOneFailure).getStatus()).isEqualTo(200);
+        filter.recordFailure("10.0.0.1");
+
+        MockHttpServletRequest sameSource = basicTokenRequest("ahmet");
+        sameSource.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest otherSource = basicTokenRequest("ahmet");
+        otherSource.setRemoteAddr("10.0.0.2");
+        assertThat(send(filter, sameSource).getStatus()).isEqualTo(429);
+        assertThat(send(filter, otherSource).getStatus()).isEqualTo(200);
+        assertThat(registry.get("auth.rate_limit.source_throttled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOnlyFilterTokenEndpoint() throws Exception {
+        ClientRateLimitFilter filter = new ClientRateLimitFilter(clients, 1, 1, 1, 1, registry);
+        authenticated(filter, "ahmet");
+        filter.recordFailure("127.0.0.1");
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/oauth2/jwks");
+            request.addParameter("client_id", "ahmet");
+            assertThat(send(filter, request).getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void shouldTakeClientIdFromParameterWithoutBasicHeader() throws Exception {
+        ClientRateLimitFilter filter = new ClientRateLimitFilter(clients, 1, 1, 0, 1, registry);
+        authenticated(filter, "mehmet");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth2/token");
+        request.addParameter("client_id", "mehmet");
+
+        assertThat(send(filter, request).getStatus()).isEqualTo(429);
+    }
+
+    // what the client authentication filter does once the client's secret has been verified
+    private void authenticated(ClientRateLimitFilter filter, String clientId) throws Exception {
+        OAuth2ClientAuthenticationToken authentication = new OAuth2ClientAuthenticationToken(
+                clients.findByClientId(clientId), ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+        filter.authenticationSuccessHandler().onAuthenticationSuccess(basicTokenRequest(clientId),
+                new MockHttpServletResponse(), authentication);
+    }
+
+    private static MockHttpServletResponse send(ClientRateLimitFilter filter, MockHttpServletRequest request)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest basicTokenRequest(String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth2/token");
+        request.addHeader("Authorization", "Basic " + Base64.getEncoder()
+                .encodeToString((clientId + ":12345").getBytes(StandardCharsets.UTF_8)));
+        request.addParameter("grant_type", "client_credentials");
+        return request;
+    }
+}
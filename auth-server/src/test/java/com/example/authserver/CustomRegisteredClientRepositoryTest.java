@@ -0,0 +1,101 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import com.example.authserver.config.CustomRegisteredClientRepository;
+import com.example.authserver.config.InMemorySharedStateBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+class CustomRegisteredClientRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldFindClientByIdAndByClientId() {
+        CustomRegisteredClientRepository repository = new CustomRegisteredClientRepository(
+                new BCryptPasswordEncoder(4), "", Duration.ofSeconds(30));
+
+        RegisteredClient ahmet = repository.findByClientId("ahmet");
+
+        assertThat(ahmet).isNotNull();
+        assertThat(repository.findById(ahmet.getId())).isSameAs(ahmet);
+        assertThat(repository.findById("ahmet")).isNull();
+    }
+
+    @Test
+    void shouldReplaceClientOnSave() {
+        CustomRegisteredClientRepository repository = new CustomRegisteredClientRepository(
+                new BCryptPasswordEncoder(4), "", Duration.ofSeconds(30));
+        RegisteredClient previous = repository.findByClientId("mehmet");
+
+        RegisteredClient updated = RegisteredClient.from(previous).id("new-id").scope("product.read").build();
+        repository.save(updated);
+
+        assertThat(repository.findByClientId("mehmet")).isSameAs(updated);
+        assertThat(repository.findById("new-id")).isSameAs(updated);
+        assertThat(repository.findById(previous.getId())).isNull();
+    }
+
+    @Test
+    void shouldShareSavedClientWithOtherNodes() {
+        InMemorySharedStateBackend backend = new InMemorySharedStateBackend();
+        CustomRegisteredClientRepository first = new CustomRegisteredClientRepository(
+                new BCryptPasswordEncoder(4), "", Duration.ofSeconds(30), backend);
+        CustomRegisteredClientRepository second = new CustomRegisteredClientRepository(
+                new BCryptPasswordEncoder(4), "", Duration.ofSeconds(30), backend);
+
+        RegisteredClient updated = RegisteredClient.from(first.findByClientId("mehmet"))
+                .scope("product.read")
+                .build();
+        first.save(updated);
+        RegisteredClient registered = RegisteredClient.withId("tenant-2-id")
+                .clientId("tenant-2")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope("product.write")
+                .build();
+        second.save(registered);
+
+        for (CustomRegisteredClientRepository node : List.of(first, second)) {
+            assertThat(node.findByClientId("mehmet").getScopes()).contains("product.read");
+            assertThat(node.scopes(node.findByClientId("mehmet")).asSet()).contains("product.read");
+            assertThat(node.findById("tenant-2-id").getClientId()).isEqualTo("tenant-2");
+            assertThat(node.findByClientId("ahmet")).isNotNull();
+        }
+    }
+
+    @Test
+    void shouldLoadClientsFromFileWithStableIds() throws Exception {
+        Path file = this.tempDir.resolve("clients.json");
+        Files.writeString(file, """
+                [
+                  {"clientId": "tenant-1", "clientSecret": "$2a$04$hash", "scopes": ["product.read"],
+                   "accessTokenTimeToLive": "PT30M", "grantTypes": ["client_credentials", "refresh_token"]}
+                ]
+                """);
+        CustomRegisteredClientRepository repository = new CustomRegisteredClientRepository(
+                new BCryptPasswordEncoder(4), file.toString(), Duration.ofHours(1));
+        try {
+            RegisteredClient client = repository.findByClientId("tenant-1");
+            String id = client.getId();
+
+            assertThat(client.getScopes()).containsExactly("product.read");
+            assertThat(client.getTokenSettings().getAccessTokenTimeToLive()).isEqualTo(Duration.ofMinutes(30));
+            assertThat(client.getAuthorizationGrantTypes()).contains(AuthorizationGrantType.REFRESH_TOKEN);
+
+            repository.reload();
+            assertThat(repository.findByClientId("tenant-1").getId()).isEqualTo(id);
+        } finally {
+            repository.destroy();
+        }
+    }
+}
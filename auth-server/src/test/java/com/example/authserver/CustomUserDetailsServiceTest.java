@@ -0,0 +1,67 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import com.example.authserver.config.CustomUserDetailsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+class CustomUserDetailsServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRejectUnknownUser() {
+        CustomUserDetailsService service = new CustomUserDetailsService(new BCryptPasswordEncoder(4), "", Duration.ofSeconds(30));
+
+        assertThatExceptionOfType(UsernameNotFoundException.class)
+                .isThrownBy(() -> service.loadUserByUsername("nobody"));
+    }
+
+    @Test
+    void shouldLoadUsersFromFileWithSharedAuthorities() throws Exception {
+        Path file = this.tempDir.resolve("users.txt");
+        Files.writeString(file, """
+                # username:hash:authorities
+                ayse:$2a$04$hash1:ROLE_USER,SCOPE_product.read
+                fatma:$2a$04$hash2:SCOPE_product.read,ROLE_USER
+                """);
+        CustomUserDetailsService service = new CustomUserDetailsService(new BCryptPasswordEncoder(4), file.toString(), Duration.ofHours(1));
+        try {
+            UserDetails ayse = service.loadUserByUsername("ayse");
+            UserDetails fatma = service.loadUserByUsername("fatma");
+
+            assertThat(ayse.getPassword()).isEqualTo("$2a$04$hash1");
+            assertThat(ayse.getAuthorities()).isSameAs(fatma.getAuthorities());
+            assertThat(service.loadUserByUsername("ayse")).isSameAs(ayse);
+        } finally {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void shouldSwapSnapshotOnReload() throws Exception {
+        Path file = this.tempDir.resolve("users.txt");
+        Files.writeString(file, "ayse:$2a$04$hash1:ROLE_USER\n");
+        CustomUserDetailsService service = new CustomUserDetailsService(new BCryptPasswordEncoder(4), file.toString(), Duration.ofHours(1));
+        try {
+            Files.writeString(file, "fatma:$2a$04$hash2:ROLE_USER\n");
+            service.reload();
+
+            assertThat(service.loadUserByUsername("fatma").getUsername()).isEqualTo("fatma");
+            assertThatExceptionOfType(UsernameNotFoundException.class)
+                    .isThrownBy(() -> service.loadUserByUsername("ayse"));
+        } finally {
+            service.destroy();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import com.example.authserver.config.InMemorySigningKeyStore;
+import com.example.authserver.config.RotatingJwkSource;
+import com.example.authserver.config.SigningKeys;
+import com.example.common.Ed25519JwsVerifier;
+import com.example.common.Ed25519KeySelector;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+class EdDsaJwtEncoderTest {
+
+    @Test
+    void shouldSignWithTheActiveEd25519Key() throws Exception {
+        RotatingJwkSource jwkSource = new RotatingJwkSource(new InMemorySigningKeyStore(), SigningKeys.EDDSA,
+                Duration.ofDays(7), Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(30));
+        try {
+            JwtEncoder encoder = SigningKeys.encoder(SigningKeys.EDDSA, jwkSource);
+            Instant issuedAt = Instant.now();
+            JwtClaimsSet claims = JwtClaimsSet.builder()
+                    .issuer("http://auth-server:9000")
+                    .subject("ahmet")
+                    .issuedAt(issuedAt)
+                    .expiresAt(issuedAt.plusSeconds(3600))
+                    .claim("scope", List.of("product.read"))
+                    .build();
+            JwsHeader header = JwsHeader.with(SigningKeys.EDDSA).keyId(jwkSource.signingKeyId()).build();
+
+            Jwt jwt = encoder.encode(JwtEncoderParameters.from(header, claims));
+
+            SignedJWT signed = SignedJWT.parse(jwt.getTokenValue());
+            assertThat(signed.getHeader().getAlgorithm()).isEqualTo(JWSAlgorithm.EdDSA);
+            assertThat(signed.getHeader().getKeyID()).isEqualTo(jwkSource.signingKeyId());
+            assertThat(jwt.getSubject()).isEqualTo("ahmet");
+
+            // verified against the published (public) JWK set, as a resource server sees it
+            JWKSet published = new JWKSet(jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null))
+                    .toPublicJWKSet();
+            DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+            processor.setJWSKeySelector(new Ed25519KeySelector<>(Set.of(JWSAlgorithm.EdDSA),
+                    new ImmutableJWKSet<>(published)));
+            processor.setJWSVerifierFactory(Ed25519JwsVerifier.FACTORY);
+            JWTClaimsSet verified = processor.process(signed, null);
+            assertThat(verified.getSubject()).isEqualTo("ahmet");
+            assertThat(verified.getExpirationTime().toInstant().getEpochSecond())
+                    .isEqualTo(issuedAt.plusSeconds(3600).getEpochSecond());
+            assertThat(verified.getStringListClaim("scope")).containsExactly("product.read");
+        } finally {
+            jwkSource.destroy();
+        }
+    }
+}
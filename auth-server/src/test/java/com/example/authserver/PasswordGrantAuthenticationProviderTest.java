@@ -0,0 +1,127 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import com.example.authserver.config.AuthorizationServerConfig;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationProvider;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationToken;
+import com.example.authserver.config.BoundedOAuth2AuthorizationService;
+import com.example.authserver.config.CustomRegisteredClientRepository;
+import com.example.authserver.config.CustomUserDetailsService;
+import com.example.authserver.config.RotatingJwkSource;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+
+class PasswordGrantAuthenticationProviderTest {
+
+    private final AuthorizationServerConfig config = new AuthorizationServerConfig();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final CustomRegisteredClientRepository clients =
+            new CustomRegisteredClientRepository(encoder, "", Duration.ofSeconds(30));
+    private final CustomUserDetailsService users = new CustomUserDetailsService(encoder, "", Duration.ofSeconds(30));
+    private final RotatingJwkSource jwkSource = config.jwkSource(SignatureAlgorithm.ES256, Optional.empty(), "",
+            Duration.ofDays(7), Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(1));
+    private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator =
+            config.tokenGenerator(jwkSource, config.jwtCustomizer(), SignatureAlgorithm.ES256, registry);
+
+    private final PasswordGrantAuthenticationProvider passwordGrant = new PasswordGrantAuthenticationProvider(
+            clients, new BoundedOAuth2AuthorizationService(1_000, Duration.ofHours(1)), tokenGenerator,
+            config.userAuthenticationManager(users, encoder), registry);
+
+    private final OAuth2ClientAuthenticationToken client = new OAuth2ClientAuthenticationToken(
+            clients.findByClientId("ahmet"), ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+
+    @BeforeEach
+    void setUp() {
+        AuthorizationServerSettings settings = AuthorizationServerSettings.builder()
+                .issuer("http://auth-server:9000")
+                .build();
+        AuthorizationServerContextHolder.setContext(new AuthorizationServerContext() {
+            @Override
+            public String getIssuer() {
+                return settings.getIssuer();
+            }
+
+            @Override
+            public AuthorizationServerSettings getAuthorizationServerSettings() {
+                return settings;
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        AuthorizationServerContextHolder.resetContext();
+        jwkSource.destroy();
+    }
+
+    @Test
+    void shouldTimeEveryPhaseOfSuccessfulGrant() {
+        passwordGrant.authenticate(new PasswordGrantAuthenticationToken(client, "ahmet", "12345"));
+
+        assertThat(grant("ahmet", "success").count()).isEqualTo(1);
+        for (String phase : new String[] {"client_lookup", "user_authentication", "scope_resolution",
+                "token_generation", "authorization_save"}) {
+            assertThat(phase(phase, "ahmet", "success").count()).as(phase).isEqualTo(1);
+        }
+        assertThat(registry.find("auth.password_grant.phase").tag("outcome", "failure").timers()).isEmpty();
+    }
+
+    @Test
+    void shouldRecordInvalidGrantForBadPassword() {
+        assertThatThrownBy(() -> passwordGrant.authenticate(
+                new PasswordGrantAuthenticationToken(client, "ahmet", "wrong")))
+                .isInstanceOf(BadCredentialsException.class);
+
+        assertThat(grant("ahmet", "invalid_grant").count()).isEqualTo(1);
+        assertThat(phase("client_lookup", "ahmet", "success").count()).isEqualTo(1);
+        assertThat(phase("user_authentication", "ahmet", "failure").count()).isEqualTo(1);
+        // later phases never ran
+        assertThat(registry.find("auth.password_grant.phase").tag("phase", "token_generation").timers()).isEmpty();
+        assertThat(registry.find("auth.password_grant").tag("outcome", "success").timers()).isEmpty();
+    }
+
+    @Test
+    void shouldRecordInvalidClientForUnregisteredClient() {
+        TestingAuthenticationToken unknown = new TestingAuthenticationToken("ghost", null);
+
+        assertThatThrownBy(() -> passwordGrant.authenticate(
+                new PasswordGrantAuthenticationToken(unknown, "ahmet", "12345")))
+                .isInstanceOf(OAuth2AuthenticationException.class);
+
+        assertThat(grant("ghost", "invalid_client").count()).isEqualTo(1);
+        assertThat(phase("client_lookup", "ghost", "failure").count()).isEqualTo(1);
+        assertThat(registry.find("auth.password_grant.phase").tag("phase", "user_authentication").timers())
+                .isEmpty();
+    }
+
+    private Timer grant(String clientId, String outcome) {
+        return registry.get("auth.password_grant").tag("client_id", clientId).tag("outcome", outcome).timer();
+    }
+
+    private Timer phase(String phase, String clientId, String outcome) {
+        return registry.get("auth.password_grant.phase")
+                .tag("phase", phase).tag("client_id", clientId).tag("outcome", outcome).timer();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import com.example.authserver.config.BoundedOAuth2AuthorizationService;
+import com.example.authserver.config.PersistentOAuth2AuthorizationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.util.LinkedMultiValueMap;
+
+class PersistentOAuth2AuthorizationServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final RegisteredClient client = RegisteredClient.withId("client-id")
+            .clientId("ahmet")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .build();
+
+    @Test
+    void shouldRestoreAuthorizationsAfterRestart() throws Exception {
+        Path logFile = this.tempDir.resolve("authorizations.log");
+
+        PersistentOAuth2AuthorizationService first = open(logFile);
+        first.save(authorization("a1", "token-1"));
+        first.save(authorization("a2", "token-2"));
+        first.remove(authorization("a2", "token-2"));
+        first.destroy();
+
+        PersistentOAuth2AuthorizationService second = open(logFile);
+        try {
+            assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+            assertThat(second.findById("a1").getPrincipalName()).isEqualTo("ahmet");
+            assertThat(second.findById("a2")).isNull();
+        } finally {
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldRestoreAuthorizationsSavedTogether() throws Exception {
+        Path logFile = this.tempDir.resolve("authorizations.log");
+
+        PersistentOAuth2AuthorizationService first = open(logFile, 1, 1 << 20);
+        first.saveAll(List.of(authorization("a1", "token-1"), authorization("a2", "token-2")));
+        assertThat(first.findByToken("token-2", OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+        first.destroy();
+
+        PersistentOAuth2AuthorizationService second = open(logFile);
+        try {
+            assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a1");
+            assertThat(second.findByToken("token-2", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a2");
+        } finally {
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldRestoreUserAuthorizations() throws Exception {
+        Path logFile = this.tempDir.resolve("authorizations.log");
+        OAuth2Authorization authorization = OAuth2Authorization.from(authorization("a1", "token-1"))
+                .attribute(Principal.class.getName(), UsernamePasswordAuthenticationToken.authenticated("ahmet", null,
+                        AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_product.read")))
+                .build();
+
+        PersistentOAuth2AuthorizationService first = open(logFile);
+        first.save(authorization);
+        first.destroy();
+
+        PersistentOAuth2AuthorizationService second = open(logFile);
+        try {
+            Authentication principal = second.findById("a1").getAttribute(Principal.class.getName());
+            assertThat(principal.getName()).isEqualTo("ahmet");
+        } finally {
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldRefuseClassesOutsideTheAllowList() throws Exception {
+        Path logFile = this.tempDir.resolve("authorizations.log");
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(payload)) {
+            out.writeObject(new LinkedMultiValueMap<String, String>());
+        }
+        try (DataOutputStream log = new DataOutputStream(Files.newOutputStream(logFile))) {
+            log.writeByte(1);
+            log.writeUTF("a1");
+            log.writeInt(payload.size());
+            log.write(payload.toByteArray());
+        }
+
+        assertThatThrownBy(() -> open(logFile)).hasRootCauseInstanceOf(InvalidClassException.class);
+    }
+
+    @Test
+    void shouldKeepWritingAfterFailedCompaction() throws Exception {
+        Path logFile = this.tempDir.resolve("authorizations.log");
+        Path compacted = this.tempDir.resolve("authorizations.log.compact");
+
+        // one record per batch, a compaction after each, and each fails while its target is a directory
+        PersistentOAuth2AuthorizationService first = open(logFile, 1, 1);
+        Files.createDirectory(compacted);
+        first.save(authorization("a1", "token-1"));
+        first.save(authorization("a2", "token-2"));
+        first.destroy();
+        Files.delete(compacted);
+
+        PersistentOAuth2AuthorizationService second = open(logFile);
+        try {
+            assertThat(second.findById("a1")).isNotNull();
+            assertThat(second.findById("a2")).isNotNull();
+        } finally {
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldLogConcurrentSavesOfOneAuthorizationInTheOrderTheyWereApplied() throws Exception {
+        Path logFile = this.tempDir.resolve("authorizations.log");
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the first save stalls after the in-memory store applied it, before it is queued for the log
+        BoundedOAuth2AuthorizationService memory = new BoundedOAuth2AuthorizationService(100, Duration.ofHours(1)) {
+            @Override
+            public void save(OAuth2Authorization authorization) {
+                super.save(authorization);
+                if (authorization.getAccessToken().getToken().getTokenValue().equals("token-1")) {
+                    applied.countDown();
+                    await(release);
+                }
+            }
+        };
+        PersistentOAuth2AuthorizationService first =
+                new PersistentOAuth2AuthorizationService(memory, logFile, 16, 128, 1 << 20);
+
+        Thread older = new Thread(() -> first.save(authorization("a1", "token-1")));
+        older.start();
+        applied.await();
+        Thread newer = new Thread(() -> first.save(authorization("a1", "token-2")));
+        newer.start();
+        newer.join(200);
+        release.countDown();
+        older.join();
+        newer.join();
+        first.destroy();
+
+        PersistentOAuth2AuthorizationService second = open(logFile);
+        try {
+            // the log agrees with what was served before the restart
+            assertThat(first.findById("a1").getAccessToken().getToken().getTokenValue()).isEqualTo("token-2");
+            assertThat(second.findById("a1").getAccessToken().getToken().getTokenValue()).isEqualTo("token-2");
+        } finally {
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldRejectWritesOnceStopped() throws Exception {
+        PersistentOAuth2AuthorizationService service = open(this.tempDir.resolve("authorizations.log"));
+        service.destroy();
+
+        assertThatThrownBy(() -> service.save(authorization("a1", "token-1")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(service.findById("a1")).isNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PersistentOAuth2AuthorizationService open(Path logFile) {
+        return open(logFile, 16, 1 << 20);
+    }
+
+    private PersistentOAuth2AuthorizationService open(Path logFile, int batchSize, long compactThresholdBytes) {
+        return new PersistentOAuth2AuthorizationService(new BoundedOAuth2AuthorizationService(100, Duration.ofHours(1)),
+                logFile, batchSize, 128, compactThresholdBytes);
+    }
+
+    private OAuth2Authorization authorization(String id, String tokenValue) {
+        Instant issuedAt = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                tokenValue, issuedAt, issuedAt.plus(Duration.ofMinutes(5)), Set.of("product.read"));
+        return OAuth2Authorization.withRegisteredClient(this.client)
+                .id(id)
+                .principalName("ahmet")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .token(accessToken)
+                .build();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.example.authserver.config.AuthorizationServerConfig;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationProvider;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationToken;
+import com.example.authserver.config.BoundedOAuth2AuthorizationService;
+import com.example.authserver.config.CustomRegisteredClientRepository;
+import com.example.authserver.config.CustomUserDetailsService;
+import com.example.authserver.config.InMemorySharedStateBackend;
+import com.example.authserver.config.RefreshTokenGrantAuthenticationProvider;
+import com.example.authserver.config.RotatingJwkSource;
+import com.example.authserver.config.SharedOAuth2AuthorizationService;
+import com.example.authserver.config.SharedTokenRevocationList;
+import com.example.authserver.config.TokenRevocationList;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+
+class RefreshTokenGrantAuthenticationProviderTest {
+
+    private final AuthorizationServerConfig config = new AuthorizationServerConfig();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+    private final CustomRegisteredClientRepository clients =
+            new CustomRegisteredClientRepository(encoder, "", Duration.ofSeconds(30));
+    private final CustomUserDetailsService users = new CustomUserDetailsService(encoder, "", Duration.ofSeconds(30));
+    private final BoundedOAuth2AuthorizationService authorizationService =
+            new BoundedOAuth2AuthorizationService(1_000, Duration.ofHours(1));
+    private final RotatingJwkSource jwkSource = config.jwkSource(SignatureAlgorithm.ES256, Optional.empty(), "",
+            Duration.ofDays(7), Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(1));
+    private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator =
+            config.tokenGenerator(jwkSource, config.jwtCustomizer(), SignatureAlgorithm.ES256, registry);
+
+    private final PasswordGrantAuthenticationProvider passwordGrant = new PasswordGrantAuthenticationProvider(
+            clients, authorizationService, tokenGenerator, config.userAuthenticationManager(users, encoder), registry);
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+    private final RefreshTokenGrantAuthenticationProvider refreshGrant = new RefreshTokenGrantAuthenticationProvider(
+            authorizationService, tokenGenerator, users, revocationList, registry);
+
+    private final InMemorySharedStateBackend backend = new InMemorySharedStateBackend();
+
+    private final OAuth2ClientAuthenticationToken client = new OAuth2ClientAuthenticationToken(
+            clients.findByClientId("ahmet"), ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+
+    @BeforeEach
+    void setUp() {
+        AuthorizationServerSettings settings = AuthorizationServerSettings.builder()
+                .issuer("http://auth-server:9000")
+                .build();
+        AuthorizationServerContextHolder.setContext(new AuthorizationServerContext() {
+            @Override
+            public String getIssuer() {
+                return settings.getIssuer();
+            }
+
+            @Override
+            public AuthorizationServerSettings getAuthorizationServerSettings() {
+                return settings;
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        AuthorizationServerContextHolder.resetContext();
+        jwkSource.destroy();
+    }
+
+    @Test
+    void shouldIssueRefreshTokenWithPasswordGrant() {
+        OAuth2AccessTokenAuthenticationToken issued = login();
+
+        assertThat(issued.getRefreshToken()).isNotNull();
+        assertThat(authorizationService.findByToken(issued.getRefreshToken().getTokenValue(),
+                OAuth2TokenType.REFRESH_TOKEN)).isNotNull();
+    }
+
+    @Test
+    void shouldRotateRefreshTokenOnExchange() {
+        OAuth2AccessTokenAuthenticationToken issued = login();
+
+        OAuth2AccessTokenAuthenticationToken refreshed = refresh(issued.getRefreshToken().getTokenValue(), Set.of());
+
+        assertThat(refreshed.getAccessToken().getTokenValue()).isNotEqualTo(issued.getAccessToken().getTokenValue());
+        assertThat(refreshed.getAccessToken().getScopes()).containsExactlyInAnyOrder("product.read", "product.write");
+        assertThat(refreshed.getRefreshToken().getTokenValue()).isNotEqualTo(issued.getRefreshToken().getTokenValue());
+        assertThat(authorizationService.findByToken(issued.getRefreshToken().getTokenValue(),
+                OAuth2TokenType.REFRESH_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldRevokeAuthorizationWhenUsedRefreshTokenIsReplayed() throws Exception {
+        OAuth2AccessTokenAuthenticationToken issued = login();
+        OAuth2AccessTokenAuthenticationToken refreshed = refresh(issued.getRefreshToken().getTokenValue(), Set.of());
+
+        assertThatThrownBy(() -> refresh(issued.getRefreshToken().getTokenValue(), Set.of()))
+                .isInstanceOf(OAuth2AuthenticationException.class);
+
+        // the successor issued to the legitimate holder is gone as well
+        assertThat(authorizationService.findByToken(refreshed.getRefreshToken().getTokenValue(),
+                OAuth2TokenType.REFRESH_TOKEN)).isNull();
+        assertThat(registry.get("auth.refresh_token.reuse_detected").counter().count()).isEqualTo(1);
+        // and its access token is published as revoked
+        String jti = SignedJWT.parse(refreshed.getAccessToken().getTokenValue()).getJWTClaimsSet().getJWTID();
+        assertThat(revocationList.isRevoked(jti)).isTrue();
+    }
+
+    @Test
+    void shouldRejectScopesBeyondTheOriginalGrantWithoutConsumingTheToken() throws Exception {
+        OAuth2AccessTokenAuthenticationToken issued = login();
+        String refreshToken = issued.getRefreshToken().getTokenValue();
+
+        assertThatThrownBy(() -> refresh(refreshToken, Set.of("product.admin")))
+                .isInstanceOf(OAuth2AuthenticationException.class);
+
+        OAuth2AccessTokenAuthenticationToken narrowed = refresh(refreshToken, Set.of("product.read"));
+        assertThat(narrowed.getAccessToken().getScopes()).containsExactly("product.read");
+        // the signed token carries the narrowed scopes, not everything the user holds
+        assertThat(SignedJWT.parse(narrowed.getAccessToken().getTokenValue()).getJWTClaimsSet()
+                .getStringListClaim("scope")).containsExactly("product.read");
+    }
+
+    @Test
+    void shouldLetOnlyOneNodeExchangeTheSameRefreshToken() {
+        ClusterNode first = new ClusterNode();
+        ClusterNode second = new ClusterNode();
+        OAuth2AccessTokenAuthenticationToken issued = first.login();
+        String refreshToken = issued.getRefreshToken().getTokenValue();
+        // the second node read the authorization before the first one rotated it
+        second.staleRead = second.authorizationService.findByToken(refreshToken, OAuth2TokenType.REFRESH_TOKEN);
+
+        OAuth2AccessTokenAuthenticationToken refreshed = first.refresh(refreshToken);
+
+        assertThatThrownBy(() -> second.refresh(refreshToken)).isInstanceOf(OAuth2AuthenticationException.class);
+        assertThat(second.registry.get("auth.refresh_token.reuse_detected").counter().count()).isEqualTo(1);
+        // the winner's successor is gone on every node
+        assertThat(first.authorizationService.findByToken(refreshed.getRefreshToken().getTokenValue(),
+                OAuth2TokenType.REFRESH_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldDetectReplayOnAnotherNode() {
+        ClusterNode first = new ClusterNode();
+        ClusterNode second = new ClusterNode();
+        OAuth2AccessTokenAuthenticationToken issued = first.login();
+        String refreshToken = issued.getRefreshToken().getTokenValue();
+        OAuth2AccessTokenAuthenticationToken refreshed = first.refresh(refreshToken);
+
+        assertThatThrownBy(() -> second.refresh(refreshToken)).isInstanceOf(OAuth2AuthenticationException.class);
+
+        assertThat(second.registry.get("auth.refresh_token.reuse_detected").counter().count()).isEqualTo(1);
+        assertThat(second.authorizationService.findByToken(refreshed.getRefreshToken().getTokenValue(),
+                OAuth2TokenType.REFRESH_TOKEN)).isNull();
+    }
+
+    private OAuth2AccessTokenAuthenticationToken login() {
+        return (OAuth2AccessTokenAuthenticationToken) passwordGrant.authenticate(
+                new PasswordGrantAuthenticationToken(client, "ahmet", "12345"));
+    }
+
+    private OAuth2AccessTokenAuthenticationToken refresh(String refreshToken, Set<String> scopes) {
+        return (OAuth2AccessTokenAuthenticationToken) refreshGrant.authenticate(
+                new OAuth2RefreshTokenAuthenticationToken(refreshToken, client, scopes, Map.of()));
+    }
+
+    /**
+     * An auth-server node of a cluster on the test's {@link InMemorySharedStateBackend}. {@code staleRead},
+     * when set, is what the node's refresh grant finds for any refresh token, as if it had read the
+     * authorization just before another node rotated it.
+     */
+    private final class ClusterNode {
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final SharedOAuth2AuthorizationService authorizationService =
+                new SharedOAuth2AuthorizationService(backend, 100, Duration.ofHours(1), Duration.ofMinutes(1));
+        OAuth2Authorization staleRead;
+
+        private final PasswordGrantAuthenticationProvider passwordGrant = new PasswordGrantAuthenticationProvider(
+                clients, authorizationService, tokenGenerator, config.userAuthenticationManager(users, encoder),
+                registry);
+        private final RefreshTokenGrantAuthenticationProvider refreshGrant = new RefreshTokenGrantAuthenticationProvider(
+                new OAuth2AuthorizationService() {
+                    @Override
+                    public void save(OAuth2Authorization authorization) {
+                        authorizationService.save(authorization);
+                    }
+
+                    @Override
+                    public void remove(OAuth2Authorization authorization) {
+                        authorizationService.remove(authorization);
+                    }
+
+                    @Override
+                    public OAuth2Authorization findById(String id) {
+                        return authorizationService.findById(id);
+                    }
+
+                    @Override
+                    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+                        return staleRead != null ? staleRead : authorizationService.findByToken(token, tokenType);
+                    }
+                }, tokenGenerator, users, new SharedTokenRevocationList(backend, Duration.ofHours(1)), backend, registry);
+
+        OAuth2AccessTokenAuthenticationToken login() {
+            return (OAuth2AccessTokenAuthenticationToken) passwordGrant.authenticate(
+                    new PasswordGrantAuthenticationToken(client, "ahmet", "12345"));
+        }
+
+        OAuth2AccessTokenAuthenticationToken refresh(String refreshToken) {
+            return (OAuth2AccessTokenAuthenticationToken) refreshGrant.authenticate(
+                    new OAuth2RefreshTokenAuthenticationToken(refreshToken, client, Set.of(), Map.of()));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import com.example.authserver.config.FileSigningKeyStore;
+import com.example.authserver.config.InMemorySharedStateBackend;
+import com.example.authserver.config.InMemorySigningKeyStore;
+import com.example.authserver.config.RotatingJwkSource;
+import com.example.authserver.config.SharedSigningKeyStore;
+import com.example.authserver.config.SigningKeyStore;
+import com.example.authserver.config.SigningKeys;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+class RotatingJwkSourceTest {
+
+    private static final Duration ROTATION = Duration.ofDays(7);
+    private static final Duration PREPUBLISH = Duration.ofHours(1);
+    private static final Duration RETENTION = Duration.ofHours(2);
+    private static final Duration CHECK_INTERVAL = Duration.ofMinutes(30);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReuseStoredKeysAfterRestart() {
+        SigningKeyStore store = new FileSigningKeyStore(this.tempDir);
+
+        RotatingJwkSource first = open(store);
+        String signingKeyId = first.signingKeyId();
+        first.destroy();
+
+        RotatingJwkSource second = open(store);
+        try {
+            assertThat(second.signingKeyId()).isEqualTo(signingKeyId);
+        } finally {
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldPrepublishSuccessorBeforeItSigns() {
+        SigningKeyStore store = new InMemorySigningKeyStore();
+        JWK current = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now().minus(ROTATION));
+        store.save(current);
+
+        RotatingJwkSource source = open(store);
+        try {
+            assertThat(source.signingKeyId()).isEqualTo(current.getKeyID());
+            assertThat(publishedKeyIds(source)).hasSize(2).contains(current.getKeyID());
+        } finally {
+            source.destroy();
+        }
+    }
+
+    @Test
+    void shouldRetireKeysOnceSuccessorOutlivedRetention() {
+        SigningKeyStore store = new InMemorySigningKeyStore();
+        JWK old = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now().minus(Duration.ofDays(2)));
+        JWK current = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now().minus(Duration.ofDays(1)));
+        store.save(old);
+        store.save(current);
+
+        RotatingJwkSource source = open(store);
+        try {
+            assertThat(source.signingKeyId()).isEqualTo(current.getKeyID());
+            assertThat(publishedKeyIds(source)).containsExactly(current.getKeyID());
+            assertThat(store.load()).extracting(JWK::getKeyID).containsExactly(current.getKeyID());
+        } finally {
+            source.destroy();
+        }
+    }
+
+    @Test
+    void shouldFailStartupWithoutUsableKey() {
+        SigningKeyStore store = new InMemorySigningKeyStore() {
+            @Override
+            public List<JWK> load() {
+                throw new IllegalStateException("keys directory not readable");
+            }
+        };
+
+        RotatingJwkSource source = open(store);
+        try {
+            assertThatThrownBy(source::afterSingletonsInstantiated)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("keys directory not readable");
+        } finally {
+            source.destroy();
+        }
+    }
+
+    @Test
+    void shouldFollowKeyGeneratedByAnotherNode() throws Exception {
+        InMemorySharedStateBackend backend = new InMemorySharedStateBackend();
+        // signing since an hour ago, so the rotated key below is strictly newer (nbf has second precision)
+        JWK current = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now().minus(Duration.ofHours(1)));
+        new SharedSigningKeyStore(backend).save(current);
+        RotatingJwkSource first = openShared(backend);
+        RotatingJwkSource second = openShared(backend);
+        try {
+            assertThat(first.signingKeyId()).isEqualTo(current.getKeyID());
+            assertThat(second.signingKeyId()).isEqualTo(current.getKeyID());
+
+            // a newer active key, as another node writes it after an early rotation
+            JWK rotated = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now());
+            new SharedSigningKeyStore(backend).save(rotated);
+
+            // refreshed on the rotation threads, well before the 30 minute check interval
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (System.nanoTime() < deadline && !(rotated.getKeyID().equals(first.signingKeyId())
+                    && rotated.getKeyID().equals(second.signingKeyId()))) {
+                Thread.sleep(10);
+            }
+            assertThat(first.signingKeyId()).isEqualTo(rotated.getKeyID());
+            assertThat(second.signingKeyId()).isEqualTo(rotated.getKeyID());
+        } finally {
+            first.destroy();
+            second.destroy();
+        }
+    }
+
+    @Test
+    void shouldAdoptFirstKeyClaimedByAnotherNode() {
+        InMemorySharedStateBackend backend = new InMemorySharedStateBackend();
+        // another node starting at the same moment won the claim but has not stored its key yet
+        JWK claimed = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now());
+        backend.putIfAbsent("signing-key-claims", "active-ES256",
+                claimed.toJSONString().getBytes(StandardCharsets.UTF_8), null);
+
+        RotatingJwkSource source = openShared(backend);
+        try {
+            assertThat(source.signingKeyId()).isEqualTo(claimed.getKeyID());
+            assertThat(new SharedSigningKeyStore(backend).load()).extracting(JWK::getKeyID)
+                    .containsExactly(claimed.getKeyID());
+        } finally {
+            source.destroy();
+        }
+    }
+
+    @Test
+    void shouldKeepFirstClaimInSharedDirectory() {
+        SigningKeyStore first = new FileSigningKeyStore(this.tempDir);
+        SigningKeyStore second = new FileSigningKeyStore(this.tempDir);
+        JWK winner = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now());
+        JWK loser = SigningKeys.generate(SignatureAlgorithm.ES256, Instant.now());
+
+        assertThat(first.saveIfAbsent("active-ES256", winner).getKeyID()).isEqualTo(winner.getKeyID());
+        assertThat(second.saveIfAbsent("active-ES256", loser).getKeyID()).isEqualTo(winner.getKeyID());
+        assertThat(second.load()).extracting(JWK::getKeyID).containsExactly(winner.getKeyID());
+    }
+
+    // wired like AuthorizationServerConfig does in cluster mode
+    private static RotatingJwkSource openShared(InMemorySharedStateBackend backend) {
+        RotatingJwkSource source = open(new SharedSigningKeyStore(backend));
+        source.afterSingletonsInstantiated();
+        backend.subscribe("signing-keys", keyId -> source.refresh());
+        return source;
+    }
+
+    private static RotatingJwkSource open(SigningKeyStore store) {
+        return new RotatingJwkSource(store, SignatureAlgorithm.ES256, ROTATION, PREPUBLISH, RETENTION, CHECK_INTERVAL);
+    }
+
+    private static List<String> publishedKeyIds(RotatingJwkSource source) {
+        return source.get(new JWKSelector(new JWKMatcher.Builder().build()), null).stream()
+                .map(JWK::getKeyID)
+                .toList();
+    }
+}
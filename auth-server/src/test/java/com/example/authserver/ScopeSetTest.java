@@ -0,0 +1,77 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.example.authserver.config.ImmutableUser;
+import com.example.authserver.config.ScopeSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+class ScopeSetTest {
+
+    @Test
+    void shouldInternEqualSets() {
+        ScopeSet first = ScopeSet.of(List.of("orders.read", "orders.write"));
+        ScopeSet second = ScopeSet.of(Set.of("orders.write", "orders.read"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.asSet()).containsExactlyInAnyOrder("orders.read", "orders.write");
+        assertThat(first.asList()).isEqualTo(second.asList());
+    }
+
+    @Test
+    void shouldIntersect() {
+        ScopeSet client = ScopeSet.of(List.of("orders.read", "orders.write", "profile"));
+        ScopeSet user = ScopeSet.of(List.of("orders.read", "admin"));
+
+        ScopeSet granted = client.intersect(user);
+
+        assertThat(granted.asSet()).containsExactly("orders.read");
+        assertThat(granted).isSameAs(ScopeSet.of(List.of("orders.read")));
+        assertThat(client.intersect(granted)).isSameAs(granted);
+        assertThat(client.containsAll(granted)).isTrue();
+        assertThat(granted.containsAll(client)).isFalse();
+        assertThat(client.intersect(ScopeSet.EMPTY).isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldGrowPastSixtyFourScopes() {
+        List<String> many = IntStream.range(0, 150).mapToObj(i -> "bulk.scope" + i).toList();
+
+        ScopeSet all = ScopeSet.of(many);
+        ScopeSet last = ScopeSet.of(List.of("bulk.scope149"));
+
+        assertThat(all.asSet()).containsExactlyInAnyOrderElementsOf(many);
+        assertThat(all.intersect(last)).isSameAs(last);
+        assertThat(all.containsAll(last)).isTrue();
+        assertThat(last.containsAll(all)).isFalse();
+        assertThat(last.intersect(ScopeSet.of(List.of("bulk.scope0"))).isEmpty()).isTrue();
+        assertThat(ScopeSet.of(List.of("bulk.scope149", "bulk.scope0")).intersect(last)).isSameAs(last);
+    }
+
+    @Test
+    void shouldReadScopeAuthoritiesOnly() {
+        ScopeSet scopes = ScopeSet.fromAuthorities(
+                AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_orders.read", "SCOPE_profile"));
+
+        assertThat(scopes).isSameAs(ScopeSet.of(List.of("profile", "orders.read")));
+        assertThat(scopes.toString().split(" ")).containsExactlyInAnyOrder("orders.read", "profile");
+    }
+
+    @Test
+    void shouldUseScopesPrecomputedForUser() {
+        ImmutableUser user = new ImmutableUser("ahmet", "{noop}secret",
+                AuthorityUtils.createAuthorityList("SCOPE_orders.read"));
+
+        ScopeSet scopes = ScopeSet.forPrincipal(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+
+        assertThat(scopes).isSameAs(user.getScopes());
+        assertThat(scopes.asList()).containsExactly("orders.read");
+    }
+}
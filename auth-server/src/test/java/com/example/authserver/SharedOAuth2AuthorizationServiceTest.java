@@ -0,0 +1,130 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.authserver.config.InMemorySharedStateBackend;
+import com.example.authserver.config.SharedOAuth2AuthorizationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.util.LinkedMultiValueMap;
+
+class SharedOAuth2AuthorizationServiceTest {
+
+    private final RegisteredClient client = RegisteredClient.withId("client-id")
+            .clientId("ahmet")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .build();
+
+    private final AtomicInteger singlePuts = new AtomicInteger();
+
+    // two auth-server nodes behind one load balancer
+    private final InMemorySharedStateBackend backend = new InMemorySharedStateBackend() {
+
+        @Override
+        public void put(String region, String key, byte[] value, Instant expiresAt) {
+            singlePuts.incrementAndGet();
+            super.put(region, key, value, expiresAt);
+        }
+    };
+    private final SharedOAuth2AuthorizationService first = node();
+    private final SharedOAuth2AuthorizationService second = node();
+
+    @Test
+    void shouldFindAuthorizationSavedOnAnotherNode() {
+        first.save(authorization("a1", "token-1", Duration.ofMinutes(5)));
+
+        assertThat(second.findById("a1").getAccessToken().getToken().getTokenValue()).isEqualTo("token-1");
+        assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a1");
+        assertThat(second.findByToken("token-1", OAuth2TokenType.REFRESH_TOKEN)).isNull();
+        assertThat(second.findByToken("unknown", null)).isNull();
+    }
+
+    @Test
+    void shouldSaveManyAuthorizationsWithBulkPuts() {
+        first.save(authorization("a1", "token-1", Duration.ofMinutes(5)));
+        assertThat(second.findById("a1")).isNotNull();
+        singlePuts.set(0);
+
+        first.saveAll(List.of(authorization("a1", "token-2", Duration.ofMinutes(5)),
+                authorization("a2", "token-3", Duration.ofMinutes(5))));
+
+        assertThat(singlePuts).hasValue(0);
+        assertThat(second.findByToken("token-2", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a1");
+        assertThat(second.findByToken("token-3", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a2");
+        assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldDropNearCachedAuthorizationChangedOnAnotherNode() {
+        first.save(authorization("a1", "token-1", Duration.ofMinutes(5)));
+        assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+
+        // the same authorization with a new access token, as a refresh replaces it
+        first.save(authorization("a1", "token-2", Duration.ofMinutes(5)));
+
+        assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+        assertThat(second.findByToken("token-2", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a1");
+        assertThat(second.nearCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void shouldForgetAuthorizationRemovedOnAnotherNode() {
+        OAuth2Authorization authorization = authorization("a1", "token-1", Duration.ofMinutes(5));
+        first.save(authorization);
+        assertThat(first.findById("a1")).isNotNull();
+
+        second.remove(authorization);
+
+        assertThat(first.findById("a1")).isNull();
+        assertThat(first.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldNotReturnExpiredAuthorization() {
+        first.save(authorization("a1", "token-1", Duration.ofSeconds(-1)));
+
+        assertThat(second.findById("a1")).isNull();
+        assertThat(second.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+    }
+
+    @Test
+    void shouldRefuseClassesOutsideTheAllowList() throws Exception {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(payload)) {
+            out.writeObject(new LinkedMultiValueMap<String, String>());
+        }
+        backend.put("authorizations", "a1", payload.toByteArray(), null);
+
+        assertThatThrownBy(() -> second.findById("a1")).hasRootCauseInstanceOf(InvalidClassException.class);
+    }
+
+    private SharedOAuth2AuthorizationService node() {
+        return new SharedOAuth2AuthorizationService(this.backend, 100, Duration.ofHours(1), Duration.ofMinutes(1));
+    }
+
+    private OAuth2Authorization authorization(String id, String tokenValue, Duration timeToLive) {
+        Instant issuedAt = Instant.now().minusSeconds(60);
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                tokenValue, issuedAt, Instant.now().plus(timeToLive), Set.of("product.read"));
+        return OAuth2Authorization.withRegisteredClient(this.client)
+                .id(id)
+                .principalName("ahmet")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .token(accessToken)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.example.authserver.config.InMemorySharedStateBackend;
+import com.example.authserver.config.SharedTokenRevocationList;
+import com.example.authserver.config.TokenRevocationList.Changes;
+import com.example.authserver.config.TokenRevocationList.Revocation;
+import org.junit.jupiter.api.Test;
+
+class SharedTokenRevocationListTest {
+
+    private final List<String> wholeRegionReads = new CopyOnWriteArrayList<>();
+
+    // two auth-server nodes behind one load balancer
+    private final InMemorySharedStateBackend backend = new InMemorySharedStateBackend() {
+
+        @Override
+        public Map<String, byte[]> getAll(String region) {
+            wholeRegionReads.add(region);
+            return super.getAll(region);
+        }
+    };
+    private final SharedTokenRevocationList first = new SharedTokenRevocationList(backend, Duration.ofHours(1));
+    private final SharedTokenRevocationList second = new SharedTokenRevocationList(backend, Duration.ofHours(1));
+    private final Instant inOneHour = Instant.now().plusSeconds(3600);
+
+    @Test
+    void shouldPublishOneListFromEveryNode() {
+        first.revoke("jti-1", inOneHour);
+        second.revoke("jti-2", inOneHour);
+
+        Changes fromFirst = first.changesSince(null, 0);
+        Changes fromSecond = second.changesSince(null, 0);
+
+        assertThat(fromSecond.epoch()).isEqualTo(fromFirst.epoch());
+        assertThat(fromSecond.sequence()).isEqualTo(fromFirst.sequence()).isEqualTo(2);
+        assertThat(fromSecond.revoked()).extracting(Revocation::jti).containsExactly("jti-1", "jti-2");
+        assertThat(second.isRevoked("jti-1")).isTrue();
+        assertThat(first.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldContinueIncrementalDownloadOnAnotherNode() {
+        first.revoke("jti-1", inOneHour);
+        Changes initial = first.changesSince(null, 0);
+        first.revoke("jti-2", inOneHour);
+        second.revoke("jti-3", inOneHour);
+        second.revoke("jti-2", inOneHour);
+
+        Changes next = second.changesSince(initial.epoch(), initial.sequence());
+
+        assertThat(next.full()).isFalse();
+        assertThat(next.revoked()).extracting(Revocation::jti).containsExactly("jti-2", "jti-3");
+        assertThat(next.sequence()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRevokeAndServeDeltasWithoutReadingTheWholeLog() {
+        first.revoke("jti-1", inOneHour);
+        Changes initial = second.changesSince(null, 0);
+        wholeRegionReads.clear();
+
+        first.revoke("jti-2", inOneHour);
+        second.revoke("jti-3", inOneHour);
+        Changes next = first.changesSince(initial.epoch(), initial.sequence());
+        Changes none = second.changesSince(next.epoch(), next.sequence());
+
+        assertThat(wholeRegionReads).doesNotContain("revocation-log");
+        assertThat(next.revoked()).extracting(Revocation::jti).containsExactly("jti-2", "jti-3");
+        assertThat(none.full()).isFalse();
+        assertThat(none.revoked()).isEmpty();
+        assertThat(none.sequence()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldPruneExpiredSlotsButNeverReuseANumber() {
+        long longExpired = Instant.now().minusSeconds(600).getEpochSecond();
+        backend.put("revocation-log", "1", (longExpired + " jti-old").getBytes(StandardCharsets.UTF_8), null);
+        backend.put("revocation-log", "2", (longExpired + " jti-older").getBytes(StandardCharsets.UTF_8), null);
+        backend.put("revocation-list", "sequence", "2".getBytes(StandardCharsets.UTF_8), null);
+
+        Changes beforePrune = first.changesSince(null, 0);
+        first.prune();
+
+        assertThat(beforePrune.revoked()).isEmpty();
+        assertThat(beforePrune.sequence()).isEqualTo(2);
+        assertThat(backend.getAll("revocation-log")).containsOnlyKeys("2");
+
+        second.revoke("jti-1", inOneHour);
+
+        Changes next = first.changesSince(beforePrune.epoch(), 1);
+        assertThat(next.full()).isFalse();
+        assertThat(next.sequence()).isEqualTo(3);
+        assertThat(next.revoked()).extracting(Revocation::jti).containsExactly("jti-1");
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.example.authserver.config.TokenEndpointAdmissionFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class TokenEndpointAdmissionFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    // holds its slot until the test releases it
+    private final FilterChain slowChain = (request, response) -> {
+        entered.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldPassTokenRequestWhenUnderCapacity() throws Exception {
+        TokenEndpointAdmissionFilter filter = filter(1, 0, Duration.ofMillis(100));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(tokenRequest(), response, chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldShedTokenRequestWhenSlotsAndQueueAreFull() throws Exception {
+        TokenEndpointAdmissionFilter filter = filter(1, 0, Duration.ofMillis(100));
+        Future<?> busy = executor.submit(() -> {
+            filter.doFilter(tokenRequest(), new MockHttpServletResponse(), slowChain);
+            return null;
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(tokenRequest(), response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(response.getContentAsString()).contains("\"error\":\"temporarily_unavailable\"");
+        assertThat(registry.get("auth.admission.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldAdmitQueuedRequestWhenSlotFreesInTime() throws Exception {
+        TokenEndpointAdmissionFilter filter = filter(1, 1, Duration.ofSeconds(5));
+        Future<?> busy = executor.submit(() -> {
+            filter.doFilter(tokenRequest(), new MockHttpServletResponse(), slowChain);
+            return null;
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockFilterChain chain = new MockFilterChain();
+        Future<?> queued = executor.submit(() -> {
+            filter.doFilter(tokenRequest(), new MockHttpServletResponse(), chain);
+            return null;
+        });
+        release.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void shouldNotLimitOtherEndpoints() throws Exception {
+        TokenEndpointAdmissionFilter filter = filter(1, 0, Duration.ofMillis(100));
+        executor.submit(() -> {
+            filter.doFilter(tokenRequest(), new MockHttpServletResponse(), slowChain);
+            return null;
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/oauth2/jwks"), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    private TokenEndpointAdmissionFilter filter(int maxConcurrent, int queueSize, Duration queueTimeout) {
+        return new TokenEndpointAdmissionFilter(maxConcurrent, queueSize, queueTimeout, Duration.ofSeconds(2), registry);
+    }
+
+    private static MockHttpServletRequest tokenRequest() {
+        return new MockHttpServletRequest("POST", "/oauth2/token");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.authserver.config.AuthorizationServerConfig;
+import com.example.authserver.config.ImmutableUser;
+import com.example.authserver.config.TokenProfile;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+
+class TokenProfileTest {
+
+    private final AuthorizationServerConfig config = new AuthorizationServerConfig();
+    private final Instant issuedAt = Instant.now();
+
+    @Test
+    void shouldKeepStandardClaimsByDefault() {
+        RegisteredClient client = client(null);
+
+        Map<String, Object> claims = customize(client, user(), Set.of("product.read", "product.write"));
+
+        assertThat(TokenProfile.of(client)).isEqualTo(TokenProfile.STANDARD);
+        assertThat(claims.get("scope")).asInstanceOf(InstanceOfAssertFactories.list(String.class))
+                .containsExactlyInAnyOrder("product.read", "product.write");
+        assertThat(claims).containsKeys("nbf", "client_id").doesNotContainKey("scp");
+    }
+
+    @Test
+    void shouldWriteAuthorizedScopesOnceAndDropRedundantClaimsWhenCompact() {
+        Map<String, Object> claims = customize(client(TokenProfile.COMPACT), user(), Set.of("product.read"));
+
+        assertThat(claims).doesNotContainKeys("scope", "nbf", "client_id");
+        assertThat(claims.get("scp")).isEqualTo("product.read");
+        assertThat(claims).containsKeys("iss", "sub", "aud", "iat", "exp", "jti");
+    }
+
+    @Test
+    void shouldUseAuthorizedScopesForClientCredentialsWhenCompact() {
+        RegisteredClient client = client(TokenProfile.COMPACT);
+        Authentication clientPrincipal = new OAuth2ClientAuthenticationToken(client,
+                ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+
+        Map<String, Object> claims = customize(client, clientPrincipal, Set.of("product.read"));
+
+        assertThat(claims.get("scp")).isEqualTo("product.read");
+        assertThat(claims).doesNotContainKey("scope");
+    }
+
+    @Test
+    void shouldRejectUnknownProfile() {
+        assertThat(TokenProfile.parse(" Compact ")).isEqualTo(TokenProfile.COMPACT);
+        assertThatThrownBy(() -> TokenProfile.parse("tiny")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // the claims JwtGenerator builds before calling the customizer
+    private Map<String, Object> customize(RegisteredClient client, Authentication principal, Set<String> scopes) {
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .issuer("http://auth-server:9000")
+                .subject(principal.getName())
+                .audience(List.of(client.getClientId()))
+                .issuedAt(issuedAt)
+                .notBefore(issuedAt)
+                .expiresAt(issuedAt.plusSeconds(3600))
+                .id("8f0d0c1e-3c44-4f51-9a3b-7b1f2a6c9d10")
+                .claim("client_id", client.getClientId())
+                .claim("scope", scopes);
+        JwtEncodingContext context = JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.ES256), claims)
+                .registeredClient(client)
+                .principal(principal)
+                .authorizedScopes(scopes)
+                .tokenType(OAuth2TokenType.ACCESS_TOKEN)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        config.jwtCustomizer().customize(context);
+        return claims.build().getClaims();
+    }
+
+    private static Authentication user() {
+        ImmutableUser user = new ImmutableUser("ahmet", "{noop}12345",
+                AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_product.read", "SCOPE_product.write"));
+        return UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+    }
+
+    private static RegisteredClient client(TokenProfile profile) {
+        ClientSettings.Builder settings = ClientSettings.builder();
+        if (profile != null) {
+            settings.setting(TokenProfile.SETTING, profile);
+        }
+        return RegisteredClient.withId("ahmet")
+                .clientId("ahmet")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scopes(scopes -> scopes.addAll(List.of("product.read", "product.write")))
+                .clientSettings(settings.build())
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+
+import com.example.authserver.config.TokenRevocationList;
+import com.example.authserver.config.TokenRevocationList.Changes;
+import com.example.authserver.config.TokenRevocationList.Revocation;
+import org.junit.jupiter.api.Test;
+
+class TokenRevocationListTest {
+
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+    private final Instant inOneHour = Instant.now().plusSeconds(3600);
+
+    @Test
+    void shouldPublishEverythingWithBloomFilterOnFirstDownload() {
+        revocationList.revoke("jti-1", inOneHour);
+        revocationList.revoke("jti-2", inOneHour);
+
+        Changes changes = revocationList.changesSince(null, 0);
+
+        assertThat(changes.full()).isTrue();
+        assertThat(changes.sequence()).isEqualTo(2);
+        assertThat(changes.revoked()).extracting(Revocation::jti).containsExactly("jti-1", "jti-2");
+        assertThat(changes.bloom().mightContain("jti-1")).isTrue();
+        assertThat(changes.bloom().mightContain("jti-2")).isTrue();
+        assertThat(changes.bloom().mightContain("jti-3")).isFalse();
+    }
+
+    @Test
+    void shouldPublishOnlyNewRevocationsWithinSameEpoch() {
+        revocationList.revoke("jti-1", inOneHour);
+        Changes first = revocationList.changesSince(null, 0);
+        revocationList.revoke("jti-2", inOneHour);
+        revocationList.revoke("jti-2", inOneHour);
+
+        Changes next = revocationList.changesSince(first.epoch(), first.sequence());
+
+        assertThat(next.full()).isFalse();
+        assertThat(next.bloom()).isNull();
+        assertThat(next.revoked()).extracting(Revocation::jti).containsExactly("jti-2");
+        assertThat(next.sequence()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSendFullListForUnknownEpoch() {
+        revocationList.revoke("jti-1", inOneHour);
+
+        Changes changes = revocationList.changesSince("previous-epoch", 1);
+
+        assertThat(changes.full()).isTrue();
+        assertThat(changes.revoked()).hasSize(1);
+    }
+
+    @Test
+    void shouldIgnoreTokensThatAlreadyExpired() {
+        revocationList.revoke("expired", Instant.now().minusSeconds(1));
+
+        assertThat(revocationList.isRevoked("expired")).isFalse();
+        assertThat(revocationList.size()).isZero();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.benchmarks;
+
+import com.example.authserver.config.AuthorizationServerConfig;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationProvider;
+import com.example.authserver.config.BoundedOAuth2AuthorizationService;
+import com.example.authserver.config.CustomRegisteredClientRepository;
+import com.example.authserver.config.CustomUserDetailsService;
+import com.example.authserver.config.RotatingJwkSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The auth-server beans wired by hand, the same way {@code AuthorizationServerConfig} wires them.
+ */
+final class AuthServerFixture {
+
+    final AuthorizationServerConfig config = new AuthorizationServerConfig();
+    // the timers stay in place so the benchmarks include their cost
+    final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final PasswordEncoder passwordEncoder;
+    final CustomRegisteredClientRepository clients;
+    final CustomUserDetailsService users;
+    final RotatingJwkSource jwkSource;
+    final OAuth2TokenCustomizer<JwtEncodingContext> jwtCustomizer;
+    final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
+    final AuthenticationManager userAuthenticationManager;
+    final BoundedOAuth2AuthorizationService authorizationService;
+    final PasswordGrantAuthenticationProvider passwordGrantProvider;
+    final OAuth2ClientAuthenticationToken clientPrincipal;
+
+    AuthServerFixture(SignatureAlgorithm algorithm, Duration credentialCacheTimeToLive) {
+        this.passwordEncoder = this.config.passwordEncoder(credentialCacheTimeToLive, 10_000);
+        this.clients = new CustomRegisteredClientRepository(this.passwordEncoder, "", Duration.ofSeconds(30));
+        this.users = new CustomUserDetailsService(this.passwordEncoder, "", Duration.ofSeconds(30));
+        this.jwkSource = this.config.jwkSource(algorithm, Optional.empty(), "", Duration.ofDays(7),
+                Duration.ofHours(1), Duration.ofHours(2), Duration.ofMinutes(1));
+        this.jwtCustomizer = this.config.jwtCustomizer();
+        this.tokenGenerator = this.config.tokenGenerator(this.jwkSource, this.jwtCustomizer, algorithm, this.meterRegistry);
+        this.userAuthenticationManager = this.config.userAuthenticationManager(this.users, this.passwordEncoder);
+        this.authorizationService = new BoundedOAuth2AuthorizationService(100_000, Duration.ofHours(1));
+        this.passwordGrantProvider = new PasswordGrantAuthenticationProvider(this.clients, this.authorizationService,
+                this.tokenGenerator, this.userAuthenticationManager, this.meterRegistry);
+
+        RegisteredClient client = this.clients.findByClientId("ahmet");
+        this.clientPrincipal = new OAuth2ClientAuthenticationToken(client,
+                ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+    }
+
+    // the token endpoint filter sets this per request; benchmark threads need it set themselves
+    static void bindAuthorizationServerContext() {
+        AuthorizationServerSettings settings = AuthorizationServerSettings.builder()
+                .issuer("http://auth-server:9000")
+                .build();
+        AuthorizationServerContextHolder.setContext(new AuthorizationServerContext() {
+            @Override
+            public String getIssuer() {
+                return settings.getIssuer();
+            }
+
+            @Override
+            public AuthorizationServerSettings getAuthorizationServerSettings() {
+                return settings;
+            }
+        });
+    }
+
+    void close() {
+        this.jwkSource.destroy();
+    }
+}
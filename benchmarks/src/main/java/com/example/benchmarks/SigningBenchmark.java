@@ -0,0 +1,65 @@
+package com.example.benchmarks;
+
+import com.example.authserver.config.SigningKeys;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWS signing cost per algorithm ({@code NimbusJwtEncoder}, or {@code EdDsaJwtEncoder} for EdDSA), reported as
+ * tokens per second per thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningBenchmark {
+
+    @Param({"RS256", "PS256", "ES256", "ES384", "EdDSA"})
+    public String algorithm;
+
+    private JwtEncoder encoder;
+    private JwtEncoderParameters parameters;
+
+    @Setup
+    public void setUp() {
+        JwsAlgorithm signatureAlgorithm = SigningKeys.algorithm(this.algorithm);
+        this.encoder = SigningKeys.encoder(signatureAlgorithm,
+                new ImmutableJWKSet<>(new JWKSet(SigningKeys.generate(signatureAlgorithm))));
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("http://auth-server:9000")
+                .subject("ahmet")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claim("scope", List.of("product.read", "product.write"))
+                .build();
+        this.parameters = JwtEncoderParameters.from(JwsHeader.with(signatureAlgorithm).build(), claims);
+    }
+
+    @Benchmark
+    public Jwt sign() {
+        return this.encoder.encode(this.parameters);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.benchmarks;
+
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationConverter;
+import com.example.authserver.config.AuthorizationServerConfig.PasswordGrantAuthenticationToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each stage of a password-grant token request, from request conversion to the full provider call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenIssuanceBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public String algorithm;
+
+    // credential cache TTL; PT0S measures the full BCrypt cost on every request
+    @Param({"PT0S", "PT5M"})
+    public String credentialCache;
+
+    private AuthServerFixture fixture;
+    private PasswordGrantAuthenticationConverter converter;
+    private MockHttpServletRequest request;
+    private PasswordGrantAuthenticationToken passwordGrant;
+    private Authentication user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.fixture = new AuthServerFixture(SignatureAlgorithm.from(this.algorithm), Duration.parse(this.credentialCache));
+        AuthServerFixture.bindAuthorizationServerContext();
+
+        this.converter = new PasswordGrantAuthenticationConverter();
+        this.request = new MockHttpServletRequest("POST", "/oauth2/token");
+        this.request.setUserPrincipal(this.fixture.clientPrincipal);
+        this.request.addParameter(OAuth2ParameterNames.GRANT_TYPE, "password");
+        this.request.addParameter(OAuth2ParameterNames.CLIENT_ID, "ahmet");
+        this.request.addParameter(OAuth2ParameterNames.CLIENT_SECRET, "12345");
+
+        this.passwordGrant = new PasswordGrantAuthenticationToken(this.fixture.clientPrincipal, "ahmet", "12345");
+        this.user = this.fixture.userAuthenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("ahmet", "12345"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.fixture.close();
+    }
+
+    @Benchmark
+    public Authentication convert() {
+        return this.converter.convert(this.request);
+    }
+
+    @Benchmark
+    public Authentication authenticateUser() {
+        return this.fixture.userAuthenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("ahmet", "12345"));
+    }
+
+    @Benchmark
+    public boolean verifyClientSecret() {
+        return this.fixture.passwordEncoder.matches("12345", this.fixture.clientPrincipal.getRegisteredClient().getClientSecret());
+    }
+
+    @Benchmark
+    public JwtClaimsSet.Builder jwtCustomizer() {
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .subject("ahmet")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600));
+        JwtEncodingContext context = JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.RS256), claims)
+                .principal(this.user)
+                .tokenType(OAuth2TokenType.ACCESS_TOKEN)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        this.fixture.jwtCustomizer.customize(context);
+        return claims;
+    }
+
+    // client lookup + user authentication + scope intersection + signing + authorizationService.save
+    @Benchmark
+    public Authentication passwordGrant() {
+        return this.fixture.passwordGrantProvider.authenticate(this.passwordGrant);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.benchmarks;
+
+import com.example.authserver.config.TokenProfile;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.token.DefaultOAuth2TokenContext;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standard vs compact ({@link TokenProfile}) access tokens as issued by the auth server: the token size
+ * (reported next to {@code decode} as the {@code tokenBytes} secondary result, it is what every
+ * resource-server hop carries), the resource server's decode / verify, and the JWT-to-{@link Authentication}
+ * conversion that reads the scopes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenProfileBenchmark {
+
+    @Param({"standard", "compact"})
+    public String profile;
+
+    @Param({"ES256"})
+    public String algorithm;
+
+    private AuthServerFixture fixture;
+    private String token;
+    private long tokenBytes;
+    private JwtDecoder decoder;
+    private Jwt jwt;
+    private JwtAuthenticationConverter authenticationConverter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.from(this.algorithm);
+        this.fixture = new AuthServerFixture(signatureAlgorithm, Duration.ZERO);
+        AuthServerFixture.bindAuthorizationServerContext();
+
+        RegisteredClient registered = this.fixture.clients.findByClientId("ahmet");
+        RegisteredClient client = RegisteredClient.from(registered)
+                .clientSettings(ClientSettings.withSettings(registered.getClientSettings().getSettings())
+                        .setting(TokenProfile.SETTING, TokenProfile.parse(this.profile))
+                        .build())
+                .build();
+        Authentication user = this.fixture.userAuthenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken("ahmet", "12345"));
+        OAuth2Token accessToken = this.fixture.tokenGenerator.generate(DefaultOAuth2TokenContext.builder()
+                .registeredClient(client)
+                .principal(user)
+                .authorizationServerContext(AuthorizationServerContextHolder.getContext())
+                .authorizedScopes(Set.of("product.read", "product.write"))
+                .tokenType(OAuth2TokenType.ACCESS_TOKEN)
+                .authorizationGrantType(new AuthorizationGrantType("password"))
+                .build());
+        this.token = accessToken.getTokenValue();
+        this.tokenBytes = this.token.getBytes(StandardCharsets.US_ASCII).length;
+
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(
+                Set.of(JWSAlgorithm.parse(this.algorithm)), this.fixture.jwkSource));
+        jwtProcessor.setJWTClaimsSetVerifier((claimsSet, context) -> {
+        });
+        this.decoder = new NimbusJwtDecoder(jwtProcessor);
+        this.jwt = this.decoder.decode(this.token);
+        this.authenticationConverter = new JwtAuthenticationConverter();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AuthorizationServerContextHolder.resetContext();
+        this.fixture.close();
+    }
+
+    @Benchmark
+    public Jwt decode(TokenSize size) {
+        size.tokenBytes = this.tokenBytes;
+        return this.decoder.decode(this.token);
+    }
+
+    @Benchmark
+    public Authentication convert() {
+        return this.authenticationConverter.convert(this.jwt);
+    }
+
+    /**
+     * Size of the encoded access token. JMH zeroes the counter before every iteration, so {@code decode} sets
+     * it on each call; one field store next to a signature check.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TokenSize {
+
+        public long tokenBytes;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.benchmarks;
+
+import com.example.authserver.config.CachingJwtDecoder;
+import com.example.authserver.config.ScopeRouteTable;
+import com.example.authserver.config.ScopedJwtAuthenticationConverter;
+import com.example.authserver.config.SigningKeys;
+import com.example.authserver.controller.ProductController;
+import com.example.common.Ed25519JwsVerifier;
+import com.example.common.Ed25519KeySelector;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resource-server side of a request: JWT decode / verify (with and without the decoded-token cache),
+ * conversion to an {@link Authentication}, and the {@code SCOPE_product.read} authorization decision, each
+ * also through the {@link ScopeRouteTable} path the resource server uses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenValidationBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private String token;
+    private JwtDecoder decoder;
+    private CachingJwtDecoder cachingDecoder;
+    private Jwt jwt;
+    private JwtAuthenticationConverter authenticationConverter;
+    private Authentication authentication;
+    private AuthorityAuthorizationManager<RequestAuthorizationContext> productRead;
+    private RequestAuthorizationContext requestContext;
+    private ScopeRouteTable routeTable;
+    private ScopedJwtAuthenticationConverter scopedConverter;
+    private Authentication scopedAuthentication;
+
+    @Setup
+    public void setUp() {
+        JwsAlgorithm signatureAlgorithm = SigningKeys.algorithm(this.algorithm);
+        JWK key = SigningKeys.generate(signatureAlgorithm);
+        JwtEncoder encoder = SigningKeys.encoder(signatureAlgorithm, new ImmutableJWKSet<>(new JWKSet(key)));
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("http://auth-server:9000")
+                .subject("ahmet")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claim("scope", List.of("product.read", "product.write"))
+                .build();
+        this.token = encoder.encode(JwtEncoderParameters.from(JwsHeader.with(signatureAlgorithm).keyId(key.getKeyID()).build(), claims))
+                .getTokenValue();
+
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new Ed25519KeySelector<>(Set.of(JWSAlgorithm.parse(this.algorithm)),
+                new ImmutableJWKSet<>(new JWKSet(key.toPublicJWK()))));
+        jwtProcessor.setJWSVerifierFactory(Ed25519JwsVerifier.FACTORY);
+        jwtProcessor.setJWTClaimsSetVerifier((claimsSet, context) -> {
+        });
+        this.decoder = new NimbusJwtDecoder(jwtProcessor);
+        this.cachingDecoder = new CachingJwtDecoder(this.decoder, 10_000);
+        this.jwt = this.decoder.decode(this.token);
+
+        this.authenticationConverter = new JwtAuthenticationConverter();
+        this.authentication = this.authenticationConverter.convert(this.jwt);
+        this.productRead = AuthorityAuthorizationManager.hasAuthority("SCOPE_product.read");
+        this.requestContext = new RequestAuthorizationContext(new MockHttpServletRequest("GET", "/products"));
+
+        try {
+            this.routeTable = ScopeRouteTable.of(Map.of(
+                    RequestMappingInfo.paths("/products").methods(RequestMethod.GET).build(),
+                    new HandlerMethod(new ProductController(), ProductController.class.getMethod("getProducts", Jwt.class))));
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+        this.scopedConverter = new ScopedJwtAuthenticationConverter(this.routeTable, 10_000);
+        this.scopedAuthentication = this.scopedConverter.convert(this.jwt);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return this.decoder.decode(this.token);
+    }
+
+    @Benchmark
+    public Jwt decodeCached() {
+        return this.cachingDecoder.decode(this.token);
+    }
+
+    @Benchmark
+    public Authentication convert() {
+        return this.authenticationConverter.convert(this.jwt);
+    }
+
+    @Benchmark
+    public AuthorizationResult authorize() {
+        return this.productRead.authorize(() -> this.authentication, this.requestContext);
+    }
+
+    // conversion of a Jwt the decoder cache handed out before: scopes are not parsed again
+    @Benchmark
+    public Authentication convertScoped() {
+        return this.scopedConverter.convert(this.jwt);
+    }
+
+    // @RequiredScope route lookup + mask test
+    @Benchmark
+    public AuthorizationResult authorizeRouteTable() {
+        return this.routeTable.authorize(() -> this.scopedAuthentication, this.requestContext);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.common;
+
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size Bloom filter over strings, published by the auth server to resource servers as its raw bits.
+ * <p>
+ * The hash (64-bit FNV-1a over the UTF-8 bytes, split into two halves for double hashing) is part of
+ * the published format, which is why both sides use this one class.
+ */
+public final class BloomFilter {
+
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+    private final int hashes;
+
+    private BloomFilter(long[] bits, int hashes) {
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    // sized for about 1% false positives at expectedEntries
+    public static BloomFilter create(int expectedEntries) {
+        int words = Math.max(1, (Math.max(expectedEntries, 1) * BITS_PER_ENTRY + 63) / 64);
+        return new BloomFilter(new long[words], HASHES);
+    }
+
+    public static BloomFilter of(long[] bits, int hashes) {
+        Assert.isTrue(bits.length > 0, "bits cannot be empty");
+        Assert.isTrue(hashes > 0, "hashes must be greater than 0");
+        return new BloomFilter(bits.clone(), hashes);
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long size = (long) this.bits.length * 64;
+        for (int i = 0; i < this.hashes; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, size);
+            this.bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long size = (long) this.bits.length * 64;
+        for (int i = 0; i < this.hashes; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, size);
+            if ((this.bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long[] bits() {
+        return this.bits.clone();
+    }
+
+    public int hashes() {
+        return this.hashes;
+    }
+
+    // entries it holds at about 1% false positives; past that the rate climbs quickly
+    public int capacity() {
+        return (int) ((long) this.bits.length * 64 / BITS_PER_ENTRY);
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Successfully decoded and validated tokens, keyed by the SHA-256 of the raw token and kept until their
+ * {@code exp}. Shared by the servlet and reactive caching decoders, which only differ in how they call the
+ * decoder on a miss.
+ */
+public class DecodedJwtCache {
+
+    private final Cache<String, Jwt> decoded;
+    private final MessageDigest prototype = sha256();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public DecodedJwtCache(long maximumSize) {
+        this.decoded = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilExpiresAt())
+                .build();
+    }
+
+    public String key(String token) {
+        MessageDigest digest = digest();
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    // the cached token, or null; counted as a hit or a miss
+    public Jwt get(String key) {
+        Jwt jwt = this.decoded.getIfPresent(key);
+        if (jwt != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+        }
+        return jwt;
+    }
+
+    // tokens without exp are not cached, they would never leave
+    public void put(String key, Jwt jwt) {
+        if (jwt.getExpiresAt() != null) {
+            this.decoded.put(key, jwt);
+        }
+    }
+
+    public long hitCount() {
+        return this.hits.sum();
+    }
+
+    public long missCount() {
+        return this.misses.sum();
+    }
+
+    public long size() {
+        return this.decoded.estimatedSize();
+    }
+
+    // a copy per call; a ThreadLocal would build a new digest for every virtual thread anyway
+    private MessageDigest digest() {
+        try {
+            return (MessageDigest) this.prototype.clone();
+        } catch (CloneNotSupportedException ex) {
+            return sha256();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A cached token disappears at its {@code exp}.
+     */
+    private static final class UntilExpiresAt implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
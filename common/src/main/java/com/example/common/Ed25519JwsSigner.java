@@ -0,0 +1,54 @@
+package com.example.common;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Set;
+
+/**
+ * {@code EdDSA} (Ed25519) JWS signer on the JDK's EdDSA provider, for use where Nimbus's own
+ * {@code Ed25519Signer} would need Tink. Thread-safe.
+ */
+public class Ed25519JwsSigner implements JWSSigner {
+
+    private final PrivateKey privateKey;
+    private final JCAContext jcaContext = new JCAContext();
+
+    public Ed25519JwsSigner(OctetKeyPair key) throws JOSEException {
+        this.privateKey = Ed25519Keys.toPrivateKey(key);
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+        if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+            throw new JOSEException("Unsupported JWS algorithm " + header.getAlgorithm() + ", expected EdDSA");
+        }
+        try {
+            // Signature instances are stateful; creating one per call is cheap next to the signing itself
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(this.privateKey);
+            signature.update(signingInput);
+            return Base64URL.encode(signature.sign());
+        } catch (GeneralSecurityException ex) {
+            throw new JOSEException("Ed25519 signing failed", ex);
+        }
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        return Set.of(JWSAlgorithm.EdDSA);
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+        return this.jcaContext;
+    }
+}
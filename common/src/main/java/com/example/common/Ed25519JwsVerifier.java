@@ -0,0 +1,69 @@
+package com.example.common;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.EdECPublicKey;
+import java.util.Set;
+
+/**
+ * {@code EdDSA} (Ed25519) JWS verifier on the JDK's EdDSA provider. {@link #FACTORY} hands it out for
+ * {@code EdDSA} headers and leaves every other algorithm to Nimbus; pair it with {@link Ed25519KeySelector},
+ * which supplies the Ed25519 keys as {@code java.security} keys. Thread-safe.
+ */
+public class Ed25519JwsVerifier implements JWSVerifier {
+
+    public static final JWSVerifierFactory FACTORY = new DefaultJWSVerifierFactory() {
+
+        @Override
+        public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+            if (JWSAlgorithm.EdDSA.equals(header.getAlgorithm()) && key instanceof EdECPublicKey publicKey) {
+                return new Ed25519JwsVerifier(publicKey);
+            }
+            return super.createJWSVerifier(header, key);
+        }
+    };
+
+    private final PublicKey publicKey;
+    private final JCAContext jcaContext = new JCAContext();
+
+    public Ed25519JwsVerifier(PublicKey publicKey) {
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) throws JOSEException {
+        if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(this.publicKey);
+            verifier.update(signingInput);
+            return verifier.verify(signature.decode());
+        } catch (GeneralSecurityException ex) {
+            // a malformed signature is an invalid one
+            return false;
+        }
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        return Set.of(JWSAlgorithm.EdDSA);
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+        return this.jcaContext;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.common;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link JWSVerificationKeySelector} that also selects Ed25519 keys for {@code EdDSA} headers. Nimbus can
+ * only turn an {@link OctetKeyPair} into a {@code java.security} key through Tink, so it would find no key
+ * for such a token; this selector converts the matching keys with {@link Ed25519Keys} instead. Other
+ * algorithms are selected as before. Use together with {@link Ed25519JwsVerifier#FACTORY}.
+ */
+public class Ed25519KeySelector<C extends SecurityContext> extends JWSVerificationKeySelector<C> {
+
+    public Ed25519KeySelector(Set<JWSAlgorithm> algorithms, JWKSource<C> jwkSource) {
+        super(algorithms, jwkSource);
+    }
+
+    @Override
+    public List<Key> selectJWSKeys(JWSHeader header, C context) throws KeySourceException {
+        if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm()) || !isAllowed(header.getAlgorithm())) {
+            return super.selectJWSKeys(header, context);
+        }
+        JWKMatcher matcher = createJWKMatcher(header);
+        List<Key> keys = new ArrayList<>();
+        for (JWK jwk : getJWKSource().get(new JWKSelector(matcher), context)) {
+            if (jwk instanceof OctetKeyPair okp) {
+                try {
+                    keys.add(Ed25519Keys.toPublicKey(okp));
+                } catch (JOSEException ex) {
+                    // not usable for Ed25519, like any other key of the wrong type
+                }
+            }
+        }
+        return keys;
+    }
+}
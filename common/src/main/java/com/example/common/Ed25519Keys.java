@@ -0,0 +1,97 @@
+package com.example.common;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.spec.EdECPoint;
+import java.security.spec.EdECPrivateKeySpec;
+import java.security.spec.EdECPublicKeySpec;
+import java.security.spec.NamedParameterSpec;
+
+/**
+ * Ed25519 key pairs as Nimbus {@link OctetKeyPair} JWKs, converted with the JDK's own EdDSA provider.
+ * <p>
+ * Nimbus generates, signs and verifies Ed25519 through Tink only; these conversions (RFC 8037 raw keys to
+ * and from {@code java.security} keys) let {@link Ed25519JwsSigner} and {@link Ed25519JwsVerifier} use the
+ * JDK instead.
+ */
+public final class Ed25519Keys {
+
+    private static final int KEY_LENGTH = 32;
+
+    private Ed25519Keys() {
+    }
+
+    // a new key pair with x and d set; the caller adds kid, use, alg, ...
+    public static OctetKeyPair.Builder generate() {
+        try {
+            KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            byte[] d = ((EdECPrivateKey) keyPair.getPrivate()).getBytes().orElseThrow();
+            byte[] x = encode(((EdECPublicKey) keyPair.getPublic()).getPoint());
+            return new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(x)).d(Base64URL.encode(d));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Ed25519 is not available in this JVM", ex);
+        }
+    }
+
+    public static PrivateKey toPrivateKey(OctetKeyPair key) throws JOSEException {
+        if (!Curve.Ed25519.equals(key.getCurve()) || !key.isPrivate()) {
+            throw new JOSEException("Not a private Ed25519 key: " + key.getKeyID());
+        }
+        try {
+            return KeyFactory.getInstance("Ed25519").generatePrivate(
+                    new EdECPrivateKeySpec(NamedParameterSpec.ED25519, key.getDecodedD()));
+        } catch (GeneralSecurityException ex) {
+            throw new JOSEException("Invalid Ed25519 key " + key.getKeyID(), ex);
+        }
+    }
+
+    public static PublicKey toPublicKey(OctetKeyPair key) throws JOSEException {
+        if (!Curve.Ed25519.equals(key.getCurve())) {
+            throw new JOSEException("Not an Ed25519 key: " + key.getKeyID());
+        }
+        try {
+            return KeyFactory.getInstance("Ed25519").generatePublic(
+                    new EdECPublicKeySpec(NamedParameterSpec.ED25519, decode(key.getDecodedX())));
+        } catch (GeneralSecurityException | IllegalArgumentException ex) {
+            throw new JOSEException("Invalid Ed25519 key " + key.getKeyID(), ex);
+        }
+    }
+
+    // RFC 8032 encoding: y little-endian, with the parity of x in the top bit of the last byte
+    private static byte[] encode(EdECPoint point) {
+        byte[] bigEndian = point.getY().toByteArray();
+        byte[] encoded = new byte[KEY_LENGTH];
+        for (int i = 0; i < bigEndian.length && i < KEY_LENGTH; i++) {
+            encoded[i] = bigEndian[bigEndian.length - 1 - i];
+        }
+        if (point.isXOdd()) {
+            encoded[KEY_LENGTH - 1] |= (byte) 0x80;
+        }
+        return encoded;
+    }
+
+    private static EdECPoint decode(byte[] encoded) {
+        if (encoded.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("Ed25519 public key must be " + KEY_LENGTH + " bytes");
+        }
+        byte[] bigEndian = new byte[KEY_LENGTH];
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            bigEndian[i] = encoded[KEY_LENGTH - 1 - i];
+        }
+        boolean xOdd = (bigEndian[0] & 0x80) != 0;
+        bigEndian[0] &= 0x7f;
+        return new EdECPoint(xOdd, new BigInteger(1, bigEndian));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free per-key rate limiter (GCRA, the "virtual scheduling" form of a token bucket).
+ * <p>
+ * Each key holds a single {@code AtomicLong}: the theoretical arrival time of its next request. A request is
+ * admitted by advancing it one emission interval with a CAS, so checks on the same key never block each
+ * other and checks on different keys share nothing. Keys idle for {@code idleTimeout} are dropped; that must
+ * be longer than the time a bucket takes to refill ({@code burst / permitsPerSecond}), otherwise a dropped
+ * key would come back with a full burst early.
+ */
+public class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public RateLimiter(long maximumKeys, Duration idleTimeout) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(idleTimeout)
+                .build();
+    }
+
+    // 0 when the request is admitted, otherwise the nanoseconds until the key may send again
+    public long tryAcquire(String key, double permitsPerSecond, int burst) {
+        Assert.isTrue(permitsPerSecond > 0, "permitsPerSecond must be greater than 0");
+        Assert.isTrue(burst > 0, "burst must be greater than 0");
+        long interval = Math.max(1, (long) (NANOS_PER_SECOND / permitsPerSecond));
+        long window = interval * burst;
+        AtomicLong arrival = this.buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long current = arrival.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - window - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // like tryAcquire, but only looks: the nanoseconds until the key may send again, 0 if it may now
+    public long waitTime(String key, double permitsPerSecond, int burst) {
+        Assert.isTrue(permitsPerSecond > 0, "permitsPerSecond must be greater than 0");
+        Assert.isTrue(burst > 0, "burst must be greater than 0");
+        AtomicLong arrival = this.buckets.getIfPresent(key);
+        if (arrival == null) {
+            return 0;
+        }
+        long interval = Math.max(1, (long) (NANOS_PER_SECOND / permitsPerSecond));
+        long now = System.nanoTime();
+        return Math.max(0, Math.max(arrival.get(), now) + interval - interval * burst - now);
+    }
+
+    public long size() {
+        return this.buckets.estimatedSize();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of both resource servers (servlet and reactive), so they publish the same names and tags:
+ * <ul>
+ * <li>{@code resource.jwt.decode}, every bearer token decode, tagged with the outcome: {@code success},
+ * {@code invalid} (bad signature, expired, malformed) or {@code error} (keys could not be loaded);</li>
+ * <li>{@code resource.jwt.cache.requests} and {@code resource.jwt.cache.size} of a {@link DecodedJwtCache};</li>
+ * <li>{@code resource.requests.rejected}, tagged with the status: {@code 401} (missing or invalid token) or
+ * {@code 403} (insufficient scope).</li>
+ * </ul>
+ */
+public class ResourceServerMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final MeterProvider<Timer> decodeTimer;
+    private final MeterProvider<Counter> rejections;
+
+    public ResourceServerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.decodeTimer = Timer.builder("resource.jwt.decode")
+                .description("Bearer token decoding and validation, cache hits included")
+                .withRegistry(meterRegistry);
+        this.rejections = Counter.builder("resource.requests.rejected")
+                .description("Requests rejected by bearer token authentication or authorization")
+                .withRegistry(meterRegistry);
+    }
+
+    // failure null for a decoded token
+    public void recordDecode(long startNanos, Throwable failure) {
+        String outcome = failure == null ? "success" : failure instanceof BadJwtException ? "invalid" : "error";
+        this.decodeTimer.withTags("outcome", outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRejection(int status) {
+        this.rejections.withTags("status", Integer.toString(status)).increment();
+    }
+
+    public void monitor(DecodedJwtCache cache) {
+        FunctionCounter.builder("resource.jwt.cache.requests", cache, DecodedJwtCache::hitCount)
+                .tag("result", "hit")
+                .register(this.meterRegistry);
+        FunctionCounter.builder("resource.jwt.cache.requests", cache, DecodedJwtCache::missCount)
+                .tag("result", "miss")
+                .register(this.meterRegistry);
+        Gauge.builder("resource.jwt.cache.size", cache, DecodedJwtCache::size)
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.common;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copy of the auth server's revoked access token ids, checked on every request without a network call.
+ * Used by both the servlet and the reactive resource server: downloads run on a poller thread of their own, so
+ * the per-request lookup never blocks.
+ * <p>
+ * The list is polled from the auth server's {@code /oauth2/revocations} every {@code pollInterval}; after the
+ * first (full) download only revocations newer than the last seen sequence are transferred. A lookup tests
+ * the Bloom filter first, which rejects almost every token in a few hash probes, and consults the exact set
+ * only on a filter hit. When deltas push the list past what the filter was sized for, it is rebuilt larger from
+ * the exact set. While the auth server cannot be reached the last downloaded list stays in force.
+ */
+public class RevokedTokens implements OAuth2TokenValidator<Jwt>, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(RevokedTokens.class);
+
+    private static final OAuth2TokenValidatorResult REVOKED = OAuth2TokenValidatorResult.failure(
+            new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN, "The token has been revoked", null));
+
+    // a full download now and then drops expired ids from the Bloom filter
+    private static final Duration FULL_REFRESH_INTERVAL = Duration.ofHours(1);
+
+    private final URI revocationsUri;
+    private final RestClient restClient;
+    private final ScheduledExecutorService poller;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile Instant lastFullRefresh = Instant.EPOCH;
+    private volatile Instant lastRefresh = Instant.EPOCH;
+
+    public RevokedTokens(URI revocationsUri, Duration pollInterval, MeterRegistry meterRegistry) {
+        this.revocationsUri = revocationsUri;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(5));
+        requestFactory.setReadTimeout(Duration.ofSeconds(5));
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+        if (revocationsUri != null) {
+            this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "revocations-poll");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = pollInterval.toMillis();
+            this.poller.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.poller = null;
+        }
+        Gauge.builder("resource.revocations.size", this, revokedTokens -> revokedTokens.snapshot.exact.size())
+                .description("Revoked token ids held locally")
+                .register(meterRegistry);
+        Gauge.builder("resource.revocations.staleness", this,
+                        revokedTokens -> Duration.between(revokedTokens.lastRefresh, Instant.now()).toSeconds())
+                .description("Seconds since the revocation list was last downloaded")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public OAuth2TokenValidatorResult validate(Jwt jwt) {
+        String jti = jwt.getId();
+        return jti != null && isRevoked(jti) ? REVOKED : OAuth2TokenValidatorResult.success();
+    }
+
+    public boolean isRevoked(String jti) {
+        Snapshot current = this.snapshot;
+        return current.bloom.mightContain(jti) && current.exact.containsKey(jti);
+    }
+
+    // Downloads what changed since the last call; failure is not fatal, the previous list is kept
+    public boolean refresh() {
+        if (this.revocationsUri == null) {
+            return false;
+        }
+        Snapshot current = this.snapshot;
+        boolean full = current.epoch == null
+                || Duration.between(this.lastFullRefresh, Instant.now()).compareTo(FULL_REFRESH_INTERVAL) > 0;
+        URI uri = full
+                ? this.revocationsUri
+                : URI.create(this.revocationsUri + "?epoch=" + current.epoch + "&since=" + current.sequence);
+        try {
+            RevocationChanges changes = this.restClient.get().uri(uri).retrieve().body(RevocationChanges.class);
+            if (changes != null) {
+                apply(changes);
+            }
+            return true;
+        } catch (RestClientException ex) {
+            logger.warn("Could not download revoked tokens from " + this.revocationsUri + ": " + ex.getMessage());
+            return false;
+        } catch (RuntimeException ex) {
+            // a malformed answer must not escape: the scheduler would cancel the poller for good
+            logger.error("Could not apply revoked tokens from " + this.revocationsUri, ex);
+            return false;
+        }
+    }
+
+    // Applies one answer of the revocation endpoint: a full list replaces the snapshot, a delta extends it
+    public void apply(RevocationChanges changes) {
+        long now = Instant.now().getEpochSecond();
+        Snapshot current = this.snapshot;
+        Map<String, Long> exact = new HashMap<>();
+        BloomFilter bloom;
+        if (changes.full()) {
+            byte[] bytes = Base64.getDecoder().decode(changes.bloom().bits());
+            long[] words = new long[bytes.length / Long.BYTES];
+            ByteBuffer.wrap(bytes).asLongBuffer().get(words);
+            bloom = BloomFilter.of(words, changes.bloom().hashes());
+            this.lastFullRefresh = Instant.now();
+        } else {
+            current.exact.forEach((jti, exp) -> {
+                if (exp >= now) {
+                    exact.put(jti, exp);
+                }
+            });
+            bloom = BloomFilter.of(current.bloom.bits(), current.bloom.hashes());
+        }
+        for (Revocation revocation : changes.revoked()) {
+            if (revocation.exp() >= now) {
+                exact.put(revocation.jti(), revocation.exp());
+                bloom.add(revocation.jti());
+            }
+        }
+        if (!changes.full() && exact.size() > bloom.capacity()) {
+            // deltas outgrew the filter of the last full download; resize it with room for more
+            bloom = BloomFilter.create(exact.size() * 2);
+            exact.keySet().forEach(bloom::add);
+        }
+        this.snapshot = new Snapshot(changes.epoch(), changes.sequence(), bloom, exact);
+        this.lastRefresh = Instant.now();
+    }
+
+    @Override
+    public void destroy() {
+        if (this.poller != null) {
+            this.poller.shutdownNow();
+        }
+    }
+
+    public record RevocationChanges(String epoch, long sequence, boolean full, List<Revocation> revoked,
+                                    Bloom bloom) {
+    }
+
+    public record Revocation(String jti, long exp) {
+    }
+
+    public record Bloom(String bits, int hashes) {
+    }
+
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(null, 0, BloomFilter.create(0), Map.of());
+
+        private final String epoch;
+        private final long sequence;
+        private final BloomFilter bloom;
+        private final Map<String, Long> exact;
+
+        private Snapshot(String epoch, long sequence, BloomFilter bloom, Map<String, Long> exact) {
+            this.epoch = epoch;
+            this.sequence = sequence;
+            this.bloom = bloom;
+            this.exact = exact;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Set;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.junit.jupiter.api.Test;
+
+class Ed25519Test {
+
+    // RFC 8037, appendix A.1 and A.4
+    private static final String RFC_KEY = "{\"kty\":\"OKP\",\"crv\":\"Ed25519\","
+            + "\"d\":\"nWGxne_9WmC6hEr0kuwsxERJxWl7MmkZcDusAxyuf2A\","
+            + "\"x\":\"11qYAYKxCrfVS_7TyWQHOg7hcvPapiMlrwIaaPcHURo\"}";
+    private static final String RFC_JWS = "eyJhbGciOiJFZERTQSJ9.RXhhbXBsZSBvZiBFZDI1NTE5IHNpZ25pbmc"
+            + ".hgyY0il_MGCjP0JzlnLWG1PPOt7-09PGcvMg3AIbQR6dWbhijcNR4ki4iylGjg5BhVsPt9g7sVvpAr_MuM0KAg";
+
+    @Test
+    void shouldSignAndVerifyTheRfcExample() throws Exception {
+        OctetKeyPair key = OctetKeyPair.parse(RFC_KEY);
+        JWSObject jws = new JWSObject(new JWSHeader(JWSAlgorithm.EdDSA), new Payload("Example of Ed25519 signing"));
+
+        jws.sign(new Ed25519JwsSigner(key));
+
+        assertThat(jws.serialize()).isEqualTo(RFC_JWS);
+        assertThat(JWSObject.parse(RFC_JWS).verify(new Ed25519JwsVerifier(Ed25519Keys.toPublicKey(key.toPublicJWK()))))
+                .isTrue();
+    }
+
+    @Test
+    void shouldVerifyGeneratedKeysThroughTheKeySelector() throws Exception {
+        OctetKeyPair key = Ed25519Keys.generate().keyID("k1").keyUse(KeyUse.SIGNATURE).build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID("k1").build(),
+                new JWTClaimsSet.Builder().subject("ahmet").build());
+        jwt.sign(new Ed25519JwsSigner(key));
+        DefaultJWTProcessor<SecurityContext> processor = processor(key.toPublicJWK());
+
+        assertThat(processor.process(jwt.serialize(), null).getSubject()).isEqualTo("ahmet");
+
+        String serialized = jwt.serialize();
+        String tampered = serialized.substring(0, serialized.lastIndexOf('.') - 1) + "A"
+                + serialized.substring(serialized.lastIndexOf('.'));
+        assertThatThrownBy(() -> processor.process(tampered, null)).isInstanceOf(BadJOSEException.class);
+    }
+
+    @Test
+    void shouldRejectTokensSignedWithAnotherKey() throws Exception {
+        OctetKeyPair key = Ed25519Keys.generate().keyID("k1").build();
+        OctetKeyPair other = Ed25519Keys.generate().keyID("k1").build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID("k1").build(),
+                new JWTClaimsSet.Builder().subject("ahmet").build());
+        jwt.sign(new Ed25519JwsSigner(other));
+
+        assertThatThrownBy(() -> processor(key.toPublicJWK()).process(jwt.serialize(), null))
+                .isInstanceOf(BadJOSEException.class);
+    }
+
+    private static DefaultJWTProcessor<SecurityContext> processor(OctetKeyPair publicKey) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new Ed25519KeySelector<>(Set.of(JWSAlgorithm.ES256, JWSAlgorithm.EdDSA),
+                new ImmutableJWKSet<>(new JWKSet(publicKey))));
+        processor.setJWSVerifierFactory(Ed25519JwsVerifier.FACTORY);
+        return processor;
+    }
+}
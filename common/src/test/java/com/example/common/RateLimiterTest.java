@@ -0,0 +1,56 @@
+package com.example.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private final RateLimiter rateLimiter = new RateLimiter(1_000, Duration.ofMinutes(10));
+
+    @Test
+    void shouldAdmitBurstThenReject() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimiter.tryAcquire("ahmet", 1, 5)).isZero();
+        }
+
+        long wait = rateLimiter.tryAcquire("ahmet", 1, 5);
+
+        assertThat(wait).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void shouldReportWaitWithoutTakingFromTheBucket() {
+        assertThat(rateLimiter.waitTime("ahmet", 1, 2)).isZero();
+        assertThat(rateLimiter.tryAcquire("ahmet", 1, 2)).isZero();
+        assertThat(rateLimiter.waitTime("ahmet", 1, 2)).isZero();
+        assertThat(rateLimiter.tryAcquire("ahmet", 1, 2)).isZero();
+
+        assertThat(rateLimiter.waitTime("ahmet", 1, 2)).isPositive();
+        assertThat(rateLimiter.waitTime("ahmet", 1, 2)).isPositive();
+        assertThat(rateLimiter.waitTime("mehmet", 1, 2)).isZero();
+        assertThat(rateLimiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepKeysIndependent() {
+        assertThat(rateLimiter.tryAcquire("ahmet", 1, 1)).isZero();
+        assertThat(rateLimiter.tryAcquire("ahmet", 1, 1)).isPositive();
+
+        assertThat(rateLimiter.tryAcquire("mehmet", 1, 1)).isZero();
+        assertThat(rateLimiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAdmitAgainAfterRefill() throws InterruptedException {
+        assertThat(rateLimiter.tryAcquire("ahmet", 100, 1)).isZero();
+        assertThat(rateLimiter.tryAcquire("ahmet", 100, 1)).isPositive();
+
+        Thread.sleep(50);
+
+        assertThat(rateLimiter.tryAcquire("ahmet", 100, 1)).isZero();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Spring Boot service started in this JVM from its module's {@code target/classes} and
+ * {@code target/runtime-classpath.txt}.
+ * <p>
+ * Each service gets its own class loader whose parent is the platform loader, so auth-server and
+ * resource-server can both define {@code com.example.authserver.config.SecurityConfig} and both bring their
+ * own Spring, Tomcat and logging without seeing each other or the harness.
+ */
+final class EmbeddedApplication implements AutoCloseable {
+
+    private final URLClassLoader classLoader;
+    private final AutoCloseable context;
+    private final int port;
+
+    private EmbeddedApplication(URLClassLoader classLoader, AutoCloseable context, int port) {
+        this.classLoader = classLoader;
+        this.context = context;
+        this.port = port;
+    }
+
+    static EmbeddedApplication start(String name, Path moduleDirectory, String mainClass, List<String> arguments)
+            throws IOException {
+        URLClassLoader classLoader = new URLClassLoader(name, classpath(name, moduleDirectory),
+                ClassLoader.getPlatformClassLoader());
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            disableTomcatUrlHandlers(classLoader);
+            Class<?> application = classLoader.loadClass(mainClass);
+            Object context = classLoader.loadClass("org.springframework.boot.SpringApplication")
+                    .getMethod("run", Class.class, String[].class)
+                    .invoke(null, application, arguments.toArray(String[]::new));
+            Object environment = classLoader.loadClass("org.springframework.context.ConfigurableApplicationContext")
+                    .getMethod("getEnvironment")
+                    .invoke(context);
+            String port = (String) classLoader.loadClass("org.springframework.core.env.PropertyResolver")
+                    .getMethod("getProperty", String.class)
+                    .invoke(environment, "local.server.port");
+            return new EmbeddedApplication(classLoader, (AutoCloseable) context, Integer.parseInt(port));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            classLoader.close();
+            Throwable cause = ex instanceof InvocationTargetException ? ex.getCause() : ex;
+            throw new IllegalStateException(name + " failed to start", cause);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    // Each Tomcat would install its own URL stream handler factory, which the JVM allows only once
+    private static void disableTomcatUrlHandlers(ClassLoader classLoader) throws ReflectiveOperationException {
+        try {
+            classLoader.loadClass("org.apache.catalina.webresources.TomcatURLStreamHandlerFactory")
+                    .getMethod("disable")
+                    .invoke(null);
+        } catch (ClassNotFoundException ex) {
+            // not a Tomcat service (WebFlux on Netty)
+        }
+    }
+
+    private static URL[] classpath(String name, Path moduleDirectory) throws IOException {
+        Path classes = moduleDirectory.resolve("target/classes");
+        Path runtimeClasspath = moduleDirectory.resolve("target/runtime-classpath.txt");
+        if (!Files.isDirectory(classes) || !Files.isRegularFile(runtimeClasspath)) {
+            throw new IllegalStateException(name + " is not built under " + moduleDirectory.toAbsolutePath()
+                    + "; run 'mvn -Pload-test package -DskipTests' from the repository root (or pass --root)");
+        }
+        List<URL> urls = new ArrayList<>();
+        urls.add(classes.toUri().toURL());
+        for (String entry : Files.readString(runtimeClasspath).trim().split(File.pathSeparator)) {
+            if (!entry.isBlank()) {
+                urls.add(Path.of(entry).toUri().toURL());
+            }
+        }
+        return urls.toArray(URL[]::new);
+    }
+
+    int port() {
+        return this.port;
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            this.context.close();
+        } finally {
+            this.classLoader.close();
+        }
+    }
+}
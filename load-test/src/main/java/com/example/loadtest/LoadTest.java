@@ -0,0 +1,96 @@
+package com.example.loadtest;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Starts auth-server and resource-server on random ports in this JVM (unless {@code --auth-url} /
+ * {@code --resource-url} point at running ones), runs the configured traffic mix and prints throughput and
+ * latency percentiles per operation.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(LoadTestOptions.USAGE);
+            return;
+        }
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Deque<EmbeddedApplication> applications = new ArrayDeque<>();
+        try {
+            URI authUrl = options.authUrl;
+            if (authUrl == null) {
+                EmbeddedApplication authServer = EmbeddedApplication.start("auth-server",
+                        options.root.resolve("auth-server"), "com.example.authserver.AuthServerApplication",
+                        serviceArguments(options, options.authArguments));
+                applications.push(authServer);
+                authUrl = URI.create("http://localhost:" + authServer.port());
+            }
+            URI resourceUrl = options.resourceUrl;
+            if (resourceUrl == null) {
+                List<String> arguments = new ArrayList<>(options.resourceArguments);
+                arguments.add("--AUTH_JWKS_URI=" + authUrl.resolve("/oauth2/jwks"));
+                EmbeddedApplication resourceServer = options.reactive
+                        ? EmbeddedApplication.start("resource-server-reactive",
+                                options.root.resolve("resource-server-reactive"),
+                                "com.example.authserver.ReactiveResourceServerApplication",
+                                serviceArguments(options, arguments))
+                        : EmbeddedApplication.start("resource-server",
+                                options.root.resolve("resource-server"), "com.example.authserver.ResourceServerApplication",
+                                serviceArguments(options, arguments));
+                applications.push(resourceServer);
+                resourceUrl = URI.create("http://localhost:" + resourceServer.port());
+            }
+
+            System.out.printf("auth-server %s, resource-server %s%n", authUrl, resourceUrl);
+            System.out.printf("%d clients, mix %s, warmup %s, measuring %s, virtual threads %s%n",
+                    options.clients, options.mix, options.warmup, options.duration,
+                    options.virtualThreads != null ? options.virtualThreads : "default");
+            Workload.Result result = new Workload(options, authUrl, resourceUrl).run();
+            result.print(System.out);
+            if (options.histogramDirectory != null) {
+                result.writeHistograms(options.histogramDirectory);
+            }
+        } finally {
+            while (!applications.isEmpty()) {
+                applications.pop().close();
+            }
+        }
+    }
+
+    // random ports, quiet logs unless overridden
+    private static List<String> serviceArguments(LoadTestOptions options, List<String> arguments) {
+        List<String> all = new ArrayList<>(arguments);
+        if (options.virtualThreads != null) {
+            addDefault(all, "VIRTUAL_THREADS", options.virtualThreads.toString());
+        }
+        addDefault(all, "server.port", "0");
+        addDefault(all, "management.server.port", "0");
+        addDefault(all, "spring.main.banner-mode", "off");
+        addDefault(all, "logging.level.root", "WARN");
+        addDefault(all, "logging.level.org.springframework.security", "WARN");
+        return all;
+    }
+
+    private static void addDefault(List<String> arguments, String name, String value) {
+        if (arguments.stream().noneMatch(argument -> argument.startsWith("--" + name + "="))) {
+            arguments.add("--" + name + "=" + value);
+        }
+    }
+}
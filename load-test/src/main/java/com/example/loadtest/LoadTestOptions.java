@@ -0,0 +1,140 @@
+package com.example.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options, all given as {@code --name=value}.
+ * <p>
+ * {@code --auth.<property>=<value>} and {@code --resource.<property>=<value>} are handed to the embedded
+ * services as {@code --<property>=<value>}, e.g. {@code --auth.AUTH_SIGNING_ALGORITHM=ES256}.
+ */
+final class LoadTestOptions {
+
+    static final String USAGE = """
+            Usage: java -jar load-test/target/load-test.jar [--name=value ...]
+              --clients=32                      concurrent clients (one thread each, closed loop)
+              --duration=PT60S                  measured period
+              --warmup=PT10S                    unmeasured period before it
+              --mix=products=90,client_credentials=5,password=5
+                                                relative weight of each operation
+              --client=ahmet:12345              OAuth client id:secret (HTTP Basic)
+              --user=ahmet:12345                resource owner for the password grant
+              --scope=product.read
+              --root=.                          repository root holding auth-server/ and resource-server/
+              --auth-url=http://host:9000       use a running auth server instead of booting one
+              --resource-url=http://host:8081   use a running resource server instead of booting one
+              --reactive=true                   boot resource-server-reactive instead of resource-server
+              --virtual-threads=true|false      run both embedded services on virtual threads (Java 21+)
+              --histograms=DIR                  write one HdrHistogram percentile file (.hgrm) per operation
+              --auth.NAME=VALUE                 property for the embedded auth-server
+              --resource.NAME=VALUE             property for the embedded resource-server
+            """;
+
+    Duration duration = Duration.ofSeconds(60);
+    Duration warmup = Duration.ofSeconds(10);
+    int clients = 32;
+    Map<Operation, Integer> mix = defaultMix();
+    String clientId = "ahmet";
+    String clientSecret = "12345";
+    String username = "ahmet";
+    String password = "12345";
+    String scope = "product.read";
+    Path root = Path.of(".");
+    URI authUrl;
+    URI resourceUrl;
+    Path histogramDirectory;
+    Boolean virtualThreads;
+    boolean reactive;
+    final List<String> authArguments = new ArrayList<>();
+    final List<String> resourceArguments = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'");
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            if (name.startsWith("auth.")) {
+                options.authArguments.add("--" + name.substring("auth.".length()) + "=" + value);
+                continue;
+            }
+            if (name.startsWith("resource.")) {
+                options.resourceArguments.add("--" + name.substring("resource.".length()) + "=" + value);
+                continue;
+            }
+            switch (name) {
+                case "clients" -> options.clients = Integer.parseInt(value);
+                case "duration" -> options.duration = Duration.parse(value);
+                case "warmup" -> options.warmup = Duration.parse(value);
+                case "mix" -> options.mix = parseMix(value);
+                case "client" -> {
+                    String[] credentials = credentials(name, value);
+                    options.clientId = credentials[0];
+                    options.clientSecret = credentials[1];
+                }
+                case "user" -> {
+                    String[] credentials = credentials(name, value);
+                    options.username = credentials[0];
+                    options.password = credentials[1];
+                }
+                case "scope" -> options.scope = value;
+                case "root" -> options.root = Path.of(value);
+                case "auth-url" -> options.authUrl = URI.create(value);
+                case "resource-url" -> options.resourceUrl = URI.create(value);
+                case "histograms" -> options.histogramDirectory = Path.of(value);
+                case "virtual-threads" -> options.virtualThreads = Boolean.valueOf(value);
+                case "reactive" -> options.reactive = Boolean.parseBoolean(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (options.clients < 1) {
+            throw new IllegalArgumentException("--clients must be at least 1");
+        }
+        return options;
+    }
+
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in --mix but got '" + entry + "'");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in --mix: '" + entry + "'");
+            }
+            mix.put(Operation.of(parts[0].trim()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("--mix has no operation with a positive weight");
+        }
+        return Collections.unmodifiableMap(mix);
+    }
+
+    private static Map<Operation, Integer> defaultMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        mix.put(Operation.PRODUCTS, 90);
+        mix.put(Operation.CLIENT_CREDENTIALS, 5);
+        mix.put(Operation.PASSWORD, 5);
+        return Collections.unmodifiableMap(mix);
+    }
+
+    private static String[] credentials(String name, String value) {
+        String[] credentials = value.split(":", 2);
+        if (credentials.length != 2) {
+            throw new IllegalArgumentException("Expected --" + name + "=id:secret");
+        }
+        return credentials;
+    }
+}
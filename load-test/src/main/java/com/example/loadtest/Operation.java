@@ -0,0 +1,34 @@
+package com.example.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * One kind of request in the traffic mix.
+ */
+enum Operation {
+
+    // GET /products with the client's current access token
+    PRODUCTS("products"),
+    // POST /oauth2/token, grant_type=client_credentials
+    CLIENT_CREDENTIALS("client_credentials"),
+    // POST /oauth2/token, grant_type=password
+    PASSWORD("password");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return this.key;
+    }
+
+    static Operation of(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation '" + key + "', expected one of "
+                        + Arrays.stream(values()).map(Operation::key).toList()));
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.loadtest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cold-start times of the packaged services, each run in a fresh JVM: time from launching auth-server to its
+ * first issued token, and from launching resource-server to its first {@code 200} on {@code /products}.
+ * <p>
+ * Runs the extracted jars of the {@code startup} Maven profile ({@code <module>/target/startup}) twice per
+ * round: {@code plain}, and {@code aot-cds} with {@code -Dspring.aot.enabled=true} and the module's
+ * {@code application.jsa} class-data sharing archive. Service output goes to
+ * {@code load-test/target/startup-logs}.
+ */
+public final class StartupBenchmark {
+
+    static final String USAGE = """
+            Usage: java -cp load-test/target/load-test.jar com.example.loadtest.StartupBenchmark [--name=value ...]
+              --runs=5                  rounds; every round starts each variant once
+              --variants=plain,aot-cds  JVM setups to compare
+              --root=.                  repository root, built with 'mvn -Pstartup package -DskipTests'
+              --timeout=PT60S           give up on a service that does not answer within this time
+            """;
+
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"access_token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final Path root;
+    private final Duration timeout;
+    private final Path logs;
+
+    private StartupBenchmark(Path root, Duration timeout) {
+        this.root = root;
+        this.timeout = timeout;
+        this.logs = root.resolve("load-test/target/startup-logs");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        List<String> variants = List.of("plain", "aot-cds");
+        Path root = Path.of(".");
+        Duration timeout = Duration.ofSeconds(60);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator > 0 ? arg.substring(2, separator) : arg;
+            String value = separator > 0 ? arg.substring(separator + 1) : "";
+            switch (name) {
+                case "runs" -> runs = Integer.parseInt(value);
+                case "variants" -> variants = Arrays.asList(value.split(","));
+                case "root" -> root = Path.of(value);
+                case "timeout" -> timeout = Duration.parse(value);
+                default -> {
+                    System.err.print(USAGE);
+                    System.exit(arg.equals("--help") ? 0 : 2);
+                    return;
+                }
+            }
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(root, timeout);
+        Files.createDirectories(benchmark.logs);
+        List<List<long[]>> results = new ArrayList<>();
+        variants.forEach(variant -> results.add(new ArrayList<>()));
+        for (int run = 1; run <= runs; run++) {
+            for (int i = 0; i < variants.size(); i++) {
+                long[] times = benchmark.measure(variants.get(i), run);
+                results.get(i).add(times);
+                System.out.printf("run %d %-8s first token %7.0f ms, first /products %7.0f ms%n", run, variants.get(i),
+                        times[0] / NANOS_PER_MILLI, times[1] / NANOS_PER_MILLI);
+            }
+        }
+
+        System.out.printf("%n%-8s %22s %22s%n", "variant", "first token (ms)", "first /products (ms)");
+        System.out.printf("%-8s %11s %10s %11s %10s%n", "", "median", "min", "median", "min");
+        for (int i = 0; i < variants.size(); i++) {
+            List<long[]> times = results.get(i);
+            System.out.printf("%-8s %11.0f %10.0f %11.0f %10.0f%n", variants.get(i),
+                    median(times, 0), min(times, 0), median(times, 1), min(times, 1));
+        }
+    }
+
+    // {time to first token, time to first /products}, each from the launch of its own service
+    private long[] measure(String variant, int run) throws IOException, InterruptedException {
+        int authPort = freePort();
+        long authStart = System.nanoTime();
+        Process authServer = launch("auth-server", variant, run, List.of("--server.port=" + authPort,
+                "--management.server.port=0"));
+        Process resourceServer = null;
+        try {
+            String accessToken = awaitToken(authPort, authServer);
+            long firstToken = System.nanoTime() - authStart;
+
+            int resourcePort = freePort();
+            long resourceStart = System.nanoTime();
+            resourceServer = launch("resource-server", variant, run, List.of("--server.port=" + resourcePort,
+                    "--management.server.port=0", "--AUTH_JWKS_URI=http://localhost:" + authPort + "/oauth2/jwks"));
+            awaitProducts(resourcePort, accessToken, resourceServer);
+            long firstProducts = System.nanoTime() - resourceStart;
+            return new long[] {firstToken, firstProducts};
+        } finally {
+            stop(resourceServer);
+            stop(authServer);
+        }
+    }
+
+    private Process launch(String module, String variant, int run, List<String> arguments) throws IOException {
+        Path startup = this.root.resolve(module).resolve("target/startup").toAbsolutePath();
+        Path jar;
+        try (Stream<Path> files = Files.list(startup)) {
+            jar = files.filter(file -> file.getFileName().toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No extracted jar in " + startup
+                            + "; run 'mvn -Pstartup package -DskipTests' from the repository root (or pass --root)"));
+        } catch (IOException ex) {
+            throw new IllegalStateException(module + " is not built with the startup profile under " + startup, ex);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        switch (variant) {
+            case "plain" -> {
+            }
+            case "aot-cds" -> {
+                Path archive = startup.resolve("application.jsa");
+                if (!Files.isRegularFile(archive)) {
+                    throw new IllegalStateException("No CDS archive " + archive + "; the startup profile's training run failed");
+                }
+                command.add("-XX:SharedArchiveFile=" + archive);
+                command.add("-Dspring.aot.enabled=true");
+            }
+            default -> throw new IllegalArgumentException("Unknown variant " + variant + ", expected plain or aot-cds");
+        }
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(arguments);
+        command.add("--spring.main.banner-mode=off");
+        return new ProcessBuilder(command)
+                .directory(startup.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(this.logs.resolve(module + "-" + variant + "-" + run + ".log").toFile())
+                .start();
+    }
+
+    private String awaitToken(int port, Process process) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/oauth2/token"))
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(
+                        "ahmet:12345".getBytes(StandardCharsets.UTF_8)))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("grant_type=client_credentials&scope=product.read"))
+                .build();
+        String body = await("auth-server", request, process);
+        Matcher matcher = ACCESS_TOKEN.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No access_token in token response: " + body);
+        }
+        return matcher.group(1);
+    }
+
+    private void awaitProducts(int port, String accessToken, Process process) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products"))
+                .header("Authorization", "Bearer " + accessToken)
+                .GET()
+                .build();
+        await("resource-server", request, process);
+    }
+
+    // polls until the first 200; connection refused just means the server is not listening yet
+    private String await(String service, HttpRequest request, Process process) throws InterruptedException {
+        long deadline = System.nanoTime() + this.timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(service + " exited with " + process.exitValue()
+                        + "; see " + this.logs.toAbsolutePath());
+            }
+            try {
+                HttpResponse<String> response = this.http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    return response.body();
+                }
+            } catch (IOException ex) {
+                // not listening yet, or the connection was reset while starting
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException(service + " did not answer within " + this.timeout);
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static double median(List<long[]> times, int index) {
+        long[] values = times.stream().mapToLong(time -> time[index]).sorted().toArray();
+        return values[values.length / 2] / NANOS_PER_MILLI;
+    }
+
+    private static double min(List<long[]> times, int index) {
+        return times.stream().mapToLong(time -> time[index]).min().orElse(0) / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop traffic: every client thread sends its next request as soon as the previous one completes,
+ * picking the operation at random by the configured weights.
+ * <p>
+ * Latencies are recorded per operation into HdrHistograms only during the measured period; failed requests
+ * are counted but not recorded, so that fast rejections do not pull the percentiles down.
+ */
+final class Workload {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"access_token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final LoadTestOptions options;
+    private final URI tokenUri;
+    private final URI productsUri;
+    private final String clientAuthorization;
+    private final HttpClient http;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    private volatile boolean running = true;
+    private volatile boolean measuring;
+
+    Workload(LoadTestOptions options, URI authUrl, URI resourceUrl) {
+        this.options = options;
+        this.tokenUri = authUrl.resolve("/oauth2/token");
+        this.productsUri = resourceUrl.resolve("/products");
+        this.clientAuthorization = "Basic " + Base64.getEncoder().encodeToString(
+                (options.clientId + ":" + options.clientSecret).getBytes(StandardCharsets.UTF_8));
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.operations = options.mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[this.operations.length];
+        int total = 0;
+        for (int i = 0; i < this.operations.length; i++) {
+            total += options.mix.get(this.operations[i]);
+            this.cumulativeWeights[i] = total;
+        }
+        for (Operation operation : this.operations) {
+            this.stats.put(operation, new Stats());
+        }
+    }
+
+    Result run() throws InterruptedException {
+        List<Thread> clients = new ArrayList<>(this.options.clients);
+        for (int i = 0; i < this.options.clients; i++) {
+            Thread client = new Thread(this::client, "load-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+            client.start();
+        }
+        Thread.sleep(this.options.warmup.toMillis());
+        this.measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(this.options.duration.toMillis());
+        this.measuring = false;
+        long elapsed = System.nanoTime() - start;
+        this.running = false;
+        for (Thread client : clients) {
+            client.join();
+        }
+        return new Result(this.stats, Duration.ofNanos(elapsed));
+    }
+
+    private void client() {
+        String accessToken = null;
+        while (this.running) {
+            Operation operation = next();
+            long start = System.nanoTime();
+            String issued = null;
+            boolean succeeded;
+            try {
+                if (operation == Operation.PRODUCTS) {
+                    if (accessToken == null) {
+                        // not measured: the first token of a client (or one replacing a rejected token)
+                        accessToken = requestToken(clientCredentialsForm());
+                        start = System.nanoTime();
+                    }
+                    int status = accessToken != null ? getProducts(accessToken) : -1;
+                    if (status == 401) {
+                        accessToken = null;
+                    }
+                    succeeded = status == 200;
+                } else {
+                    issued = requestToken(operation == Operation.PASSWORD ? passwordForm() : clientCredentialsForm());
+                    succeeded = issued != null;
+                }
+            } catch (IOException ex) {
+                succeeded = false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long latency = System.nanoTime() - start;
+            if (issued != null) {
+                accessToken = issued;
+            }
+            if (this.measuring) {
+                this.stats.get(operation).record(latency, succeeded);
+            }
+        }
+    }
+
+    private Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+        for (int i = 0; i < this.cumulativeWeights.length; i++) {
+            if (pick < this.cumulativeWeights[i]) {
+                return this.operations[i];
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private int getProducts(String accessToken) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(this.productsUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + accessToken)
+                .GET()
+                .build();
+        return this.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // the issued access token, or null when the token endpoint did not answer 200
+    private String requestToken(String form) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(this.tokenUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", this.clientAuthorization)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        HttpResponse<String> response = this.http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        Matcher matcher = ACCESS_TOKEN.matcher(response.body());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private String clientCredentialsForm() {
+        return "grant_type=client_credentials&scope=" + encode(this.options.scope);
+    }
+
+    // the password grant reads the resource owner from client_id / client_secret
+    private String passwordForm() {
+        return "grant_type=password&client_id=" + encode(this.options.username)
+                + "&client_secret=" + encode(this.options.password)
+                + "&scope=" + encode(this.options.scope);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static final class Stats {
+
+        // nanoseconds, auto-resizing, 3 significant digits
+        private final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, boolean succeeded) {
+            if (succeeded) {
+                this.latencies.recordValue(latencyNanos);
+            } else {
+                this.errors.increment();
+            }
+        }
+    }
+
+    static final class Result {
+
+        private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+        private final Map<Operation, Stats> stats;
+        private final Duration elapsed;
+
+        private Result(Map<Operation, Stats> stats, Duration elapsed) {
+            this.stats = stats;
+            this.elapsed = elapsed;
+        }
+
+        void print(PrintStream out) {
+            double seconds = this.elapsed.toNanos() / 1_000_000_000.0;
+            Histogram total = new Histogram(3);
+            long totalErrors = 0;
+            out.printf("%-20s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                    "operation", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (Map.Entry<Operation, Stats> entry : this.stats.entrySet()) {
+                Histogram latencies = entry.getValue().latencies.copy();
+                long errors = entry.getValue().errors.sum();
+                total.add(latencies);
+                totalErrors += errors;
+                printRow(out, entry.getKey().key(), latencies, errors, seconds);
+            }
+            printRow(out, "total", total, totalErrors, seconds);
+        }
+
+        private static void printRow(PrintStream out, String name, Histogram latencies, long errors, double seconds) {
+            out.printf("%-20s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, latencies.getTotalCount(), errors, latencies.getTotalCount() / seconds,
+                    latencies.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                    latencies.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                    latencies.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    latencies.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                    latencies.getMaxValue() / NANOS_PER_MILLI);
+        }
+
+        // percentile distributions in milliseconds, loadable by the HdrHistogram plotter
+        void writeHistograms(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (Map.Entry<Operation, Stats> entry : this.stats.entrySet()) {
+                Path file = directory.resolve(entry.getKey().key() + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                    entry.getValue().latencies.outputPercentileDistribution(out, NANOS_PER_MILLI);
+                }
+            }
+        }
+    }
+}
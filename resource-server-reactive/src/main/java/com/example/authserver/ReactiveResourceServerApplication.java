@@ -0,0 +1,12 @@
+package com.example.authserver;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveResourceServerApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveResourceServerApplication.class, args);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.authserver.config;
+
+import com.example.common.DecodedJwtCache;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of resource-server's {@code CachingJwtDecoder}, on the same {@link DecodedJwtCache}:
+ * successfully decoded and validated tokens are kept, keyed by the SHA-256 of the raw token, until their
+ * {@code exp}.
+ * <p>
+ * A hit is answered on the calling event-loop thread without touching the delegate. Rejected tokens are
+ * never cached.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final DecodedJwtCache cache;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, long maximumSize) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+        this.cache = new DecodedJwtCache(maximumSize);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        return Mono.defer(() -> {
+            String key = this.cache.key(token);
+            Jwt jwt = this.cache.get(key);
+            if (jwt != null) {
+                return Mono.just(jwt);
+            }
+            return this.delegate.decode(token).doOnNext(validated -> this.cache.put(key, validated));
+        });
+    }
+
+    public DecodedJwtCache cache() {
+        return this.cache;
+    }
+
+    public long hitCount() {
+        return this.cache.hitCount();
+    }
+
+    public long missCount() {
+        return this.cache.missCount();
+    }
+
+    public long size() {
+        return this.cache.size();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.authserver.config;
+
+import com.example.common.ResourceServerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of resource-server's {@code MeteredJwtDecoder}, publishing the same meters: every
+ * decode is timed as {@code resource.jwt.decode} by outcome, from subscription until the token or the error
+ * arrives, and the hits, misses and size of a {@link CachingReactiveJwtDecoder} delegate are published too.
+ */
+public class MeteredReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final ResourceServerMetrics metrics;
+
+    public MeteredReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+        this.metrics = new ResourceServerMetrics(meterRegistry);
+        if (delegate instanceof CachingReactiveJwtDecoder caching) {
+            this.metrics.monitor(caching.cache());
+        }
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return this.delegate.decode(token)
+                    .doOnSuccess(jwt -> this.metrics.recordDecode(start, null))
+                    .doOnError(ex -> this.metrics.recordDecode(start, ex));
+        });
+    }
+}
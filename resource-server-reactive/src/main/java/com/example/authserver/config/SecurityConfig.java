@@ -0,0 +1,135 @@
+package com.example.authserver.config;
+
+import com.example.common.Ed25519JwsVerifier;
+import com.example.common.Ed25519KeySelector;
+import com.example.common.ResourceServerMetrics;
+import com.example.common.RevokedTokens;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSecurityContextJWKSet;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.web.access.server.BearerTokenServerAccessDeniedHandler;
+import org.springframework.security.oauth2.server.resource.web.server.BearerTokenServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    @Value("${AUTH_JWKS_URI:http://localhost:9000/oauth2/jwks}")
+    private String jwkSetUri;
+
+    // Must cover AUTH_SIGNING_ALGORITHM of the auth server; tokens signed with anything else are rejected
+    @Value("${AUTH_JWS_ALGORITHMS:RS256,ES256,ES384,ES512,EdDSA}")
+    private List<String> jwsAlgorithms;
+
+    // Validated tokens are cached until their exp, so a repeated bearer token is verified once (0 disables)
+    @Value("${AUTH_JWT_CACHE_MAX_SIZE:10000}")
+    private long jwtCacheMaximumSize;
+
+    // Revoked token ids polled from the auth server on their own thread (empty AUTH_REVOCATIONS_URI disables the check)
+    @Bean
+    public RevokedTokens revokedTokens(@Value("${AUTH_REVOCATIONS_URI:}") String revocationsUri,
+                                       @Value("${AUTH_REVOCATIONS_POLL_INTERVAL:PT10S}") Duration pollInterval,
+                                       MeterRegistry meterRegistry) {
+        RevokedTokens revokedTokens = new RevokedTokens(
+                StringUtils.hasText(revocationsUri) ? URI.create(revocationsUri) : null, pollInterval, meterRegistry);
+        revokedTokens.refresh();
+        return revokedTokens;
+    }
+
+    // JWKS is fetched with the non-blocking WebClient and kept until a token names an unknown kid
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder(RevokedTokens revokedTokens, MeterRegistry meterRegistry) {
+        Set<JWSAlgorithm> accepted = new HashSet<>();
+        ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri)
+                .jwsAlgorithms(algorithms -> jwsAlgorithms.forEach(name -> {
+                    JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(name.trim());
+                    accepted.add(jwsAlgorithm);
+                    // Spring has no EdDSA member; the key selector below accepts it
+                    if (!JWSAlgorithm.EdDSA.equals(jwsAlgorithm)) {
+                        SignatureAlgorithm algorithm = SignatureAlgorithm.from(jwsAlgorithm.getName());
+                        Assert.notNull(algorithm, "Unsupported JWS algorithm '" + name + "'");
+                        algorithms.add(algorithm);
+                    }
+                }))
+                .jwtProcessorCustomizer(jwtProcessor -> {
+                    jwtProcessor.setJWSTypeVerifier(new DefaultJOSEObjectTypeVerifier<>(
+                            JOSEObjectType.JWT, new JOSEObjectType("at+jwt"), null));
+                    // EdDSA keys are converted and verified on the JDK's provider; Nimbus would need Tink for them
+                    jwtProcessor.setJWSKeySelector(new Ed25519KeySelector<>(accepted, new JWKSecurityContextJWKSet()));
+                    jwtProcessor.setJWSVerifierFactory(Ed25519JwsVerifier.FACTORY);
+                })
+                .build();
+        if (jwtCacheMaximumSize > 0) {
+            decoder = new CachingReactiveJwtDecoder(decoder, jwtCacheMaximumSize);
+        }
+        // revocation is checked after the cache, so a cached token is still rejected once it is revoked;
+        // the lookup is in memory and never blocks the event loop
+        ReactiveJwtDecoder verified = decoder;
+        ReactiveJwtDecoder checked = token -> verified.decode(token).flatMap(jwt -> {
+            OAuth2TokenValidatorResult result = revokedTokens.validate(jwt);
+            return result.hasErrors()
+                    ? Mono.error(new JwtValidationException("The token has been revoked", result.getErrors()))
+                    : Mono.just(jwt);
+        });
+        return new MeteredReactiveJwtDecoder(checked, meterRegistry);
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveJwtDecoder jwtDecoder,
+                                                         MeterRegistry meterRegistry) {
+
+        http.csrf(ServerHttpSecurity.CsrfSpec::disable);
+
+        // stateless: no WebSession is created to remember rejected requests
+        http.requestCache(requestCache -> requestCache.requestCache(NoOpServerRequestCache.getInstance()));
+
+        http.authorizeExchange(exchanges -> exchanges
+                // scraped by Prometheus on the separate management port (MANAGEMENT_PORT), never the public one
+                .pathMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                .pathMatchers("/products").hasAuthority("SCOPE_product.read")
+                .anyExchange().authenticated()
+        );
+
+        // 401 (missing / invalid token) and 403 (insufficient scope) counted, then answered as before
+        ResourceServerMetrics metrics = new ResourceServerMetrics(meterRegistry);
+        BearerTokenServerAuthenticationEntryPoint entryPoint = new BearerTokenServerAuthenticationEntryPoint();
+        BearerTokenServerAccessDeniedHandler accessDeniedHandler = new BearerTokenServerAccessDeniedHandler();
+
+        http.oauth2ResourceServer(oauth2 -> oauth2
+                .jwt(jwt -> jwt.jwtDecoder(jwtDecoder))
+                .authenticationEntryPoint((exchange, exception) -> {
+                    metrics.recordRejection(401);
+                    return entryPoint.commence(exchange, exception);
+                })
+                .accessDeniedHandler((exchange, exception) -> {
+                    metrics.recordRejection(403);
+                    return accessDeniedHandler.handle(exchange, exception);
+                })
+        );
+
+        return http.build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.authserver.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+public class ProductController {
+
+    // SCOPE_product.read is enforced by the SecurityWebFilterChain before this runs
+    @GetMapping("/products")
+    public Mono<Map<String, String>> getProducts(@AuthenticationPrincipal Jwt jwt) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "OK");
+        response.put("user", jwt.getClaimAsString("sub"));
+        return Mono.just(response);
+    }
+}
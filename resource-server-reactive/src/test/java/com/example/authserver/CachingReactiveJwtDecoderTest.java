@@ -0,0 +1,77 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.authserver.config.CachingReactiveJwtDecoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+class CachingReactiveJwtDecoderTest {
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private final ReactiveJwtDecoder verifying = token -> Mono.fromSupplier(() -> {
+        verifications.incrementAndGet();
+        if (token.startsWith("bad")) {
+            throw new BadJwtException("invalid signature");
+        }
+        Instant now = Instant.now();
+        boolean expired = token.startsWith("expired");
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("ahmet")
+                .issuedAt(now.minusSeconds(60))
+                .expiresAt(expired ? now.minusSeconds(1) : now.plusSeconds(300))
+                .build();
+    });
+
+    @Test
+    void shouldVerifyRepeatedTokenOnce() {
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 100);
+
+        Jwt first = decoder.decode("token-1").block();
+        Jwt second = decoder.decode("token-1").block();
+
+        assertThat(second).isSameAs(first);
+        assertThat(verifications).hasValue(1);
+        assertThat(decoder.hitCount()).isEqualTo(1);
+        assertThat(decoder.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotDecodeBeforeSubscription() {
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 100);
+
+        decoder.decode("token-1");
+
+        assertThat(verifications).hasValue(0);
+        assertThat(decoder.missCount()).isZero();
+    }
+
+    @Test
+    void shouldNotCacheRejectedToken() {
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 100);
+
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> decoder.decode("bad-token").block());
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> decoder.decode("bad-token").block());
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void shouldNotServeExpiredToken() {
+        CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 100);
+
+        decoder.decode("expired-token").block();
+        decoder.decode("expired-token").block();
+
+        assertThat(verifications).hasValue(2);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.time.Instant;
+
+import com.example.authserver.config.CachingReactiveJwtDecoder;
+import com.example.authserver.config.MeteredReactiveJwtDecoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+class MeteredReactiveJwtDecoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ReactiveJwtDecoder verifying = token -> Mono.fromSupplier(() -> {
+        if (token.startsWith("bad")) {
+            throw new BadJwtException("invalid signature");
+        }
+        if (token.startsWith("unreachable")) {
+            throw new JwtException("Couldn't retrieve remote JWK set");
+        }
+        Instant now = Instant.now();
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("ahmet")
+                .issuedAt(now.minusSeconds(60))
+                .expiresAt(now.plusSeconds(300))
+                .build();
+    });
+
+    @Test
+    void shouldTimeDecodesByOutcome() {
+        MeteredReactiveJwtDecoder decoder = new MeteredReactiveJwtDecoder(verifying, registry);
+
+        decoder.decode("token-1").block();
+        decoder.decode("token-2").block();
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> decoder.decode("bad-token").block());
+        assertThatExceptionOfType(JwtException.class).isThrownBy(() -> decoder.decode("unreachable-token").block());
+
+        assertThat(registry.get("resource.jwt.decode").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(registry.get("resource.jwt.decode").tag("outcome", "invalid").timer().count()).isEqualTo(1);
+        assertThat(registry.get("resource.jwt.decode").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPublishCacheStatistics() {
+        MeteredReactiveJwtDecoder decoder =
+                new MeteredReactiveJwtDecoder(new CachingReactiveJwtDecoder(verifying, 100), registry);
+
+        decoder.decode("token-1").block();
+        decoder.decode("token-1").block();
+        decoder.decode("token-1").block();
+
+        assertThat(registry.get("resource.jwt.cache.requests").tag("result", "hit").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("resource.jwt.cache.requests").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("resource.jwt.cache.size").gauge().value()).isEqualTo(1);
+    }
+}
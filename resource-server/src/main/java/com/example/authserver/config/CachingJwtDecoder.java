@@ -0,0 +1,54 @@
+package com.example.authserver.config;
+
+import com.example.common.DecodedJwtCache;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.util.Assert;
+
+/**
+ * Remembers successfully decoded and validated tokens in a {@link DecodedJwtCache}, keyed by the SHA-256 of
+ * the raw token.
+ * <p>
+ * A bearer token sent many times is parsed and signature-checked once; later requests are served from the
+ * cache until the token's {@code exp}. Rejected tokens are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final DecodedJwtCache cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+        this.cache = new DecodedJwtCache(maximumSize);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = this.cache.key(token);
+        Jwt jwt = this.cache.get(key);
+        if (jwt != null) {
+            return jwt;
+        }
+        jwt = this.delegate.decode(token);
+        this.cache.put(key, jwt);
+        return jwt;
+    }
+
+    public DecodedJwtCache cache() {
+        return this.cache;
+    }
+
+    public long hitCount() {
+        return this.cache.hitCount();
+    }
+
+    public long missCount() {
+        return this.cache.missCount();
+    }
+
+    public long size() {
+        return this.cache.size();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.authserver.config;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Keeps the auth server's JWK set warm.
+ * <p>
+ * Keys are fetched once at startup ({@link #prefetch}) and then refreshed by a background task
+ * {@code refreshAhead} before the cached set goes stale, so request threads normally never wait on the
+ * JWKS endpoint. A lookup for an unknown {@code kid} triggers one refresh that concurrent callers wait on
+ * (at most once per {@code rateLimit}), and while the auth server is unreachable the last known set keeps
+ * being served for up to {@code outageTolerance}.
+ */
+public class JwkSetManager implements JWKSource<SecurityContext>, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(JwkSetManager.class);
+
+    private static final JWKSelector ALL_KEYS = new JWKSelector(new JWKMatcher.Builder().build());
+
+    private final URL jwkSetUrl;
+    private final JWKSource<SecurityContext> source;
+
+    public JwkSetManager(URL jwkSetUrl, Duration timeToLive, Duration refreshAhead, Duration refreshTimeout,
+                         Duration rateLimit, Duration outageTolerance) {
+        this.jwkSetUrl = jwkSetUrl;
+        this.source = JWKSourceBuilder.<SecurityContext>create(jwkSetUrl)
+                .cache(timeToLive.toMillis(), refreshTimeout.toMillis())
+                .refreshAheadCache(refreshAhead.toMillis(), true)
+                .rateLimited(rateLimit.toMillis())
+                .outageTolerant(outageTolerance.toMillis())
+                .build();
+    }
+
+    // Loads the key set now; failure is not fatal, the first request will retry
+    public boolean prefetch() {
+        try {
+            List<JWK> keys = this.source.get(ALL_KEYS, null);
+            logger.info("Prefetched " + keys.size() + " signing keys from " + this.jwkSetUrl);
+            return true;
+        } catch (KeySourceException ex) {
+            logger.warn("Could not prefetch signing keys from " + this.jwkSetUrl + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        return this.source.get(jwkSelector, context);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (this.source instanceof Closeable) {
+            ((Closeable) this.source).close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.authserver.config;
+
+import com.example.common.ResourceServerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.util.Assert;
+
+/**
+ * Times every bearer token decode as {@code resource.jwt.decode}, tagged with the outcome: {@code success},
+ * {@code invalid} (bad signature, expired, malformed) or {@code error} (keys could not be loaded).
+ * <p>
+ * When the delegate is a {@link CachingJwtDecoder} its hits, misses and size are published as well.
+ */
+public class MeteredJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final ResourceServerMetrics metrics;
+
+    public MeteredJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        this.delegate = delegate;
+        this.metrics = new ResourceServerMetrics(meterRegistry);
+        if (delegate instanceof CachingJwtDecoder caching) {
+            this.metrics.monitor(caching.cache());
+        }
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return this.delegate.decode(token);
+        } catch (Throwable ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            this.metrics.recordDecode(start, failure);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.authserver.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Scopes a bearer token must carry to call a handler method (or every handler of a controller type).
+ * <p>
+ * All listed scopes are required; a type-level and a method-level annotation add up. The rules are compiled
+ * into the {@link ScopeRouteTable} at startup and enforced by the security filter chain, before the
+ * controller is invoked.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequiredScope {
+
+    String[] value();
+}
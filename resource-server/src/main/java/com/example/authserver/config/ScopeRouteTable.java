@@ -0,0 +1,180 @@
+package com.example.authserver.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * {@link RequiredScope} rules of every handler method, compiled once at startup into a route table.
+ * <p>
+ * Each scope named by a rule gets one bit, so a route needs a mask and a token carries a mask
+ * ({@link ScopedJwtAuthenticationConverter} computes it once per cached token). A request is allowed when
+ * {@code (token & route) == route}. Paths without pattern syntax are found with one map lookup; pattern
+ * routes are scanned and every matching one applies (the union of their scopes is required, whichever
+ * handler Spring MVC picks). Requests without a rule only need to be authenticated.
+ * At most 64 distinct required scopes are supported.
+ */
+public class ScopeRouteTable implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    // scope name -> bit
+    private final Map<String, Integer> bits;
+    // "GET /products" -> mask, for routes without pattern syntax; "* /path" matches every method
+    private final Map<String, Long> exactRoutes;
+    private final List<PatternRoute> patternRoutes;
+
+    private ScopeRouteTable(Map<String, Integer> bits, Map<String, Long> exactRoutes, List<PatternRoute> patternRoutes) {
+        this.bits = bits;
+        this.exactRoutes = exactRoutes;
+        this.patternRoutes = patternRoutes;
+    }
+
+    public static ScopeRouteTable of(Map<RequestMappingInfo, HandlerMethod> handlerMethods) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        Map<String, Integer> bits = new HashMap<>();
+        Map<String, Long> exactRoutes = new HashMap<>();
+        List<PatternRoute> patternRoutes = new ArrayList<>();
+        handlerMethods.forEach((info, handlerMethod) -> {
+            Set<String> scopes = requiredScopes(handlerMethod);
+            if (scopes.isEmpty()) {
+                return;
+            }
+            long mask = 0;
+            for (String scope : scopes) {
+                Integer bit = bits.get(scope);
+                if (bit == null) {
+                    bit = bits.size();
+                    if (bit >= Long.SIZE) {
+                        throw new IllegalStateException("More than " + Long.SIZE + " distinct required scopes");
+                    }
+                    bits.put(scope, bit);
+                }
+                mask |= 1L << bit;
+            }
+            Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+            for (String path : info.getPatternValues()) {
+                PathPattern pattern = parser.parse(path);
+                if (pattern.hasPatternSyntax()) {
+                    patternRoutes.add(new PatternRoute(methods, pattern, mask));
+                } else if (methods.isEmpty()) {
+                    exactRoutes.merge("* " + path, mask, (a, b) -> a | b);
+                } else {
+                    for (RequestMethod method : methods) {
+                        exactRoutes.merge(method.name() + " " + path, mask, (a, b) -> a | b);
+                    }
+                }
+            }
+        });
+        return new ScopeRouteTable(Map.copyOf(bits), Map.copyOf(exactRoutes), List.copyOf(patternRoutes));
+    }
+
+    // the token's scopes as a mask; scopes no route requires are ignored
+    public long mask(Collection<String> scopes) {
+        long mask = 0;
+        for (String scope : scopes) {
+            Integer bit = this.bits.get(scope);
+            if (bit != null) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    // scopes the request needs, as a mask (0 when no rule applies)
+    public long requiredMask(HttpServletRequest request) {
+        // matched like Spring MVC matches it: decoded segments without ;params, HEAD served by GET handlers
+        PathContainer path = RequestPath.parse(request.getRequestURI(), request.getContextPath())
+                .pathWithinApplication();
+        String method = HttpMethod.HEAD.matches(request.getMethod()) ? HttpMethod.GET.name() : request.getMethod();
+        String lookupPath = lookupPath(path);
+        Long exact = this.exactRoutes.get(method + " " + lookupPath);
+        Long anyMethod = this.exactRoutes.get("* " + lookupPath);
+        long mask = (exact != null ? exact : 0) | (anyMethod != null ? anyMethod : 0);
+        for (PatternRoute route : this.patternRoutes) {
+            if (route.matches(method, path)) {
+                mask |= route.mask();
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<? extends Authentication> authentication,
+                                         RequestAuthorizationContext context) {
+        Authentication current = authentication.get();
+        if (current == null || !this.trustResolver.isAuthenticated(current)) {
+            return DENIED;
+        }
+        long required = requiredMask(context.getRequest());
+        if (required == 0) {
+            return GRANTED;
+        }
+        long granted = current instanceof ScopedJwtAuthenticationToken token
+                ? token.getScopeMask()
+                : mask(current.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .filter(name -> name != null && name.startsWith("SCOPE_"))
+                        .map(name -> name.substring("SCOPE_".length()))
+                        .toList());
+        return (granted & required) == required ? GRANTED : DENIED;
+    }
+
+    private static String lookupPath(PathContainer path) {
+        StringBuilder lookupPath = new StringBuilder(path.value().length());
+        for (PathContainer.Element element : path.elements()) {
+            lookupPath.append(element instanceof PathContainer.PathSegment segment
+                    ? segment.valueToMatch()
+                    : element.value());
+        }
+        return lookupPath.toString();
+    }
+
+    private static Set<String> requiredScopes(HandlerMethod handlerMethod) {
+        Set<String> scopes = new LinkedHashSet<>();
+        RequiredScope onType = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), RequiredScope.class);
+        if (onType != null) {
+            scopes.addAll(List.of(onType.value()));
+        }
+        RequiredScope onMethod = handlerMethod.getMethodAnnotation(RequiredScope.class);
+        if (onMethod != null) {
+            scopes.addAll(List.of(onMethod.value()));
+        }
+        return scopes;
+    }
+
+    private record PatternRoute(Set<RequestMethod> methods, PathPattern pattern, long mask) {
+
+        boolean matches(String method, PathContainer path) {
+            return (this.methods.isEmpty() || this.methods.stream().anyMatch(m -> m.name().equals(method)))
+                    && this.pattern.matches(path);
+        }
+    }
+}
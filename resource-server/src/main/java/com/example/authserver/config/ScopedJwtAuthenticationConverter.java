@@ -0,0 +1,69 @@
+package com.example.authserver.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Converts a validated {@link Jwt} to a {@link ScopedJwtAuthenticationToken}.
+ * <p>
+ * The {@code scope} (or {@code scp}) claim, an array or a space-separated string, becomes {@code SCOPE_*}
+ * authorities and a {@link ScopeRouteTable} mask. Both are remembered per {@link Jwt} instance (weakly), so
+ * a token served from the {@link CachingJwtDecoder} is parsed once; every request still gets its own
+ * authentication object, whose details Spring Security fills in per request (and which keeps its own copy
+ * of the authority list, holding the shared authority instances).
+ */
+public class ScopedJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private static final List<String> SCOPE_CLAIMS = List.of("scope", "scp");
+
+    private final ScopeRouteTable routeTable;
+    private final Cache<Jwt, Scopes> scopes;
+
+    public ScopedJwtAuthenticationConverter(ScopeRouteTable routeTable, long maximumSize) {
+        Assert.notNull(routeTable, "routeTable cannot be null");
+        this.routeTable = routeTable;
+        // weak keys compare by identity: a hit is the very Jwt the decoder cache handed out
+        this.scopes = maximumSize > 0 ? Caffeine.newBuilder().weakKeys().maximumSize(maximumSize).build() : null;
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        Scopes granted = this.scopes != null ? this.scopes.get(jwt, this::scopes) : scopes(jwt);
+        return new ScopedJwtAuthenticationToken(jwt, granted.authorities(), granted.mask());
+    }
+
+    private Scopes scopes(Jwt jwt) {
+        List<String> names = new ArrayList<>();
+        for (String claim : SCOPE_CLAIMS) {
+            Object value = jwt.getClaim(claim);
+            if (value instanceof String string) {
+                for (String scope : string.split(" ")) {
+                    if (!scope.isEmpty()) {
+                        names.add(scope);
+                    }
+                }
+                break;
+            }
+            if (value instanceof Collection<?> collection) {
+                collection.forEach(scope -> names.add(String.valueOf(scope)));
+                break;
+            }
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        names.forEach(scope -> authorities.add(new SimpleGrantedAuthority("SCOPE_" + scope)));
+        return new Scopes(List.copyOf(authorities), this.routeTable.mask(names));
+    }
+
+    private record Scopes(List<GrantedAuthority> authorities, long mask) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.authserver.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.io.Serial;
+import java.util.Collection;
+
+/**
+ * {@link JwtAuthenticationToken} that also carries the token's scopes as a {@link ScopeRouteTable} mask.
+ */
+public class ScopedJwtAuthenticationToken extends JwtAuthenticationToken {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long scopeMask;
+
+    public ScopedJwtAuthenticationToken(Jwt jwt, Collection<? extends GrantedAuthority> authorities, long scopeMask) {
+        super(jwt, authorities);
+        this.scopeMask = scopeMask;
+    }
+
+    public long getScopeMask() {
+        return this.scopeMask;
+    }
+}
@@ -1,11 +1,39 @@
 package com.example.authserver.config;
 
+import com.example.common.Ed25519JwsVerifier;
+import com.example.common.Ed25519KeySelector;
+import com.example.common.ResourceServerMetrics;
+import com.example.common.RevokedTokens;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
+import org.springframework.security.oauth2.server.resource.web.access.BearerTokenAccessDeniedHandler;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Configuration
 public class SecurityConfig {
@@ -13,18 +41,120 @@ public class SecurityConfig {
     @Value("${AUTH_JWKS_URI:http://localhost:9000/oauth2/jwks}")
     private String jwkSetUri;
 
+    // Must cover AUTH_SIGNING_ALGORITHM of the auth server; tokens signed with anything else are rejected
+    @Value("${AUTH_JWS_ALGORITHMS:RS256,ES256,ES384,ES512,EdDSA}")
+    private List<String> jwsAlgorithms;
+
+    // Validated tokens are cached until their exp, so a repeated bearer token is verified once (0 disables)
+    @Value("${AUTH_JWT_CACHE_MAX_SIZE:10000}")
+    private long jwtCacheMaximumSize;
+
+    // JWKS is prefetched at startup and refreshed in the background before it goes stale
+    @Bean
+    public JwkSetManager jwkSetManager(@Value("${AUTH_JWKS_TTL:PT5M}") Duration timeToLive,
+                                       @Value("${AUTH_JWKS_REFRESH_AHEAD:PT30S}") Duration refreshAhead,
+                                       @Value("${AUTH_JWKS_REFRESH_TIMEOUT:PT15S}") Duration refreshTimeout,
+                                       @Value("${AUTH_JWKS_RATE_LIMIT:PT30S}") Duration rateLimit,
+                                       @Value("${AUTH_JWKS_OUTAGE_TOLERANCE:PT24H}") Duration outageTolerance)
+            throws MalformedURLException {
+        JwkSetManager manager = new JwkSetManager(URI.create(jwkSetUri).toURL(), timeToLive, refreshAhead,
+                refreshTimeout, rateLimit, outageTolerance);
+        manager.prefetch();
+        return manager;
+    }
+
+    // Revoked token ids polled from the auth server (empty AUTH_REVOCATIONS_URI disables the check)
+    @Bean
+    public RevokedTokens revokedTokens(@Value("${AUTH_REVOCATIONS_URI:}") String revocationsUri,
+                                       @Value("${AUTH_REVOCATIONS_POLL_INTERVAL:PT10S}") Duration pollInterval,
+                                       MeterRegistry meterRegistry) {
+        RevokedTokens revokedTokens = new RevokedTokens(
+                StringUtils.hasText(revocationsUri) ? URI.create(revocationsUri) : null, pollInterval, meterRegistry);
+        revokedTokens.refresh();
+        return revokedTokens;
+    }
+
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public JwtDecoder jwtDecoder(JwkSetManager jwkSetManager, RevokedTokens revokedTokens,
+                                 MeterRegistry meterRegistry) {
+        Set<JWSAlgorithm> algorithms = jwsAlgorithms.stream()
+                .map(JWSAlgorithm::parse)
+                .collect(Collectors.toSet());
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        // EdDSA keys are converted and verified on the JDK's provider; Nimbus would need Tink for them
+        jwtProcessor.setJWSKeySelector(new Ed25519KeySelector<>(algorithms, jwkSetManager));
+        jwtProcessor.setJWSVerifierFactory(Ed25519JwsVerifier.FACTORY);
+        jwtProcessor.setJWSTypeVerifier(new DefaultJOSEObjectTypeVerifier<>(
+                JOSEObjectType.JWT, new JOSEObjectType("at+jwt"), null));
+        // claims (exp, nbf, ...) are checked by Spring's validators, as with withJwkSetUri(...)
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        JwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        if (jwtCacheMaximumSize > 0) {
+            decoder = new CachingJwtDecoder(decoder, jwtCacheMaximumSize);
+        }
+        // revocation is checked after the cache, so a cached token is still rejected once it is revoked
+        JwtDecoder verified = decoder;
+        JwtDecoder checked = token -> {
+            Jwt jwt = verified.decode(token);
+            OAuth2TokenValidatorResult result = revokedTokens.validate(jwt);
+            if (result.hasErrors()) {
+                throw new JwtValidationException("The token has been revoked", result.getErrors());
+            }
+            return jwt;
+        };
+        return new MeteredJwtDecoder(checked, meterRegistry);
+    }
+
+    // @RequiredScope rules of all controllers, compiled once; checked with one mask test per request
+    @Bean
+    public ScopeRouteTable scopeRouteTable(
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping) {
+        return ScopeRouteTable.of(handlerMapping.getHandlerMethods());
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder,
+                                                   ScopeRouteTable scopeRouteTable,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${AUTH_SOURCE_RATE_LIMIT:0}") double sourceRateLimit,
+                                                   @Value("${AUTH_SOURCE_RATE_LIMIT_BURST:50}") int sourceRateLimitBurst)
+            throws Exception {
 
         http.csrf(AbstractHttpConfigurer::disable);
 
+        // Requests per second per source address, checked before the token is decoded (0 disables)
+        if (sourceRateLimit > 0) {
+            http.addFilterBefore(new SourceRateLimitFilter(sourceRateLimit, sourceRateLimitBurst, meterRegistry),
+                    BearerTokenAuthenticationFilter.class);
+        }
+
         http.authorizeHttpRequests(auth -> auth
-                .requestMatchers("/products").hasAuthority("SCOPE_product.read")
-                .anyRequest().authenticated()
+                // scraped by Prometheus on the separate management port (MANAGEMENT_PORT), never the public one
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                // everything else: authenticated, plus the scopes of the handler's @RequiredScope
+                .anyRequest().access(scopeRouteTable)
         );
 
+        // 401 (missing / invalid token) and 403 (insufficient scope) counted, then answered as before
+        ResourceServerMetrics metrics = new ResourceServerMetrics(meterRegistry);
+        BearerTokenAuthenticationEntryPoint entryPoint = new BearerTokenAuthenticationEntryPoint();
+        BearerTokenAccessDeniedHandler accessDeniedHandler = new BearerTokenAccessDeniedHandler();
+
         http.oauth2ResourceServer(oauth2 -> oauth2
-                .jwt(jwt -> jwt.jwkSetUri(jwkSetUri))
+                .jwt(jwt -> jwt
+                        .decoder(jwtDecoder)
+                        .jwtAuthenticationConverter(new ScopedJwtAuthenticationConverter(scopeRouteTable,
+                                Math.max(jwtCacheMaximumSize, 0))))
+                .authenticationEntryPoint((request, response, exception) -> {
+                    metrics.recordRejection(401);
+                    entryPoint.commence(request, response, exception);
+                })
+                .accessDeniedHandler((request, response, exception) -> {
+                    metrics.recordRejection(403);
+                    accessDeniedHandler.handle(request, response, exception);
+                })
         );
 
         return http.build();
@@ -0,0 +1,59 @@
+package com.example.authserver.config;
+
+import com.example.common.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-source-address rate limit, checked before the bearer token is decoded so a flood of requests
+ * (valid token or not) is turned away without a signature check.
+ * <p>
+ * The source is {@code request.getRemoteAddr()}; behind a proxy enable {@code server.forward-headers-strategy}
+ * so that is the client and not the proxy. Actuator endpoints are not limited.
+ */
+public class SourceRateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Counter throttled;
+
+    public SourceRateLimitFilter(double requestsPerSecond, int burst, MeterRegistry meterRegistry) {
+        this.rateLimiter = new RateLimiter(100_000, Duration.ofMinutes(10));
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        // no address tag: one series per source would grow without bound
+        this.throttled = Counter.builder("resource.rate_limit.throttled")
+                .description("Requests rejected by the per-source rate limit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long wait = this.rateLimiter.tryAcquire(request.getRemoteAddr(), this.requestsPerSecond, this.burst);
+        if (wait > 0) {
+            this.throttled.increment();
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L))));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -3,8 +3,8 @@ package com.example.authserver.controller;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.example.authserver.config.RequiredScope;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,7 +14,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProductController {
 
     @GetMapping("/products")
-    @PreAuthorize("hasAuthority('SCOPE_product.read')")
+    @RequiredScope("product.read")
     public ResponseEntity<Map<String, String>> getProducts(@AuthenticationPrincipal Jwt jwt) {
         Map<String, String> response = new HashMap<>();
         response.put("message", "OK");
@@ -0,0 +1,66 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.authserver.config.CachingJwtDecoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+class CachingJwtDecoderTest {
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private final JwtDecoder verifying = token -> {
+        verifications.incrementAndGet();
+        if (token.startsWith("bad")) {
+            throw new BadJwtException("invalid signature");
+        }
+        Instant now = Instant.now();
+        boolean expired = token.startsWith("expired");
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("ahmet")
+                .issuedAt(now.minusSeconds(60))
+                .expiresAt(expired ? now.minusSeconds(1) : now.plusSeconds(300))
+                .build();
+    };
+
+    @Test
+    void shouldVerifyRepeatedTokenOnce() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(verifying, 100);
+
+        Jwt first = decoder.decode("token-1");
+        Jwt second = decoder.decode("token-1");
+
+        assertThat(second).isSameAs(first);
+        assertThat(verifications).hasValue(1);
+        assertThat(decoder.hitCount()).isEqualTo(1);
+        assertThat(decoder.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheRejectedToken() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(verifying, 100);
+
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> decoder.decode("bad-token"));
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> decoder.decode("bad-token"));
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void shouldNotServeExpiredToken() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(verifying, 100);
+
+        decoder.decode("expired-token");
+        decoder.decode("expired-token");
+
+        assertThat(verifications).hasValue(2);
+    }
+}
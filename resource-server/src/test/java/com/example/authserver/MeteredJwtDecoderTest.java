@@ -0,0 +1,65 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.time.Instant;
+
+import com.example.authserver.config.CachingJwtDecoder;
+import com.example.authserver.config.MeteredJwtDecoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+class MeteredJwtDecoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final JwtDecoder verifying = token -> {
+        if (token.startsWith("bad")) {
+            throw new BadJwtException("invalid signature");
+        }
+        if (token.startsWith("unreachable")) {
+            throw new JwtException("Couldn't retrieve remote JWK set");
+        }
+        Instant now = Instant.now();
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("ahmet")
+                .issuedAt(now.minusSeconds(60))
+                .expiresAt(now.plusSeconds(300))
+                .build();
+    };
+
+    @Test
+    void shouldTimeDecodesByOutcome() {
+        MeteredJwtDecoder decoder = new MeteredJwtDecoder(verifying, registry);
+
+        decoder.decode("token-1");
+        decoder.decode("token-2");
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> decoder.decode("bad-token"));
+        assertThatExceptionOfType(JwtException.class).isThrownBy(() -> decoder.decode("unreachable-token"));
+
+        assertThat(registry.get("resource.jwt.decode").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(registry.get("resource.jwt.decode").tag("outcome", "invalid").timer().count()).isEqualTo(1);
+        assertThat(registry.get("resource.jwt.decode").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPublishCacheStatistics() {
+        MeteredJwtDecoder decoder = new MeteredJwtDecoder(new CachingJwtDecoder(verifying, 100), registry);
+
+        decoder.decode("token-1");
+        decoder.decode("token-1");
+        decoder.decode("token-1");
+
+        assertThat(registry.get("resource.jwt.cache.requests").tag("result", "hit").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("resource.jwt.cache.requests").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("resource.jwt.cache.size").gauge().value()).isEqualTo(1);
+    }
+}
@@ -2,8 +2,14 @@ package com.example.authserver;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.Map;
 
+import com.example.tokenclient.BearerTokenInterceptor;
+import com.example.tokenclient.RestClientTokenFetcher;
+import com.example.tokenclient.TokenCache;
+import com.example.tokenclient.TokenRequest;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -17,32 +23,23 @@ class ProductFlowIT {
 
     @Test
     void shouldFetchProducts() {
-        String formBody = UriComponentsBuilder.newInstance()
-                .queryParam("grant_type", "client_credentials")
-                .queryParam("scope", "product.read")
-                .build()
-                .getQuery();
-
-        Map<?, ?> tokenResponse = restClient.post()
-                .uri("http://localhost:9000/oauth2/token")
-                .headers(headers -> {
-                    headers.setBasicAuth("ahmet", "12345");
-                    headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-                })
-                .body(formBody)
-                .retrieve()
-                .body(Map.class);
-
-        String accessToken = tokenResponse != null ? String.valueOf(tokenResponse.get("access_token")) : null;
-        assertThat(accessToken).isNotBlank();
-
-        String products = restClient.get()
-                .uri("http://localhost:8081/products")
-                .headers(headers -> headers.setBearerAuth(accessToken))
-                .retrieve()
-                .body(String.class);
-
-        assertThat(products).isNotBlank();
+        // one token for all calls, fetched on first use and refreshed before it expires
+        TokenCache tokenCache = new TokenCache(new RestClientTokenFetcher(
+                URI.create("http://localhost:9000/oauth2/token"), Duration.ofSeconds(5)));
+        RestClient products = RestClient.builder()
+                .requestInterceptor(new BearerTokenInterceptor(tokenCache,
+                        TokenRequest.of("ahmet", "12345", "product.read")))
+                .build();
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertThat(products.get()
+                        .uri("http://localhost:8081/products")
+                        .retrieve()
+                        .body(String.class)).isNotBlank();
+            }
+        } finally {
+            tokenCache.destroy();
+        }
     }
 
 
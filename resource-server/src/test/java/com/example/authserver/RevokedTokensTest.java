@@ -0,0 +1,131 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.example.common.BloomFilter;
+import com.example.common.RevokedTokens;
+import com.example.common.RevokedTokens.Bloom;
+import com.example.common.RevokedTokens.Revocation;
+import com.example.common.RevokedTokens.RevocationChanges;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+class RevokedTokensTest {
+
+    private final RevokedTokens revokedTokens =
+            new RevokedTokens(null, Duration.ofSeconds(10), new SimpleMeterRegistry());
+    private final long inOneHour = Instant.now().plusSeconds(3600).getEpochSecond();
+
+    @Test
+    void shouldRejectRevokedTokenFromFullList() {
+        revokedTokens.apply(full(List.of(new Revocation("jti-1", inOneHour))));
+
+        assertThat(revokedTokens.isRevoked("jti-1")).isTrue();
+        assertThat(revokedTokens.isRevoked("jti-2")).isFalse();
+        assertThat(revokedTokens.validate(jwt("jti-1")).hasErrors()).isTrue();
+        assertThat(revokedTokens.validate(jwt("jti-2")).hasErrors()).isFalse();
+    }
+
+    @Test
+    void shouldAddDeltaToPreviousList() {
+        revokedTokens.apply(full(List.of(new Revocation("jti-1", inOneHour))));
+
+        revokedTokens.apply(new RevocationChanges("epoch-1", 2, false,
+                List.of(new Revocation("jti-2", inOneHour)), null));
+
+        assertThat(revokedTokens.isRevoked("jti-1")).isTrue();
+        assertThat(revokedTokens.isRevoked("jti-2")).isTrue();
+    }
+
+    @Test
+    void shouldKeepFindingRevocationsWhenDeltasOutgrowTheFilter() {
+        revokedTokens.apply(full(List.of(new Revocation("jti-0", inOneHour))));
+        List<Revocation> delta = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            delta.add(new Revocation("jti-" + i, inOneHour));
+        }
+
+        revokedTokens.apply(new RevocationChanges("epoch-1", 1001, false, delta, null));
+        revokedTokens.apply(new RevocationChanges("epoch-1", 1002, false,
+                List.of(new Revocation("jti-1001", inOneHour)), null));
+
+        for (int i = 0; i <= 1001; i++) {
+            assertThat(revokedTokens.isRevoked("jti-" + i)).isTrue();
+        }
+        assertThat(revokedTokens.isRevoked("jti-1002")).isFalse();
+    }
+
+    @Test
+    void shouldDropExpiredEntries() {
+        long expired = Instant.now().minusSeconds(1).getEpochSecond();
+
+        revokedTokens.apply(full(List.of(new Revocation("jti-1", expired))));
+
+        assertThat(revokedTokens.isRevoked("jti-1")).isFalse();
+    }
+
+    @Test
+    void shouldAcceptEverythingBeforeFirstDownload() {
+        assertThat(revokedTokens.refresh()).isFalse();
+        assertThat(revokedTokens.validate(jwt("jti-1")).hasErrors()).isFalse();
+    }
+
+    @Test
+    void shouldKeepPreviousListWhenAnswerIsMalformed() throws Exception {
+        // a full answer without its Bloom filter
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oauth2/revocations", exchange -> {
+            byte[] body = """
+                    {"epoch": "epoch-2", "sequence": 5, "full": true, "revoked": []}
+                    """.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        RevokedTokens polling = new RevokedTokens(
+                URI.create("http://localhost:" + server.getAddress().getPort() + "/oauth2/revocations"),
+                Duration.ofHours(1), new SimpleMeterRegistry());
+        try {
+            polling.apply(full(List.of(new Revocation("jti-1", inOneHour))));
+
+            assertThat(polling.refresh()).isFalse();
+            assertThat(polling.isRevoked("jti-1")).isTrue();
+        } finally {
+            polling.destroy();
+            server.stop(0);
+        }
+    }
+
+    // what the auth server sends: the Bloom filter words big-endian, Base64 encoded
+    private static RevocationChanges full(List<Revocation> revoked) {
+        BloomFilter bloom = BloomFilter.create(revoked.size());
+        revoked.forEach(revocation -> bloom.add(revocation.jti()));
+        long[] words = bloom.bits();
+        ByteBuffer bytes = ByteBuffer.allocate(words.length * Long.BYTES);
+        bytes.asLongBuffer().put(words);
+        return new RevocationChanges("epoch-1", revoked.size(), true, revoked,
+                new Bloom(Base64.getEncoder().encodeToString(bytes.array()), bloom.hashes()));
+    }
+
+    private static Jwt jwt(String jti) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "ES256")
+                .jti(jti)
+                .subject("ahmet")
+                .build();
+    }
+}
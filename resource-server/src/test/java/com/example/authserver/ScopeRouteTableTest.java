@@ -0,0 +1,120 @@
+package com.example.authserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import com.example.authserver.config.RequiredScope;
+import com.example.authserver.config.ScopeRouteTable;
+import com.example.authserver.config.ScopedJwtAuthenticationConverter;
+import com.example.authserver.config.ScopedJwtAuthenticationToken;
+import com.example.authserver.controller.ProductController;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+class ScopeRouteTableTest {
+
+    private final ScopeRouteTable routeTable = ScopeRouteTable.of(Map.of(
+            RequestMappingInfo.paths("/products").methods(RequestMethod.GET).build(),
+            handler(new ProductController(), "getProducts", Jwt.class),
+            RequestMappingInfo.paths("/orders/{id}").build(),
+            handler(new OrderController(), "getOrder", String.class),
+            RequestMappingInfo.paths("/health").build(),
+            handler(new StatusController(), "health")));
+
+    private final ScopedJwtAuthenticationConverter converter = new ScopedJwtAuthenticationConverter(routeTable, 100);
+
+    @Test
+    void shouldRequireScopeOfAnnotatedHandler() {
+        assertThat(allowed(token("product.read"), "GET", "/products")).isTrue();
+        assertThat(allowed(token("product.write"), "GET", "/products")).isFalse();
+        assertThat(allowed(token("product.write"), "HEAD", "/products")).isFalse();
+        // decoded like Spring MVC decodes it, so an encoded path cannot skip the rule
+        assertThat(allowed(token("product.write"), "GET", "/product%73")).isFalse();
+    }
+
+    @Test
+    void shouldAddTypeAndMethodScopesOnPatternRoutes() {
+        assertThat(allowed(token("orders.read", "orders.admin"), "GET", "/orders/42")).isTrue();
+        assertThat(allowed(token("orders.read"), "GET", "/orders/42")).isFalse();
+    }
+
+    @Test
+    void shouldOnlyRequireAuthenticationWithoutRule() {
+        assertThat(allowed(token(), "GET", "/health")).isTrue();
+        assertThat(allowed(token(), "GET", "/unmapped")).isTrue();
+        Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymous",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+        assertThat(allowed(anonymous, "GET", "/unmapped")).isFalse();
+    }
+
+    @Test
+    void shouldConvertScopesOncePerJwt() {
+        Jwt jwt = jwt(Map.of("scp", "product.read unknown"));
+
+        AbstractAuthenticationToken first = converter.convert(jwt);
+        AbstractAuthenticationToken second = converter.convert(jwt);
+
+        assertThat(first).isNotSameAs(second);
+        // each token copies the authority list, but the authorities themselves come from the one parse
+        assertThat(second.getAuthorities()).containsExactlyElementsOf(first.getAuthorities());
+        assertThat(second.getAuthorities().iterator().next()).isSameAs(first.getAuthorities().iterator().next());
+        assertThat(AuthorityUtils.authorityListToSet(first.getAuthorities()))
+                .containsExactlyInAnyOrder("SCOPE_product.read", "SCOPE_unknown");
+        assertThat(((ScopedJwtAuthenticationToken) first).getScopeMask()).isEqualTo(routeTable.mask(List.of("product.read")));
+    }
+
+    private boolean allowed(Authentication authentication, String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        return routeTable.authorize(() -> authentication, new RequestAuthorizationContext(request)).isGranted();
+    }
+
+    private Authentication token(String... scopes) {
+        return converter.convert(jwt(Map.of("scope", List.of(scopes))));
+    }
+
+    private static Jwt jwt(Map<String, Object> claims) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "ES256")
+                .subject("ahmet")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claims(all -> all.putAll(claims))
+                .build();
+    }
+
+    private static HandlerMethod handler(Object controller, String name, Class<?>... parameterTypes) {
+        try {
+            return new HandlerMethod(controller, controller.getClass().getMethod(name, parameterTypes));
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @RequiredScope("orders.read")
+    public static class OrderController {
+
+        @RequiredScope("orders.admin")
+        public String getOrder(String id) {
+            return id;
+        }
+    }
+
+    public static class StatusController {
+
+        public String health() {
+            return "UP";
+        }
+    }
+}
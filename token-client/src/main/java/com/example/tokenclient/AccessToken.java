@@ -0,0 +1,10 @@
+package com.example.tokenclient;
+
+import java.time.Instant;
+
+/**
+ * An issued access token and when it expires ({@code expires_in} of the token response, counted from when
+ * the response arrived).
+ */
+public record AccessToken(String value, Instant expiresAt) {
+}
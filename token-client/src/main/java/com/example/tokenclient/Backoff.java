@@ -0,0 +1,33 @@
+package com.example.tokenclient;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry schedule for token requests: up to {@code maxAttempts} attempts, waiting a random time between zero
+ * and {@code initialDelay * 2^(attempt - 1)}, capped at {@code maxDelay} ("full jitter"). Callers that failed
+ * together therefore do not come back together. A server's {@code Retry-After} is waited out first, up to
+ * {@code maxDelay}.
+ */
+public record Backoff(int maxAttempts, Duration initialDelay, Duration maxDelay) {
+
+    public static final Backoff DEFAULT = new Backoff(4, Duration.ofMillis(100), Duration.ofSeconds(2));
+
+    public Backoff {
+        Assert.isTrue(maxAttempts > 0, "maxAttempts must be greater than 0");
+        Assert.notNull(initialDelay, "initialDelay cannot be null");
+        Assert.notNull(maxDelay, "maxDelay cannot be null");
+    }
+
+    // delay before attempt number attempt + 1
+    long delayMillis(int attempt, Duration retryAfter) {
+        long ceiling = Math.min(this.maxDelay.toMillis(), this.initialDelay.toMillis() << Math.min(attempt - 1, 30));
+        long delay = ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+        if (retryAfter != null) {
+            delay = Math.max(delay, retryAfter.toMillis());
+        }
+        return Math.min(delay, this.maxDelay.toMillis());
+    }
+}
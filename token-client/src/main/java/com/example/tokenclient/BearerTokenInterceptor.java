@@ -0,0 +1,62 @@
+package com.example.tokenclient;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+
+/**
+ * Adds {@code Authorization: Bearer} with a token from a {@link TokenCache} to every request of a
+ * {@code RestClient}:
+ * <pre>
+ * RestClient products = RestClient.builder()
+ *         .requestInterceptor(new BearerTokenInterceptor(tokenCache, TokenRequest.of("ahmet", "12345", "product.read")))
+ *         .build();
+ * </pre>
+ * A {@code 401} with {@code error="invalid_token"} (revoked, or signed with a key the resource server does
+ * not know yet) drops the token from the cache and the request is sent once more with a new one.
+ */
+public class BearerTokenInterceptor implements ClientHttpRequestInterceptor {
+
+    private final TokenCache tokenCache;
+    private final TokenRequest tokenRequest;
+
+    public BearerTokenInterceptor(TokenCache tokenCache, TokenRequest tokenRequest) {
+        Assert.notNull(tokenCache, "tokenCache cannot be null");
+        Assert.notNull(tokenRequest, "tokenRequest cannot be null");
+        this.tokenCache = tokenCache;
+        this.tokenRequest = tokenRequest;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String token = this.tokenCache.token(this.tokenRequest);
+        request.getHeaders().setBearerAuth(token);
+        ClientHttpResponse response = execution.execute(request, body);
+        if (!isInvalidToken(response)) {
+            return response;
+        }
+        this.tokenCache.invalidate(this.tokenRequest, token);
+        String fresh = this.tokenCache.token(this.tokenRequest);
+        if (fresh.equals(token)) {
+            return response;
+        }
+        response.close();
+        request.getHeaders().setBearerAuth(fresh);
+        return execution.execute(request, body);
+    }
+
+    private static boolean isInvalidToken(ClientHttpResponse response) throws IOException {
+        if (response.getStatusCode().value() != HttpStatus.UNAUTHORIZED.value()) {
+            return false;
+        }
+        String challenge = response.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE);
+        return challenge != null && challenge.contains("invalid_token");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.tokenclient;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * {@code grant_type=client_credentials} against the token endpoint, authenticating with HTTP Basic
+ * ({@code client_secret_basic}). Connection failures, {@code 429} and {@code 5xx} are reported as retryable,
+ * with the response's {@code Retry-After} when it has one.
+ */
+public class RestClientTokenFetcher implements TokenFetcher {
+
+    private final RestClient restClient;
+    private final URI tokenUri;
+
+    public RestClientTokenFetcher(URI tokenUri, Duration timeout) {
+        this(defaultRestClient(timeout), tokenUri);
+    }
+
+    public RestClientTokenFetcher(RestClient restClient, URI tokenUri) {
+        Assert.notNull(restClient, "restClient cannot be null");
+        Assert.notNull(tokenUri, "tokenUri cannot be null");
+        this.restClient = restClient;
+        this.tokenUri = tokenUri;
+    }
+
+    @Override
+    public AccessToken fetch(TokenRequest request) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "client_credentials");
+        if (!request.scopes().isEmpty()) {
+            form.add("scope", String.join(" ", new TreeSet<>(request.scopes())));
+        }
+        Map<?, ?> response;
+        try {
+            response = this.restClient.post()
+                    .uri(this.tokenUri)
+                    .headers(headers -> headers.setBasicAuth(request.clientId(), request.clientSecret()))
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(form)
+                    .retrieve()
+                    .body(Map.class);
+        } catch (RestClientResponseException ex) {
+            int status = ex.getStatusCode().value();
+            boolean retryable = status == 429 || ex.getStatusCode().is5xxServerError();
+            throw new TokenFetchException("Token request for " + request + " failed with " + status + ": "
+                    + ex.getResponseBodyAsString(), retryable, retryAfter(ex.getResponseHeaders()), ex);
+        } catch (ResourceAccessException ex) {
+            throw new TokenFetchException("Token endpoint " + this.tokenUri + " unreachable", true, null, ex);
+        } catch (RestClientException ex) {
+            throw new TokenFetchException("Unreadable token response for " + request, false, null, ex);
+        }
+        Instant received = Instant.now();
+
+        Object accessToken = response != null ? response.get("access_token") : null;
+        if (!(accessToken instanceof String value) || value.isEmpty()) {
+            throw new TokenFetchException("No access_token in token response for " + request, false, null, null);
+        }
+        // without expires_in the token is used for this call only
+        Object expiresIn = response.get("expires_in");
+        long seconds = expiresIn instanceof Number number ? number.longValue() : 0;
+        return new AccessToken(value, received.plusSeconds(seconds));
+    }
+
+    private static Duration retryAfter(HttpHeaders headers) {
+        String retryAfter = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (retryAfter == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException ex) {
+            // an HTTP date; the backoff alone decides
+            return null;
+        }
+    }
+
+    private static RestClient defaultRestClient(Duration timeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().connectTimeout(timeout).build());
+        requestFactory.setReadTimeout(timeout);
+        return RestClient.builder().requestFactory(requestFactory).build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.tokenclient;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Access tokens cached per client and scope set, so a caller requests a token once per token lifetime
+ * instead of once per call.
+ * <p>
+ * From {@code refreshAhead} before a token's expiry, the next caller starts a refresh in the background and
+ * callers keep using the current token until the new one arrives. Only once the token has less than
+ * {@code minimumValidity} left do callers wait, all of them on that same request. There is never more than
+ * one token request per client and scope set in flight. Failed requests are retried as {@link Backoff}
+ * allows; if the refresh still fails, the next caller starts a new one.
+ */
+public class TokenCache implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(TokenCache.class);
+
+    private final TokenFetcher fetcher;
+    private final Duration refreshAhead;
+    private final Duration minimumValidity;
+    private final Backoff backoff;
+    private final ExecutorService refresher;
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+
+    public TokenCache(TokenFetcher fetcher) {
+        this(fetcher, Duration.ofMinutes(1), Duration.ofSeconds(10), Backoff.DEFAULT);
+    }
+
+    public TokenCache(TokenFetcher fetcher, Duration refreshAhead, Duration minimumValidity, Backoff backoff) {
+        Assert.notNull(fetcher, "fetcher cannot be null");
+        Assert.notNull(backoff, "backoff cannot be null");
+        Assert.isTrue(minimumValidity.compareTo(refreshAhead) <= 0, "minimumValidity must not exceed refreshAhead");
+        this.fetcher = fetcher;
+        this.refreshAhead = refreshAhead;
+        this.minimumValidity = minimumValidity;
+        this.backoff = backoff;
+        AtomicInteger threads = new AtomicInteger();
+        this.refresher = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "token-refresh-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // a token valid for at least minimumValidity, requesting one only when the cached one is due
+    public String token(TokenRequest request) {
+        Slot slot = this.slots.computeIfAbsent(new Key(request.clientId(), request.scopes()), key -> new Slot());
+        AccessToken current = slot.current.get();
+        Instant now = Instant.now();
+        if (current != null && now.isBefore(current.expiresAt().minus(this.refreshAhead))) {
+            return current.value();
+        }
+        CompletableFuture<AccessToken> refresh = slot.refresh(request);
+        if (current != null && now.isBefore(current.expiresAt().minus(this.minimumValidity))) {
+            return current.value();
+        }
+        try {
+            return refresh.join().value();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Drops {@code tokenValue} if it is still the cached token, e.g. after the resource server rejected it
+     * as revoked or signed with an unknown key. Leaves a token another caller already refreshed alone.
+     */
+    public void invalidate(TokenRequest request, String tokenValue) {
+        Slot slot = this.slots.get(new Key(request.clientId(), request.scopes()));
+        if (slot != null) {
+            slot.invalidate(tokenValue);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.refresher.shutdownNow();
+    }
+
+    private AccessToken fetch(TokenRequest request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return this.fetcher.fetch(request);
+            } catch (TokenFetchException ex) {
+                if (!ex.isRetryable() || attempt >= this.backoff.maxAttempts()) {
+                    throw ex;
+                }
+                long delay = this.backoff.delayMillis(attempt, ex.getRetryAfter());
+                logger.debug("Token request attempt " + attempt + " for " + request + " failed, retrying in "
+                        + delay + " ms: " + ex.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private record Key(String clientId, Set<String> scopes) {
+    }
+
+    /**
+     * Current token of one client and scope set, and the refresh in flight for it, if any.
+     */
+    private final class Slot {
+
+        private final AtomicReference<AccessToken> current = new AtomicReference<>();
+        private final AtomicReference<CompletableFuture<AccessToken>> inFlight = new AtomicReference<>();
+
+        // joins the refresh in flight or starts one; whoever wins the swap starts it
+        private CompletableFuture<AccessToken> refresh(TokenRequest request) {
+            while (true) {
+                CompletableFuture<AccessToken> running = this.inFlight.get();
+                if (running != null) {
+                    return running;
+                }
+                CompletableFuture<AccessToken> started = new CompletableFuture<>();
+                if (this.inFlight.compareAndSet(null, started)) {
+                    start(request, started);
+                    return started;
+                }
+            }
+        }
+
+        private void start(TokenRequest request, CompletableFuture<AccessToken> started) {
+            // a refresh that completed since the caller looked is as good as a new one
+            AccessToken latest = this.current.get();
+            if (latest != null && Instant.now().isBefore(latest.expiresAt().minus(TokenCache.this.refreshAhead))) {
+                finish(started, latest, null);
+                return;
+            }
+            try {
+                TokenCache.this.refresher.execute(() -> {
+                    try {
+                        finish(started, fetch(request), null);
+                    } catch (RuntimeException ex) {
+                        logger.warn("Token request for " + request + " failed", ex);
+                        finish(started, null, ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                finish(started, null, new IllegalStateException("TokenCache is shut down", ex));
+            }
+        }
+
+        private void finish(CompletableFuture<AccessToken> started, AccessToken token, RuntimeException failure) {
+            if (token != null) {
+                this.current.set(token);
+            }
+            // cleared before completing, so a caller woken by the failure can start the next attempt
+            this.inFlight.compareAndSet(started, null);
+            if (failure != null) {
+                started.completeExceptionally(failure);
+            } else {
+                started.complete(token);
+            }
+        }
+
+        private void invalidate(String tokenValue) {
+            this.current.getAndUpdate(cached -> cached != null && cached.value().equals(tokenValue) ? null : cached);
+        }
+    }
+}
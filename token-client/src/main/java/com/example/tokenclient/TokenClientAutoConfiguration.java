@@ -0,0 +1,32 @@
+package com.example.tokenclient;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Registers a {@link TokenCache} for the token endpoint in {@code TOKEN_CLIENT_TOKEN_URI} when the module is
+ * on the classpath of a Spring Boot application; add a {@link BearerTokenInterceptor} per client to the
+ * {@code RestClient}s that call the resource server.
+ */
+@AutoConfiguration
+public class TokenClientAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenCache tokenCache(
+            @Value("${TOKEN_CLIENT_TOKEN_URI:http://localhost:9000/oauth2/token}") URI tokenUri,
+            @Value("${TOKEN_CLIENT_TIMEOUT:PT5S}") Duration timeout,
+            @Value("${TOKEN_CLIENT_REFRESH_AHEAD:PT1M}") Duration refreshAhead,
+            @Value("${TOKEN_CLIENT_MINIMUM_VALIDITY:PT10S}") Duration minimumValidity,
+            @Value("${TOKEN_CLIENT_MAX_ATTEMPTS:4}") int maxAttempts,
+            @Value("${TOKEN_CLIENT_BACKOFF:PT0.1S}") Duration initialBackoff,
+            @Value("${TOKEN_CLIENT_MAX_BACKOFF:PT2S}") Duration maxBackoff) {
+        return new TokenCache(new RestClientTokenFetcher(tokenUri, timeout), refreshAhead, minimumValidity,
+                new Backoff(maxAttempts, initialBackoff, maxBackoff));
+    }
+}
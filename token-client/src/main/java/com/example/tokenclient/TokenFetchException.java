@@ -0,0 +1,28 @@
+package com.example.tokenclient;
+
+import java.time.Duration;
+
+/**
+ * A failed token request. Retryable failures (the server was unreachable, overloaded or rate limiting) are
+ * retried by {@link TokenCache} with backoff; others (bad credentials, unknown scope) fail at once.
+ */
+public class TokenFetchException extends RuntimeException {
+
+    private final boolean retryable;
+    private final Duration retryAfter;
+
+    public TokenFetchException(String message, boolean retryable, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+        this.retryAfter = retryAfter;
+    }
+
+    public boolean isRetryable() {
+        return this.retryable;
+    }
+
+    // the server's Retry-After, or null
+    public Duration getRetryAfter() {
+        return this.retryAfter;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.tokenclient;
+
+/**
+ * Requests a new access token from the authorization server. Throws {@link TokenFetchException} when the
+ * request failed, telling {@link TokenCache} whether trying again can help.
+ */
+@FunctionalInterface
+public interface TokenFetcher {
+
+    AccessToken fetch(TokenRequest request);
+}
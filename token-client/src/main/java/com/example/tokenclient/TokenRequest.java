@@ -0,0 +1,28 @@
+package com.example.tokenclient;
+
+import org.springframework.util.Assert;
+
+import java.util.Set;
+
+/**
+ * Client credentials and the scopes to ask for. Tokens are cached per clientId and scope set; the order in
+ * which scopes are given does not matter.
+ */
+public record TokenRequest(String clientId, String clientSecret, Set<String> scopes) {
+
+    public TokenRequest {
+        Assert.hasText(clientId, "clientId cannot be empty");
+        Assert.notNull(clientSecret, "clientSecret cannot be null");
+        scopes = scopes != null ? Set.copyOf(scopes) : Set.of();
+    }
+
+    public static TokenRequest of(String clientId, String clientSecret, String... scopes) {
+        return new TokenRequest(clientId, clientSecret, Set.of(scopes));
+    }
+
+    // keeps the secret out of logs and exception messages
+    @Override
+    public String toString() {
+        return "TokenRequest[clientId=" + this.clientId + ", scopes=" + this.scopes + "]";
+    }
+}
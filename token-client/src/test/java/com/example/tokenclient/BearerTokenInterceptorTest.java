@@ -0,0 +1,70 @@
+package com.example.tokenclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+class BearerTokenInterceptorTest {
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final TokenCache tokenCache = new TokenCache(request ->
+            new AccessToken("token-" + this.fetches.incrementAndGet(), Instant.now().plus(Duration.ofHours(1))));
+
+    private final RestClient.Builder builder = RestClient.builder()
+            .requestInterceptor(new BearerTokenInterceptor(this.tokenCache,
+                    TokenRequest.of("ahmet", "12345", "product.read")));
+    private final MockRestServiceServer server = MockRestServiceServer.bindTo(this.builder).build();
+    private final RestClient restClient = this.builder.build();
+
+    @AfterEach
+    void shutDown() {
+        this.tokenCache.destroy();
+    }
+
+    @Test
+    void shouldSendCachedTokenWithEveryRequest() {
+        this.server.expect(ExpectedCount.twice(), requestTo("http://localhost:8081/products"))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer token-1"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        get();
+        get();
+
+        this.server.verify();
+        assertThat(this.fetches).hasValue(1);
+    }
+
+    @Test
+    void shouldRetryOnceWithNewTokenAfterInvalidToken() {
+        this.server.expect(requestTo("http://localhost:8081/products"))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer token-1"))
+                .andRespond(withStatus(HttpStatus.UNAUTHORIZED)
+                        .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\""));
+        this.server.expect(requestTo("http://localhost:8081/products"))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer token-2"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        assertThat(get()).isEqualTo("[]");
+
+        this.server.verify();
+    }
+
+    private String get() {
+        return this.restClient.get().uri("http://localhost:8081/products").retrieve().body(String.class);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.tokenclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TokenCacheTest {
+
+    private static final TokenRequest READ = TokenRequest.of("ahmet", "12345", "product.read");
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final List<TokenCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void shutDown() {
+        this.caches.forEach(TokenCache::destroy);
+    }
+
+    @Test
+    void shouldRequestTokenOncePerClientAndScopeSet() {
+        TokenCache cache = cache(request -> token(Duration.ofHours(1)));
+
+        String first = cache.token(READ);
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.token(READ)).isEqualTo(first);
+        }
+        cache.token(TokenRequest.of("ahmet", "12345", "product.read", "product.write"));
+        cache.token(TokenRequest.of("ahmet", "12345", "product.write", "product.read"));
+
+        assertThat(this.fetches).hasValue(2);
+    }
+
+    @Test
+    void shouldShareOneRequestBetweenConcurrentCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TokenCache cache = cache(request -> {
+            await(release);
+            return token(Duration.ofHours(1));
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tokens.add(callers.submit(() -> cache.token(READ)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            String first = tokens.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<String> token : tokens) {
+                assertThat(token.get(5, TimeUnit.SECONDS)).isEqualTo(first);
+            }
+            assertThat(this.fetches).hasValue(1);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldKeepServingCurrentTokenWhileRefreshingAhead() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TokenCache cache = cache(request -> {
+            if (this.fetches.get() > 1) {
+                await(release);
+            }
+            // inside the one minute refresh-ahead window from the start
+            return token(Duration.ofSeconds(30));
+        });
+        String current = cache.token(READ);
+
+        // the refresh is blocked, yet callers do not wait for it
+        assertThat(cache.token(READ)).isEqualTo(current);
+        assertThat(cache.token(READ)).isEqualTo(current);
+        release.countDown();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (cache.token(READ).equals(current) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.token(READ)).isNotEqualTo(current);
+    }
+
+    @Test
+    void shouldRetryRetryableFailures() {
+        TokenCache cache = cache(request -> {
+            if (this.fetches.get() < 3) {
+                throw new TokenFetchException("503", true, null, null);
+            }
+            return token(Duration.ofHours(1));
+        });
+
+        assertThat(cache.token(READ)).isEqualTo("token-3");
+    }
+
+    @Test
+    void shouldFailAtOnceOnNonRetryableFailure() {
+        TokenCache cache = cache(request -> {
+            throw new TokenFetchException("invalid_client", false, null, null);
+        });
+
+        assertThatThrownBy(() -> cache.token(READ)).hasMessage("invalid_client");
+        assertThat(this.fetches).hasValue(1);
+    }
+
+    @Test
+    void shouldRequestNewTokenAfterInvalidation() {
+        TokenCache cache = cache(request -> token(Duration.ofHours(1)));
+        String rejected = cache.token(READ);
+
+        cache.invalidate(READ, "some-older-token");
+        assertThat(cache.token(READ)).isEqualTo(rejected);
+
+        cache.invalidate(READ, rejected);
+        assertThat(cache.token(READ)).isNotEqualTo(rejected);
+        assertThat(this.fetches).hasValue(2);
+    }
+
+    // counts every attempt, successful or not
+    private TokenCache cache(TokenFetcher fetcher) {
+        TokenCache cache = new TokenCache(request -> {
+            this.fetches.incrementAndGet();
+            return fetcher.fetch(request);
+        }, Duration.ofMinutes(1), Duration.ofSeconds(10), new Backoff(4, Duration.ofMillis(1), Duration.ofMillis(5)));
+        this.caches.add(cache);
+        return cache;
+    }
+
+    private AccessToken token(Duration timeToLive) {
+        return new AccessToken("token-" + this.fetches.get(), Instant.now().plus(timeToLive));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}